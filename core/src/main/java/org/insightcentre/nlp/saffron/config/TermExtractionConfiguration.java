@@ -53,6 +53,50 @@ public class TermExtractionConfiguration {
     public SaffronPath lemmatizerModel;
     /** The path to the list of stop words (one per line) */
     public SaffronPath stopWords;
+    /**
+     * A directory in which to cache the tokenization, tagging and
+     * lemmatization of documents between runs (or null to disable)
+     */
+    public SaffronPath annotationCache;
+    /**
+     * Keep the annotations of the documents in memory during the first pass,
+     * so that the postRankDC and novelTopicModel features do not read the
+     * corpus again
+     */
+    public boolean fusedScan = false;
+    /**
+     * The file in which the statistics of each run are saved. If set, only the
+     * documents not processed in a previous run are processed and their
+     * statistics are added to those of the previous run (or null to disable)
+     */
+    public SaffronPath incrementalState;
+    /**
+     * Write the terms of each document to a temporary file during extraction
+     * and read back only those of the selected terms, instead of keeping the
+     * terms of all documents in memory
+     */
+    public boolean spillDocumentTerms = false;
+    /**
+     * Train the topic model for the novelTopicModel feature with a parallel
+     * sparse sampler using all threads, instead of the single-threaded sampler
+     */
+    public boolean parallelTopicModel = false;
+    /**
+     * The number of candidate terms kept per thread by an approximate first
+     * pass, after which only these candidates are counted exactly (or 0 to
+     * count all candidates in a single pass)
+     */
+    public int heavyHitters = 0;
+    /**
+     * The number of counters in each row of the sketch used by the
+     * approximate first pass
+     */
+    public int sketchWidth = 1 << 20;
+    /**
+     * Count the candidate terms with a suffix array over the whole corpus
+     * instead of hashing each span, which is faster for a large ngramMax
+     */
+    public boolean suffixArrayCounting = false;
     /** The set of tags allowed in non-final position in a noun phrase */
     public Set<String> preceedingTokens = new HashSet<>(Arrays.asList("NN", "NNS", "JJ", "NNP"));
     /** The set of tags allowed in non-final position, but not completing */
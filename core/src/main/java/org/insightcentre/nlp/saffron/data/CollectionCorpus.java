@@ -3,6 +3,7 @@ package org.insightcentre.nlp.saffron.data;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Spliterator;
 
 /**
  * A corpus in memory implemented with a Java collection
@@ -24,6 +25,11 @@ public class CollectionCorpus implements Corpus {
     public int size() {
         return corpus.size();
     }
+
+    @Override
+    public Spliterator<Document> spliterator() {
+        return corpus.spliterator();
+    }
     
     
 }
@@ -0,0 +1,146 @@
+package org.insightcentre.nlp.saffron.data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A cache of the contents of documents that are read from disk or the web,
+ * so that repeated passes over a corpus do not read the same files again. The
+ * cache holds the most recently used contents up to a budget of (estimated)
+ * bytes.
+ *
+ * The process-wide cache used by {@link Document.OnDisk} and
+ * {@link Document.Remote} is configured by the system property
+ * {@code saffron.contentCache}, the budget in bytes (by default 0, that is no
+ * caching). Another cache may be installed with
+ * {@link #setInstance(ContentCache)}.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class ContentCache {
+
+    private static ContentCache instance;
+    private static boolean configured = false;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, String> data = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    /**
+     * Create a cache
+     *
+     * @param maxBytes The maximum number of bytes the cached contents may use
+     */
+    public ContentCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The size of the content cache must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the process-wide cache
+     *
+     * @return The cache or null if contents are not cached
+     */
+    public static synchronized ContentCache getInstance() {
+        if (!configured) {
+            final long budget = Long.getLong("saffron.contentCache", 0L);
+            instance = budget > 0 ? new ContentCache(budget) : null;
+            configured = true;
+        }
+        return instance;
+    }
+
+    /**
+     * Replace the process-wide cache
+     *
+     * @param cache The new cache or null to stop caching
+     */
+    public static synchronized void setInstance(ContentCache cache) {
+        instance = cache;
+        configured = true;
+    }
+
+    /**
+     * The estimated number of bytes used to store an entry
+     *
+     * @param key The key
+     * @param s The contents
+     * @return The estimate
+     */
+    static long weight(String key, String s) {
+        return 2L * (key.length() + s.length()) + 64;
+    }
+
+    /**
+     * Get the contents for a key, loading and caching them if they are not in
+     * the cache. Contents that are larger than the whole budget are not
+     * cached
+     *
+     * @param key The key (e.g., the path of the file)
+     * @param load The function that loads the contents
+     * @return The contents
+     */
+    public String get(String key, Function<String, String> load) {
+        synchronized (data) {
+            final String s = data.get(key);
+            if (s != null) {
+                return s;
+            }
+        }
+        // Loaded outside the lock, so that several documents may be read at once
+        final String s = load.apply(key);
+        final long w = weight(key, s);
+        if (w <= maxBytes) {
+            synchronized (data) {
+                final String old = data.put(key, s);
+                if (old != null) {
+                    bytes -= weight(key, old);
+                }
+                bytes += w;
+                final Iterator<Map.Entry<String, String>> iter = data.entrySet().iterator();
+                while (bytes > maxBytes && iter.hasNext()) {
+                    final Map.Entry<String, String> e = iter.next();
+                    bytes -= weight(e.getKey(), e.getValue());
+                    iter.remove();
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Remove all the cached contents
+     */
+    public void clear() {
+        synchronized (data) {
+            data.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * The number of cached contents
+     *
+     * @return The number of keys in the cache
+     */
+    public int size() {
+        synchronized (data) {
+            return data.size();
+        }
+    }
+
+    /**
+     * The estimated number of bytes used by the cached contents
+     *
+     * @return The number of bytes
+     */
+    public long getBytes() {
+        synchronized (data) {
+            return bytes;
+        }
+    }
+}
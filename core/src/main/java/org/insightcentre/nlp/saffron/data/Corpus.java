@@ -1,5 +1,12 @@
 package org.insightcentre.nlp.saffron.data;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * A corpus
  * 
@@ -21,4 +28,43 @@ public interface Corpus {
      * @return The size of this corpus
      */
     public int size();
+
+    /**
+     * Get a spliterator over the documents of this corpus. By default this
+     * reads the documents from {@link #getDocuments()} and splits off small
+     * batches, so that even a small corpus of slow documents is spread over
+     * several threads
+     *
+     * @return A spliterator over the documents
+     */
+    public default Spliterator<Document> spliterator() {
+        return new CorpusSpliterator(getDocuments().iterator(), size());
+    }
+
+    /**
+     * Get the documents of this corpus as a parallel stream
+     *
+     * @return The documents in no particular order
+     */
+    public default Stream<Document> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Release an iterator over the documents of a corpus, such as one that
+     * stops before the end of the documents. Iterators that hold a file open
+     * are {@link Closeable} and are closed, other iterators are left as they
+     * are
+     *
+     * @param documents The iterator from {@link #getDocuments()}
+     */
+    public static void close(Iterator<Document> documents) {
+        if (documents instanceof Closeable) {
+            try {
+                ((Closeable) documents).close();
+            } catch (IOException x) {
+                throw new RuntimeException(x);
+            }
+        }
+    }
 }
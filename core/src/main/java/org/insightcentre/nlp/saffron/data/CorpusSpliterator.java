@@ -0,0 +1,83 @@
+package org.insightcentre.nlp.saffron.data;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over the iterator of a corpus. The batches split off double
+ * in size from one document up to a limit, unlike those of
+ * {@link Spliterators#spliteratorUnknownSize(Iterator, int)}, which start at
+ * 1024 documents and so do not split most corpora at all.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+class CorpusSpliterator implements Spliterator<Document> {
+
+    static final int MAX_BATCH = 64;
+
+    private final Iterator<Document> iterator;
+    private long estimate;
+    private int batch = 1;
+
+    /**
+     * Create a spliterator
+     *
+     * @param iterator The documents
+     * @param estimate The estimated number of documents
+     */
+    public CorpusSpliterator(Iterator<Document> iterator, long estimate) {
+        this.iterator = iterator;
+        this.estimate = estimate < 0 ? Long.MAX_VALUE : estimate;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Document> action) {
+        if (iterator.hasNext()) {
+            action.accept(iterator.next());
+            if (estimate > 0 && estimate != Long.MAX_VALUE) {
+                estimate--;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Document> action) {
+        while (iterator.hasNext()) {
+            action.accept(iterator.next());
+        }
+        estimate = 0;
+    }
+
+    @Override
+    public Spliterator<Document> trySplit() {
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        final Document[] docs = new Document[batch];
+        int n = 0;
+        while (n < docs.length && iterator.hasNext()) {
+            docs[n++] = iterator.next();
+        }
+        if (estimate != Long.MAX_VALUE) {
+            estimate = Math.max(0, estimate - n);
+        }
+        batch = Math.min(batch * 2, MAX_BATCH);
+        return Spliterators.spliterator(Arrays.copyOf(docs, n), 0, n,
+                Spliterator.NONNULL);
+    }
+
+    @Override
+    public long estimateSize() {
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.NONNULL;
+    }
+}
@@ -13,11 +13,18 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Month;
@@ -246,20 +253,22 @@ public class Document {
         }
     }
 
+    /**
+     * Document is read from a file. The contents are cached by the
+     * process-wide {@link ContentCache}, if there is one
+     */
     public static class OnDisk implements Loader {
 
         @Override
         public String getContents(Document d) {
             if (d.file != null) {
-                try (BufferedReader reader = new BufferedReader(new FileReader(d.file.toFile()))) {
-                    StringBuilder sb = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        sb.append(line).append("\n");
-                    }
-                    return sb.toString();
-                } catch (IOException x) {
-                    throw new RuntimeException(x);
+                final File f = d.file.toFile();
+                final ContentCache cache = ContentCache.getInstance();
+                if (cache != null) {
+                    // The modification time is part of the key so that changed files are read again
+                    return cache.get(f.getAbsolutePath() + "@" + f.lastModified(), k -> readFile(f));
+                } else {
+                    return readFile(f);
                 }
             } else {
                 throw new UnsupportedOperationException("File not available");
@@ -273,20 +282,20 @@ public class Document {
 
     }
 
+    /**
+     * Document is read from a URL. The contents are cached by the
+     * process-wide {@link ContentCache}, if there is one
+     */
     public static class Remote implements Loader {
 
         @Override
         public String getContents(Document d) {
             if (d.url != null) {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(d.url.openStream()))) {
-                    StringBuilder sb = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        sb.append(line).append("\n");
-                    }
-                    return sb.toString();
-                } catch (IOException x) {
-                    throw new RuntimeException(x);
+                final ContentCache cache = ContentCache.getInstance();
+                if (cache != null) {
+                    return cache.get(d.url.toString(), k -> readURL(d.url));
+                } else {
+                    return readURL(d.url);
                 }
             } else {
                 throw new UnsupportedOperationException("URL not available");
@@ -300,6 +309,86 @@ public class Document {
 
     }
 
+    /**
+     * Read a whole file into a single buffer and decode it
+     *
+     * @param f The file
+     * @return The contents with line endings normalized as by {@link #decode(ByteBuffer)}
+     */
+    static String readFile(File f) {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to read: " + f.getPath());
+            }
+            final ByteBuffer buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+            }
+            buf.flip();
+            return decode(buf);
+        } catch (IOException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    private static String readURL(URL url) {
+        try (InputStream in = url.openStream()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] b = new byte[8192];
+            int n;
+            while ((n = in.read(b)) >= 0) {
+                out.write(b, 0, n);
+            }
+            return decode(ByteBuffer.wrap(out.toByteArray()));
+        } catch (IOException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * Decode the contents of a document in the default character set. As
+     * when the document was read line by line, each line ending is replaced
+     * by a single newline and the last line is terminated by a newline
+     *
+     * @param buf The bytes of the document
+     * @return The contents
+     */
+    static String decode(ByteBuffer buf) {
+        final CharBuffer chars;
+        try {
+            chars = Charset.defaultCharset().newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(buf);
+        } catch (CharacterCodingException x) {
+            throw new RuntimeException(x);
+        }
+        final int n = chars.remaining();
+        boolean normal = n == 0 || chars.get(n - 1) == '\n';
+        for (int i = 0; normal && i < n; i++) {
+            normal = chars.get(i) != '\r';
+        }
+        if (normal) {
+            return chars.toString();
+        }
+        final StringBuilder sb = new StringBuilder(n + 1);
+        for (int i = 0; i < n; i++) {
+            final char c = chars.get(i);
+            if (c == '\r') {
+                sb.append('\n');
+                if (i + 1 < n && chars.get(i + 1) == '\n') {
+                    i++;
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        if (sb.charAt(sb.length() - 1) != '\n') {
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
     /**
      * Return a copy of this document focusing only on a single term
      *
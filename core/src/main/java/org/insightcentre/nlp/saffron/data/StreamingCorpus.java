@@ -0,0 +1,186 @@
+package org.insightcentre.nlp.saffron.data;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A corpus in the JSON format of {@link CollectionCorpus} that is read from
+ * the file each time its documents are iterated, so that only one document is
+ * held in memory at a time. Files whose name ends in <code>.gz</code> are
+ * decompressed. The file is held open until the iteration reaches the end of
+ * the documents, so an iteration that stops early should be closed with
+ * {@link Corpus#close(Iterator)}.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class StreamingCorpus implements Corpus {
+
+    private final File file;
+    private final ObjectMapper mapper;
+    private int size = -1;
+
+    /**
+     * Create a corpus over a JSON file
+     *
+     * @param file The JSON file
+     * @throws FileNotFoundException If the file does not exist
+     */
+    public StreamingCorpus(File file) throws FileNotFoundException {
+        this(file, new ObjectMapper());
+    }
+
+    /**
+     * Create a corpus over a JSON file
+     *
+     * @param file The JSON file
+     * @param mapper The mapper used to read the documents
+     * @throws FileNotFoundException If the file does not exist
+     */
+    public StreamingCorpus(File file, ObjectMapper mapper) throws FileNotFoundException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        this.file = file;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Open a parser positioned at the start of the array of documents
+     *
+     * @return The parser or null if the file has no documents
+     */
+    private JsonParser openDocuments() throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        final JsonParser parser = mapper.getFactory().createParser(in);
+        JsonToken t = parser.nextToken();
+        if (t == JsonToken.START_ARRAY) {
+            // A bare list of documents
+            return parser;
+        } else if (t != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new IOException(file.getName() + " is not a JSON corpus");
+        }
+        while ((t = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            t = parser.nextToken();
+            if (field.equals("documents") && t == JsonToken.START_ARRAY) {
+                return parser;
+            }
+            parser.skipChildren();
+        }
+        parser.close();
+        return null;
+    }
+
+    @Override
+    public Iterable<Document> getDocuments() {
+        return new Iterable<Document>() {
+            @Override
+            public Iterator<Document> iterator() {
+                try {
+                    return new DocumentIterator(openDocuments());
+                } catch (IOException x) {
+                    throw new RuntimeException(x);
+                }
+            }
+        };
+    }
+
+    /**
+     * The number of documents, which are counted by scanning the file
+     * without reading the documents
+     *
+     * @return The size of this corpus
+     */
+    @Override
+    public int size() {
+        if (size < 0) {
+            try {
+                final JsonParser parser = openDocuments();
+                int n = 0;
+                if (parser != null) {
+                    try {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            parser.skipChildren();
+                            n++;
+                        }
+                    } finally {
+                        parser.close();
+                    }
+                }
+                size = n;
+            } catch (IOException x) {
+                throw new RuntimeException(x);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Reads the documents from the file, which is closed at the end of the
+     * documents or when the iterator is closed
+     */
+    private class DocumentIterator implements Iterator<Document>, Closeable {
+
+        private JsonParser parser;
+        private Document next;
+
+        public DocumentIterator(JsonParser parser) throws IOException {
+            this.parser = parser;
+            advance();
+        }
+
+        private void advance() throws IOException {
+            next = null;
+            if (parser != null) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    next = mapper.readValue(parser, Document.class);
+                } else {
+                    parser.close();
+                    parser = null;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Document next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final Document d = next;
+            try {
+                advance();
+            } catch (IOException x) {
+                throw new RuntimeException(x);
+            }
+            return d;
+        }
+
+        @Override
+        public void close() throws IOException {
+            next = null;
+            if (parser != null) {
+                parser.close();
+                parser = null;
+            }
+        }
+    }
+}
@@ -276,37 +276,7 @@ public class Taxonomy implements SaffronGraph<TaxoLink> {
      * @throws RuntimeException - if either child or new parent term do not exist in this taxonomy
      */
     public void updateParent(String termChild, String termNewParent) {
-		/*
-		 * 1 - Verify if child exists, otherwise throw Exception
-		 * 2 - Find new parent. If parent is child of termChild then throw InvalidOperationException.
-		 * 3 - Remove termChild and its branch from older parent
-		 * 4 - Add termChild and its branch to the new parent.
-		 */
-
-    	if (termChild == null || termChild.equals(""))
-    		throw new InvalidValueException("The term child parameter cannot be null or empty");
-
-    	if (termNewParent == null || termNewParent.equals(""))
-    		throw new InvalidValueException("The new parent parameter cannot be null or empty");
-
-    	// 1 - Verify if child exists, otherwise throw Exception
-    	Taxonomy child = this.descendent(termChild);
-    	if (child == null)
-    		throw new RuntimeException("The child term '" + termChild + "' does not exist in this taxonomy");
-
-    	// 2 - Find new parent. If parent is child of termChild then throw InvalidOperationException.
-    	if (child.descendent(termNewParent) != null)
-    		throw new InvalidOperationException("The new parent '" + termNewParent + "' cannot be a descendent of the term '" + termChild+ "'.");
-    	Taxonomy newParent = this.descendent(termNewParent);
-    	if (newParent == null)
-    		throw new RuntimeException("The parent term '" + termNewParent + "' does not exist in this taxonomy");
-
-    	// 3 - Remove termChild and its branch from older parent
-    	Taxonomy oldParent = this.getParent(termChild);
-    	oldParent.removeChildBranch(termChild);
-
-    	// 4 - Add termChild and its branch to the new parent
-    	newParent.addChild(child);
+    	new TaxonomyIndex(this).updateParent(termChild, termNewParent);
     }
 
     /**
@@ -0,0 +1,206 @@
+package org.insightcentre.nlp.saffron.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import org.insightcentre.nlp.saffron.exceptions.InvalidOperationException;
+import org.insightcentre.nlp.saffron.exceptions.InvalidValueException;
+
+/**
+ * An index of the nodes of a taxonomy, so that the node of a term, its parent
+ * and whether one term is below another are found without searching the
+ * whole taxonomy.
+ *
+ * Each node is labelled with the interval of the positions of its subtree in
+ * a depth-first traversal of the taxonomy, so a term is below another if its
+ * position lies in the interval of the other. The index is a view of the
+ * taxonomy as it was when the index was created, except for the moves made
+ * with {@link #updateParent(String, String)}, after which the ancestors are
+ * found by following the parents instead. If the taxonomy is changed in any
+ * other way, the index must be created again.
+ *
+ * If a term occurs more than once, the index refers to its first occurrence
+ * in the depth-first traversal, as {@link Taxonomy#descendent(String)} does.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class TaxonomyIndex {
+
+    private final Taxonomy taxonomy;
+    private final HashMap<String, Taxonomy> nodes = new HashMap<>();
+    private final IdentityHashMap<Taxonomy, Taxonomy> parents = new IdentityHashMap<>();
+    private final IdentityHashMap<Taxonomy, int[]> intervals = new IdentityHashMap<>();
+    private boolean moved = false;
+
+    /**
+     * Index a taxonomy
+     *
+     * @param taxonomy The taxonomy
+     */
+    public TaxonomyIndex(Taxonomy taxonomy) {
+        this.taxonomy = taxonomy;
+        // An iterative traversal, as taxonomies may be deeper than the stack
+        final List<Taxonomy> stack = new ArrayList<>();
+        final List<Integer> next = new ArrayList<>();
+        int position = 0;
+        stack.add(taxonomy);
+        next.add(0);
+        intervals.put(taxonomy, new int[]{position++, 0});
+        nodes.put(taxonomy.root, taxonomy);
+        while (!stack.isEmpty()) {
+            final int top = stack.size() - 1;
+            final Taxonomy t = stack.get(top);
+            final int i = next.get(top);
+            if (i < t.children.size()) {
+                next.set(top, i + 1);
+                final Taxonomy c = t.children.get(i);
+                parents.put(c, t);
+                intervals.put(c, new int[]{position++, 0});
+                nodes.putIfAbsent(c.root, c);
+                stack.add(c);
+                next.add(0);
+            } else {
+                intervals.get(t)[1] = position - 1;
+                stack.remove(top);
+                next.remove(top);
+            }
+        }
+    }
+
+    /**
+     * The taxonomy this indexes
+     *
+     * @return The taxonomy
+     */
+    public Taxonomy getTaxonomy() {
+        return taxonomy;
+    }
+
+    /**
+     * The number of distinct terms in the taxonomy
+     *
+     * @return The number of terms
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Is a term anywhere in the taxonomy
+     *
+     * @param term The term
+     * @return True if the term is in the taxonomy
+     */
+    public boolean contains(String term) {
+        return nodes.containsKey(term);
+    }
+
+    /**
+     * Get the node of a term
+     *
+     * @param term The term
+     * @return The taxonomy whose root is the term or null if the term is not
+     * in the taxonomy
+     */
+    public Taxonomy get(String term) {
+        return nodes.get(term);
+    }
+
+    /**
+     * Get the parent of a term
+     *
+     * @param term The term
+     * @return The parent of the term or null if the term is the root or is not
+     * in the taxonomy
+     */
+    public Taxonomy getParent(String term) {
+        final Taxonomy t = nodes.get(term);
+        return t == null ? null : parents.get(t);
+    }
+
+    /**
+     * Get the terms above a term
+     *
+     * @param term The term
+     * @return The terms from the root to the parent of the term, or an empty
+     * list if the term is the root or is not in the taxonomy
+     */
+    public List<String> getAncestors(String term) {
+        final Taxonomy t = nodes.get(term);
+        if (t == null) {
+            return Collections.emptyList();
+        }
+        final List<String> ancestors = new ArrayList<>();
+        for (Taxonomy p = parents.get(t); p != null; p = parents.get(p)) {
+            ancestors.add(p.root);
+        }
+        Collections.reverse(ancestors);
+        return ancestors;
+    }
+
+    /**
+     * Is a term below another term (or the same term)
+     *
+     * @param ancestor The term that may be above
+     * @param term The term that may be below
+     * @return True if both terms are in the taxonomy and term is ancestor or
+     * one of its descendents
+     */
+    public boolean isAncestor(String ancestor, String term) {
+        final Taxonomy a = nodes.get(ancestor);
+        final Taxonomy t = nodes.get(term);
+        return a != null && t != null && isAncestor(a, t);
+    }
+
+    private boolean isAncestor(Taxonomy a, Taxonomy t) {
+        if (!moved) {
+            final int[] ai = intervals.get(a);
+            final int position = intervals.get(t)[0];
+            return ai[0] <= position && position <= ai[1];
+        }
+        for (Taxonomy p = t; p != null; p = parents.get(p)) {
+            if (p == a) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Update the parent of a term in the taxonomy and in this index, as
+     * {@link Taxonomy#updateParent(String, String)}
+     *
+     * @param termChild - the term to be moved to a new parent
+     * @param termNewParent - the new parent term
+     *
+     * @throws InvalidValueException - if any parameter is either {@code null} or an empty string
+     * @throws InvalidOperationException - if the new parent is a descendant of the termChild
+     * @throws RuntimeException - if either child or new parent term do not exist in this taxonomy
+     */
+    public void updateParent(String termChild, String termNewParent) {
+        if (termChild == null || termChild.equals("")) {
+            throw new InvalidValueException("The term child parameter cannot be null or empty");
+        }
+        if (termNewParent == null || termNewParent.equals("")) {
+            throw new InvalidValueException("The new parent parameter cannot be null or empty");
+        }
+        final Taxonomy child = nodes.get(termChild);
+        if (child == null) {
+            throw new RuntimeException("The child term '" + termChild + "' does not exist in this taxonomy");
+        }
+        final Taxonomy newParent = nodes.get(termNewParent);
+        if (newParent != null && isAncestor(child, newParent)) {
+            throw new InvalidOperationException("The new parent '" + termNewParent + "' cannot be a descendent of the term '" + termChild + "'.");
+        }
+        if (newParent == null) {
+            throw new RuntimeException("The parent term '" + termNewParent + "' does not exist in this taxonomy");
+        }
+        final Taxonomy oldParent = parents.get(child);
+        oldParent.removeChildBranch(termChild);
+        newParent.children.add(child);
+        parents.put(child, newParent);
+        moved = true;
+    }
+}
@@ -0,0 +1,612 @@
+package org.insightcentre.nlp.saffron.data.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.insightcentre.nlp.saffron.data.Author;
+import org.insightcentre.nlp.saffron.data.Corpus;
+import org.insightcentre.nlp.saffron.data.Document;
+import org.insightcentre.nlp.saffron.data.SaffronPath;
+
+/**
+ * A corpus stored in a binary file, which is memory-mapped so that opening
+ * the corpus reads only the index and the contents of a document are read
+ * only when they are needed.
+ *
+ * The file starts with a header, followed by one record per document and then
+ * the index and a trailer that points to the index. Each record holds the
+ * metadata of a document followed by its contents. The index lists the
+ * identifier and offset of the record of each document in the order of the
+ * corpus. Updating documents appends new records, a new index and a new
+ * trailer to the end of the file, so nothing already written is changed. If an
+ * update did not complete, the corpus is opened as it was before the update.
+ *
+ * The JSON format of {@link org.insightcentre.nlp.saffron.data.CollectionCorpus}
+ * remains the format for exchanging corpora; a binary corpus is written as
+ * JSON with the contents of all documents.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class BinaryCorpus implements DocumentSearcher {
+
+    private static final int MAGIC = 0x53414643; // SAFC
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 12;
+    /**
+     * The size of the segments the file is mapped in (a single mapping may
+     * not be larger than 2GB)
+     */
+    static final int SEGMENT_SIZE = 1 << 30;
+
+    private final File file;
+    private final int segmentSize;
+    private MappedByteBuffer[] segments;
+    /**
+     * The end of the last complete trailer
+     */
+    private long end;
+    private final List<String> ids = new ArrayList<>();
+    private long[] offsets = new long[0];
+    private final HashMap<String, Integer> positions = new HashMap<>();
+
+    /**
+     * Open a binary corpus mapped in segments of the given size
+     *
+     * @param file The file
+     * @param segmentSize The size of the segments the file is mapped in
+     * @throws IOException If the file could not be read or is not a binary
+     * corpus
+     */
+    BinaryCorpus(File file, int segmentSize) throws IOException {
+        this.file = file;
+        this.segmentSize = segmentSize;
+        map();
+    }
+
+    /**
+     * Open a binary corpus
+     *
+     * @param file The file
+     * @return The corpus
+     * @throws IOException If the file could not be read or is not a binary
+     * corpus
+     */
+    public static BinaryCorpus open(File file) throws IOException {
+        return new BinaryCorpus(file, SEGMENT_SIZE);
+    }
+
+    /**
+     * Write a corpus to a binary file, replacing the file if it exists. The
+     * documents of the corpus are read only once. The corpus is written to a
+     * temporary file first, so the corpus may be read from the file it
+     * replaces
+     *
+     * @param file The file to write
+     * @param corpus The corpus
+     * @return The binary corpus that was written
+     * @throws IOException If the file could not be written
+     */
+    public static BinaryCorpus write(File file, Corpus corpus) throws IOException {
+        final File tmp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            writeFully(channel, header);
+            final List<String> ids = new ArrayList<>();
+            final List<Long> offsets = new ArrayList<>();
+            final HashMap<String, Integer> positions = new HashMap<>();
+            for (Document d : corpus.getDocuments()) {
+                final long offset = channel.position();
+                writeFully(channel, encode(d));
+                final Integer i = positions.get(d.id);
+                if (i != null) {
+                    offsets.set(i, offset);
+                } else {
+                    positions.put(d.id, ids.size());
+                    ids.add(d.id);
+                    offsets.add(offset);
+                }
+            }
+            final long[] offs = new long[offsets.size()];
+            for (int i = 0; i < offs.length; i++) {
+                offs[i] = offsets.get(i);
+            }
+            writeIndex(channel, ids, offs);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return new BinaryCorpus(file, SEGMENT_SIZE);
+    }
+
+    /**
+     * Check if a file is a binary corpus
+     *
+     * @param file The file
+     * @return True if the file starts with the header of a binary corpus
+     */
+    public static boolean isBinaryCorpus(File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE + TRAILER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            return header.remaining() == HEADER_SIZE && header.getInt() == MAGIC;
+        } catch (IOException x) {
+            return false;
+        }
+    }
+
+    /**
+     * Map the file and read its index
+     */
+    private void map() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException(file.getName() + " is not a binary corpus");
+            }
+            final MappedByteBuffer[] segs = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+            for (int i = 0; i < segs.length; i++) {
+                final long start = (long) i * segmentSize;
+                segs[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+            }
+            final Cursor c = new Cursor(segs, segmentSize, 0);
+            if (c.readInt() != MAGIC) {
+                throw new IOException(file.getName() + " is not a binary corpus");
+            }
+            if (c.readInt() != VERSION) {
+                throw new IOException(file.getName() + " was written by an unsupported version of Saffron");
+            }
+            long trailer = size - TRAILER_SIZE;
+            // An update that did not complete leaves part of a new record,
+            // index or trailer after the last complete trailer
+            while (!readIndex(c, trailer)) {
+                do {
+                    trailer--;
+                } while (trailer >= HEADER_SIZE && !isMagic(c, trailer + 8));
+                if (trailer < HEADER_SIZE) {
+                    throw new IOException(file.getName() + " is not a complete binary corpus");
+                }
+            }
+            this.segments = segs;
+            this.end = trailer + TRAILER_SIZE;
+        }
+    }
+
+    private static boolean isMagic(Cursor c, long pos) {
+        c.pos = pos;
+        return c.readInt() == MAGIC;
+    }
+
+    /**
+     * Read the index that the trailer at a position points to
+     *
+     * @return False if there is no valid trailer and index at this position
+     */
+    private boolean readIndex(Cursor c, long trailer) {
+        if (trailer < HEADER_SIZE || !isMagic(c, trailer + 8)) {
+            return false;
+        }
+        c.pos = trailer;
+        final long idxOffset = c.readLong();
+        if (idxOffset < HEADER_SIZE || idxOffset > trailer - 4) {
+            return false;
+        }
+        c.pos = idxOffset;
+        final int n = c.readInt();
+        if (n < 0 || n > (trailer - c.pos) / 12) {
+            return false;
+        }
+        final long[] offs = new long[n];
+        final List<String> newIds = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (c.pos + 4 > trailer) {
+                return false;
+            }
+            final int length = c.readInt();
+            if (length < 0 || length > trailer - c.pos - 8) {
+                return false;
+            }
+            final byte[] b = new byte[length];
+            c.read(b);
+            newIds.add(new String(b, StandardCharsets.UTF_8));
+            offs[i] = c.readLong();
+            if (offs[i] < HEADER_SIZE || offs[i] >= idxOffset) {
+                return false;
+            }
+        }
+        if (c.pos != trailer) {
+            return false;
+        }
+        ids.clear();
+        positions.clear();
+        for (int i = 0; i < n; i++) {
+            positions.put(newIds.get(i), i);
+            ids.add(newIds.get(i));
+        }
+        this.offsets = offs;
+        return true;
+    }
+
+    @Override
+    public Iterable<Document> getDocuments() {
+        final MappedByteBuffer[] segs;
+        final long[] offs;
+        synchronized (this) {
+            segs = segments;
+            offs = offsets;
+        }
+        return new Iterable<Document>() {
+            @Override
+            public Iterator<Document> iterator() {
+                return new Iterator<Document>() {
+                    int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < offs.length;
+                    }
+
+                    @Override
+                    public Document next() {
+                        if (i >= offs.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return decode(segs, offs[i++]);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Get a document by its identifier
+     *
+     * @param id The identifier of the document
+     * @return The document or null if there is no document with this
+     * identifier
+     */
+    public Document getDocument(String id) {
+        final MappedByteBuffer[] segs;
+        final long offset;
+        synchronized (this) {
+            final Integer i = positions.get(id);
+            if (i == null) {
+                return null;
+            }
+            segs = segments;
+            offset = offsets[i];
+        }
+        return decode(segs, offset);
+    }
+
+    @Override
+    public synchronized int size() {
+        return offsets.length;
+    }
+
+    @Override
+    public Iterable<Document> search(String searchTerm) throws SearchException {
+        final String term = searchTerm.toLowerCase();
+        final List<Document> result = new ArrayList<>();
+        for (Document d : getDocuments()) {
+            if (d.contents().toLowerCase().contains(term)) {
+                result.add(d);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replace a set of documents in the corpus. Documents with a new
+     * identifier are added to the end of the corpus. The previous records
+     * and index are kept in the file, but are no longer used
+     *
+     * @param docs List of documents to update
+     */
+    @Override
+    public synchronized void updateDocuments(Collection<Document> docs) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            try {
+                // Remove what is left of an update that did not complete
+                if (channel.size() > end) {
+                    channel.truncate(end);
+                }
+                channel.position(end);
+                final List<String> newIds = new ArrayList<>(ids);
+                long[] newOffsets = Arrays.copyOf(offsets, offsets.length + docs.size());
+                final HashMap<String, Integer> newPositions = new HashMap<>(positions);
+                for (Document d : docs) {
+                    final long offset = channel.position();
+                    writeFully(channel, encode(d));
+                    final Integer i = newPositions.get(d.id);
+                    if (i != null) {
+                        newOffsets[i] = offset;
+                    } else {
+                        newPositions.put(d.id, newIds.size());
+                        newOffsets[newIds.size()] = offset;
+                        newIds.add(d.id);
+                    }
+                }
+                newOffsets = Arrays.copyOf(newOffsets, newIds.size());
+                writeIndex(channel, newIds, newOffsets);
+                channel.force(false);
+            } catch (IOException | RuntimeException x) {
+                // Remove the incomplete update, so the file is as it was before
+                channel.truncate(end);
+                throw x;
+            }
+        } catch (IOException x) {
+            throw new RuntimeException(x);
+        }
+        try {
+            map();
+        } catch (IOException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * Release the mapping of the file. Documents already read may still load
+     * their contents
+     */
+    @Override
+    public synchronized void close() {
+        segments = new MappedByteBuffer[0];
+        offsets = new long[0];
+        ids.clear();
+        positions.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    private static void writeIndex(FileChannel channel, List<String> ids, long[] offsets) throws IOException {
+        final long idxOffset = channel.position();
+        final Encoder e = new Encoder();
+        e.putInt(ids.size());
+        for (int i = 0; i < offsets.length; i++) {
+            e.putString(ids.get(i));
+            e.putLong(offsets[i]);
+        }
+        e.putLong(idxOffset);
+        e.putInt(MAGIC);
+        writeFully(channel, e.toBuffer());
+    }
+
+    /**
+     * Encode the record of a document
+     */
+    private static ByteBuffer encode(Document d) {
+        final Encoder e = new Encoder();
+        e.putString(d.id);
+        e.putString(d.file == null ? null : d.file.getPath());
+        e.putString(d.url == null ? null : d.url.toString());
+        e.putString(d.name);
+        e.putString(d.mimeType);
+        e.putString(d.date == null ? null : d.date.toString());
+        e.putInt(d.authors.size());
+        for (Author a : d.authors) {
+            e.putString(a.id);
+            e.putString(a.name);
+            if (a.nameVariants == null) {
+                e.putInt(-1);
+            } else {
+                e.putInt(a.nameVariants.size());
+                for (String v : a.nameVariants) {
+                    e.putString(v);
+                }
+            }
+        }
+        e.putInt(d.metadata.size());
+        for (Map.Entry<String, String> m : d.metadata.entrySet()) {
+            e.putString(m.getKey());
+            e.putString(m.getValue());
+        }
+        e.putString(d.getContents());
+        return e.toBuffer();
+    }
+
+    /**
+     * Decode the record of a document, without reading its contents
+     */
+    private Document decode(MappedByteBuffer[] segs, long offset) {
+        final Cursor c = new Cursor(segs, segmentSize, offset);
+        final String id = c.readString();
+        final String file = c.readString();
+        final String url = c.readString();
+        final String name = c.readString();
+        final String mimeType = c.readString();
+        final String date = c.readString();
+        final int nAuthors = c.readInt();
+        final List<Author> authors = new ArrayList<>(nAuthors);
+        for (int i = 0; i < nAuthors; i++) {
+            final String authorId = c.readString();
+            final String authorName = c.readString();
+            final int nVariants = c.readInt();
+            Set<String> variants = null;
+            if (nVariants >= 0) {
+                variants = new HashSet<>();
+                for (int j = 0; j < nVariants; j++) {
+                    variants.add(c.readString());
+                }
+            }
+            authors.add(new Author(authorId, authorName, variants));
+        }
+        final int nMetadata = c.readInt();
+        final Map<String, String> metadata = new HashMap<>();
+        for (int i = 0; i < nMetadata; i++) {
+            metadata.put(c.readString(), c.readString());
+        }
+        final int contentLength = c.readInt();
+        URL u = null;
+        if (url != null) {
+            try {
+                u = new URL(url);
+            } catch (MalformedURLException x) {
+                throw new RuntimeException(x);
+            }
+        }
+        final Document d = new Document(file == null ? null : new SaffronPath(file), id, u,
+                name, mimeType, authors, metadata, null,
+                date == null ? null : LocalDateTime.parse(date));
+        if (contentLength >= 0) {
+            d.withLoader(new Mapped(segs, segmentSize, c.pos, contentLength));
+        }
+        return d;
+    }
+
+    /**
+     * The contents of a document in the mapped file
+     */
+    private static class Mapped implements Document.Loader {
+
+        private final MappedByteBuffer[] segments;
+        private final int segmentSize;
+        private final long offset;
+        private final int length;
+
+        public Mapped(MappedByteBuffer[] segments, int segmentSize, long offset, int length) {
+            this.segments = segments;
+            this.segmentSize = segmentSize;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public String getContents(Document d) {
+            final byte[] b = new byte[length];
+            new Cursor(segments, segmentSize, offset).read(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String getContentsSerializable(Document d) {
+            return getContents(d);
+        }
+    }
+
+    /**
+     * Writes the values of a record
+     */
+    private static class Encoder {
+
+        private ByteBuffer buf = ByteBuffer.allocate(256);
+
+        private void ensure(int n) {
+            if (buf.remaining() < n) {
+                final ByteBuffer b = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + n));
+                buf.flip();
+                b.put(buf);
+                buf = b;
+            }
+        }
+
+        void putInt(int i) {
+            ensure(4);
+            buf.putInt(i);
+        }
+
+        void putLong(long l) {
+            ensure(8);
+            buf.putLong(l);
+        }
+
+        void putString(String s) {
+            if (s == null) {
+                putInt(-1);
+            } else {
+                final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                putInt(b.length);
+                ensure(b.length);
+                buf.put(b);
+            }
+        }
+
+        ByteBuffer toBuffer() {
+            buf.flip();
+            return buf;
+        }
+    }
+
+    /**
+     * Reads values from the mapped file, across the boundaries of segments
+     */
+    private static class Cursor {
+
+        private final MappedByteBuffer[] segments;
+        private final int segmentSize;
+        long pos;
+
+        public Cursor(MappedByteBuffer[] segments, int segmentSize, long pos) {
+            this.segments = segments;
+            this.segmentSize = segmentSize;
+            this.pos = pos;
+        }
+
+        void read(byte[] b) {
+            int off = 0;
+            while (off < b.length) {
+                final int s = (int) (pos / segmentSize);
+                if (s >= segments.length) {
+                    throw new IndexOutOfBoundsException("Read past the end of the corpus");
+                }
+                final ByteBuffer seg = segments[s].duplicate();
+                ((Buffer) seg).position((int) (pos % segmentSize));
+                final int n = Math.min(b.length - off, seg.remaining());
+                seg.get(b, off, n);
+                off += n;
+                pos += n;
+            }
+        }
+
+        int readInt() {
+            final byte[] b = new byte[4];
+            read(b);
+            return ByteBuffer.wrap(b).getInt();
+        }
+
+        long readLong() {
+            final byte[] b = new byte[8];
+            read(b);
+            return ByteBuffer.wrap(b).getLong();
+        }
+
+        String readString() {
+            final int n = readInt();
+            if (n < 0) {
+                return null;
+            }
+            final byte[] b = new byte[n];
+            read(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    }
+}
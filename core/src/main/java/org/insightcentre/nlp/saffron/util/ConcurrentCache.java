@@ -0,0 +1,398 @@
+package org.insightcentre.nlp.saffron.util;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread-safe LRU cache. The keys are spread over segments, each with its
+ * own lock and recency list, so that threads reading different keys seldom
+ * wait for each other and evicting an entry takes constant time. If several
+ * threads miss on the same key, the value is computed only once and the other
+ * threads wait for it.
+ *
+ * The size of the cache is limited either by the number of entries or by
+ * the total weight of the entries, as given by a {@link Weigher}. The limit
+ * is divided evenly between the segments.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public class ConcurrentCache<K, V> {
+
+    /**
+     * Calculates the weight of an entry of the cache
+     *
+     * @param <K> The key type
+     * @param <V> The value type
+     */
+    public static interface Weigher<K, V> {
+
+        /**
+         * The weight of an entry
+         *
+         * @param key The key
+         * @param value The value
+         * @return The weight, which should be positive
+         */
+        public long weigh(K key, V value);
+    }
+
+    private final Segment<K, V>[] segments;
+    private final Weigher<? super K, ? super V> weigher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a cache limited by the number of entries
+     *
+     * @param capacity The maximum number of entries
+     */
+    public ConcurrentCache(int capacity) {
+        this(capacity, new Weigher<K, V>() {
+            @Override
+            public long weigh(K key, V value) {
+                return 1;
+            }
+        });
+    }
+
+    /**
+     * Create a cache limited by the weight of the entries
+     *
+     * @param maxWeight The maximum total weight of the entries
+     * @param weigher The weight of each entry
+     */
+    public ConcurrentCache(long maxWeight, Weigher<? super K, ? super V> weigher) {
+        this(maxWeight, weigher, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a cache limited by the weight of the entries
+     *
+     * @param maxWeight The maximum total weight of the entries
+     * @param weigher The weight of each entry
+     * @param concurrency The number of threads expected to use the cache at
+     * once, the number of segments is at least this
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentCache(long maxWeight, Weigher<? super K, ? super V> weigher, int concurrency) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("The size of the cache must be positive");
+        }
+        int n = 1;
+        while (n < concurrency && n < maxWeight) {
+            n *= 2;
+        }
+        if (n > maxWeight) {
+            // Each segment can hold at least one entry
+            n /= 2;
+        }
+        this.segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment<>(maxWeight / n + (i < maxWeight % n ? 1 : 0));
+        }
+        this.weigher = weigher;
+    }
+
+    private Segment<K, V> segment(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    /**
+     * Get the value for the key or use load to compute it. If another thread
+     * is already computing the value for this key, this waits for that value.
+     * An exception thrown by load is thrown to all the threads waiting for the
+     * value and the value is not cached
+     *
+     * @param key The key
+     * @param load The value computer
+     * @return The result of load.apply(key) possibly from the cache
+     */
+    public V get(K key, Function<? super K, ? extends V> load) {
+        final Segment<K, V> segment = segment(key);
+        final Node<K, V> existing;
+        final Node<K, V> node;
+        synchronized (segment) {
+            existing = segment.map.get(key);
+            if (existing != null) {
+                hits.increment();
+                if (existing.linked()) {
+                    segment.moveToFront(existing);
+                }
+                node = null;
+            } else {
+                misses.increment();
+                node = new Node<>(key);
+                segment.map.put(key, node);
+            }
+        }
+        if (existing != null) {
+            if (existing.loader == Thread.currentThread()) {
+                throw new IllegalStateException("The value for " + key + " is needed to compute itself");
+            }
+            return await(existing);
+        }
+        final V value;
+        try {
+            value = load.apply(key);
+        } catch (RuntimeException | Error x) {
+            synchronized (segment) {
+                segment.map.remove(key, node);
+            }
+            node.loader = null;
+            node.future.completeExceptionally(x);
+            throw x;
+        }
+        node.loader = null;
+        node.future.complete(value);
+        final long weight = weigher.weigh(key, value);
+        synchronized (segment) {
+            if (segment.map.get(key) == node) {
+                node.weight = weight;
+                segment.addToFront(node);
+                evictions.add(segment.evict());
+            }
+        }
+        return value;
+    }
+
+    private static <V> V await(Node<?, V> node) {
+        try {
+            return node.future.get();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(x);
+        } catch (ExecutionException x) {
+            if (x.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) x.getCause();
+            } else if (x.getCause() instanceof Error) {
+                throw (Error) x.getCause();
+            }
+            throw new CompletionException(x.getCause());
+        }
+    }
+
+    /**
+     * Get the value for a key if it is in the cache (and has finished
+     * loading)
+     *
+     * @param key The key
+     * @return The value or null if it is not in the cache
+     */
+    public V getIfPresent(K key) {
+        final Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            final Node<K, V> n = segment.map.get(key);
+            if (n != null && n.linked()) {
+                hits.increment();
+                segment.moveToFront(n);
+                return n.future.getNow(null);
+            }
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Remove a key from the cache
+     *
+     * @param key The key
+     */
+    public void invalidate(K key) {
+        final Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            final Node<K, V> n = segment.map.remove(key);
+            if (n != null && n.linked()) {
+                segment.unlink(n);
+            }
+        }
+    }
+
+    /**
+     * Invalidate the whole cache
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+                segment.head.next = segment.head.prev = segment.head;
+                segment.weight = 0;
+            }
+        }
+    }
+
+    /**
+     * The number of currently cached values
+     *
+     * @return The number of values
+     */
+    public int size() {
+        int n = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                n += segment.map.size();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * The total weight of the currently cached values
+     *
+     * @return The weight
+     */
+    public long weight() {
+        long w = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                w += segment.weight;
+            }
+        }
+        return w;
+    }
+
+    /**
+     * The statistics of the use of this cache since it was created
+     *
+     * @return The statistics
+     */
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Statistics of the use of a cache
+     */
+    public static class Stats {
+
+        private final long hits, misses, evictions;
+
+        public Stats(long hits, long misses, long evictions) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        /**
+         * The number of lookups that found a value in the cache (including
+         * those that waited for another thread to load it)
+         *
+         * @return The number of hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * The number of lookups that did not find a value in the cache
+         *
+         * @return The number of misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * The number of values removed to keep the cache within its limit
+         *
+         * @return The number of evictions
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * The proportion of lookups that were hits
+         *
+         * @return The hit rate or 1 if there were no lookups
+         */
+        public double getHitRate() {
+            return hits + misses == 0 ? 1.0 : (double) hits / (hits + misses);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions",
+                    hits, misses, getHitRate() * 100, evictions);
+        }
+    }
+
+    private static final class Node<K, V> {
+
+        final K key;
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        /**
+         * The thread computing the value, which is cleared when the value is
+         * complete so that a cached value does not keep the thread alive
+         */
+        volatile Thread loader = Thread.currentThread();
+        long weight;
+        Node<K, V> prev, next;
+
+        Node(K key) {
+            this.key = key;
+        }
+
+        boolean linked() {
+            return next != null;
+        }
+    }
+
+    private static final class Segment<K, V> {
+
+        final HashMap<K, Node<K, V>> map = new HashMap<>();
+        final Node<K, V> head = new Node<>(null);
+        final long maxWeight;
+        long weight;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+            head.next = head.prev = head;
+        }
+
+        void unlink(Node<K, V> n) {
+            n.prev.next = n.next;
+            n.next.prev = n.prev;
+            n.prev = n.next = null;
+            weight -= n.weight;
+        }
+
+        void addToFront(Node<K, V> n) {
+            n.next = head.next;
+            n.prev = head;
+            head.next.prev = n;
+            head.next = n;
+            weight += n.weight;
+        }
+
+        void moveToFront(Node<K, V> n) {
+            unlink(n);
+            addToFront(n);
+        }
+
+        /**
+         * Remove the least recently used values until the segment is within
+         * its limit, always keeping the most recent value
+         *
+         * @return The number of values removed
+         */
+        int evict() {
+            int n = 0;
+            while (weight > maxWeight && head.prev != head.next) {
+                final Node<K, V> last = head.prev;
+                unlink(last);
+                map.remove(last.key);
+                n++;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.insightcentre.nlp.saffron.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The executor shared by all the stages that process the documents of a
+ * corpus in parallel. The tasks run on a single work-stealing pool, whose
+ * size is a cap on the number of tasks running at once over all the runs in
+ * this JVM (e.g., several jobs started by the web interface).
+ *
+ * The tasks of a stage are submitted to a {@link Batch}, which limits the
+ * number of tasks of the stage waiting or running. When this limit is
+ * reached, the thread submitting tasks waits for a task to finish, rather
+ * than running the task itself, so that it continues to read documents at
+ * the rate they are processed.
+ *
+ * The shared instance is configured by the system properties
+ * {@code saffron.maxThreads} (the size of the pool, by default the number of
+ * processors) and {@code saffron.virtualThreads} (if true, I/O-bound work
+ * such as loading documents is run on virtual threads where the JVM supports
+ * them). Another instance may be installed with {@link #setInstance(SaffronExecutor)}.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class SaffronExecutor {
+
+    private static SaffronExecutor instance;
+
+    private final ForkJoinPool pool;
+    private final ExecutorService io;
+
+    /**
+     * Create an executor
+     *
+     * @param maxThreads The maximum number of tasks that run at once
+     * @param virtualThreads If true, use virtual threads for I/O-bound work
+     * (if the JVM does not support them, the pool is used)
+     */
+    public SaffronExecutor(int maxThreads, boolean virtualThreads) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("The maximum number of threads must be positive");
+        }
+        this.pool = new ForkJoinPool(maxThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.io = virtualThreads ? virtualThreadExecutor() : null;
+    }
+
+    /**
+     * Get the shared executor
+     *
+     * @return The executor
+     */
+    public static synchronized SaffronExecutor getInstance() {
+        if (instance == null) {
+            instance = new SaffronExecutor(
+                    Integer.getInteger("saffron.maxThreads", Runtime.getRuntime().availableProcessors()),
+                    Boolean.getBoolean("saffron.virtualThreads"));
+        }
+        return instance;
+    }
+
+    /**
+     * Replace the shared executor. Batches that were already started continue
+     * to use the previous executor
+     *
+     * @param executor The new shared executor
+     */
+    public static synchronized void setInstance(SaffronExecutor executor) {
+        instance = executor;
+    }
+
+    /**
+     * Create an executor that starts a virtual thread per task, if this
+     * version of Java has them
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            final Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException x) {
+            System.err.println("Virtual threads are not supported by this version of Java, using the shared pool");
+            return null;
+        }
+    }
+
+    /**
+     * The maximum number of tasks that run at once
+     *
+     * @return The size of the pool
+     */
+    public int getMaxThreads() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Whether I/O-bound work is run on virtual threads
+     *
+     * @return True if virtual threads are used
+     */
+    public boolean usesVirtualThreads() {
+        return io != null;
+    }
+
+    /**
+     * Start a batch of CPU-bound tasks
+     *
+     * @param nThreads The maximum number of tasks of this batch that may be
+     * waiting or running at once
+     * @return The batch
+     */
+    public Batch newBatch(int nThreads) {
+        return new Batch(pool, nThreads);
+    }
+
+    /**
+     * Start a batch of I/O-bound tasks, such as reading documents. These run
+     * on virtual threads if enabled, otherwise on the pool
+     *
+     * @param nThreads The maximum number of tasks of this batch that may be
+     * waiting or running at once
+     * @return The batch
+     */
+    public Batch newIOBatch(int nThreads) {
+        return new Batch(io != null ? io : pool, nThreads);
+    }
+
+    /**
+     * A group of tasks whose completion can be awaited. Tasks may be
+     * submitted from only one thread.
+     */
+    public static class Batch {
+
+        private final Executor executor;
+        private final Semaphore permits;
+        private final int size;
+
+        private Batch(Executor executor, int size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("The number of threads must be positive");
+            }
+            this.executor = executor;
+            this.size = size;
+            this.permits = new Semaphore(size);
+        }
+
+        /**
+         * Submit a task, waiting if the maximum number of tasks are already
+         * waiting or running. An exception thrown by the task is printed and
+         * does not stop the other tasks
+         *
+         * @param task The task
+         * @throws InterruptedException If interrupted while waiting
+         */
+        public void submit(final Runnable task) throws InterruptedException {
+            permits.acquire();
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.run();
+                        } catch (Throwable x) {
+                            x.printStackTrace();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                });
+            } catch (RuntimeException x) {
+                permits.release();
+                throw x;
+            }
+        }
+
+        /**
+         * Wait until all the tasks submitted have finished
+         *
+         * @throws InterruptedException If interrupted while waiting
+         */
+        public void await() throws InterruptedException {
+            permits.acquire(size);
+            permits.release(size);
+        }
+    }
+}
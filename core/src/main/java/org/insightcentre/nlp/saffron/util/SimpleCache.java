@@ -9,7 +9,10 @@ import java.util.function.Function;
  * A LRU cache for any objects. Please note that this is NOT thread-safe!
  *
  * @author John McCrae
+ * @deprecated Use {@link ConcurrentCache}, which is thread-safe and evicts in
+ * constant time
  */
+@Deprecated
 public class SimpleCache<E, F> {
 
     private static final class CacheEntry<E> {
@@ -0,0 +1,53 @@
+package org.insightcentre.nlp.saffron.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class ContentCacheTest {
+
+    public ContentCacheTest() {
+    }
+
+    /**
+     * Test of get method, of class ContentCache.
+     */
+    @Test
+    public void testGet() {
+        System.out.println("get");
+        final AtomicInteger loads = new AtomicInteger();
+        final String contents = "0123456789";
+        final long w = ContentCache.weight("a", contents);
+        ContentCache instance = new ContentCache(3 * w);
+        for (String key : new String[]{"a", "b", "c", "a", "d", "b"}) {
+            assertEquals(contents, instance.get(key, k -> {
+                loads.incrementAndGet();
+                return contents;
+            }));
+            assertTrue(instance.getBytes() <= 3 * w);
+        }
+        // "a" was used again before "d" was added, so "b" was evicted
+        assertEquals(5, loads.get());
+        assertEquals(3, instance.size());
+        assertEquals(3 * w, instance.getBytes());
+    }
+
+    /**
+     * Test that contents larger than the budget are not cached
+     */
+    @Test
+    public void testTooLarge() {
+        System.out.println("tooLarge");
+        ContentCache instance = new ContentCache(100);
+        final String contents = new String(new char[1000]);
+        assertEquals(contents, instance.get("a", k -> contents));
+        assertEquals(0, instance.size());
+        assertEquals(0, instance.getBytes());
+    }
+}
@@ -4,7 +4,10 @@ package org.insightcentre.nlp.saffron.data;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -87,4 +90,43 @@ public class DocumentTest {
         mapper.readValue("{\"contents\":\"These are the document contents\",\"id\":\"test\",\"name\":\"Test Document\",\"authors\":[{\"name\":\"Joe Bloggs\"}],\"date\":\"2018-01-01 T15:35\"}", Document.class);
         
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testOnDisk() throws IOException {
+        System.out.println("onDisk");
+        File f = File.createTempFile("doc", ".txt");
+        f.deleteOnExit();
+        Files.write(f.toPath(), "First line\r\nSecond line\rThird line".getBytes(Charset.defaultCharset()));
+        Document document = new Document(SaffronPath.fromFile(f), "test", null, null, null, null, null, null, null);
+        assertEquals("First line\nSecond line\nThird line\n", document.contents());
+        assertEquals(null, document.getContents());
+
+        Files.write(f.toPath(), "Other contents\n\n".getBytes(Charset.defaultCharset()));
+        assertEquals("Other contents\n\n", document.contents());
+
+        Files.write(f.toPath(), new byte[0]);
+        assertEquals("", document.contents());
+    }
+
+    @Test
+    public void testOnDiskCached() throws IOException {
+        System.out.println("onDiskCached");
+        File f = File.createTempFile("doc", ".txt");
+        f.deleteOnExit();
+        Files.write(f.toPath(), "Cached contents\n".getBytes(Charset.defaultCharset()));
+        ContentCache cache = new ContentCache(1 << 20);
+        ContentCache.setInstance(cache);
+        try {
+            Document document = new Document(SaffronPath.fromFile(f), "test", null, null, null, null, null, null, null);
+            assertEquals("Cached contents\n", document.contents());
+            assertEquals("Cached contents\n", document.contents());
+            assertEquals(1, cache.size());
+            // A changed file is read again
+            Files.write(f.toPath(), "New contents\n".getBytes(Charset.defaultCharset()));
+            f.setLastModified(f.lastModified() + 2000);
+            assertEquals("New contents\n", document.contents());
+        } finally {
+            ContentCache.setInstance(null);
+        }
+    }
+}
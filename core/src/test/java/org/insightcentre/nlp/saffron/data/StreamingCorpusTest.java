@@ -0,0 +1,147 @@
+package org.insightcentre.nlp.saffron.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class StreamingCorpusTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public StreamingCorpusTest() {
+    }
+
+    private static List<Document> documents() {
+        return Arrays.asList(
+                new Document(null, "doc1", null, "First", null, Arrays.asList(new Author("Joe Bloggs")),
+                        null, "The first document", null),
+                new Document(null, "doc2", null, null, null, null, null, "The second document", null),
+                new Document(new SaffronPath("doc3.txt"), "doc3", null, null, null, null, null, null, null));
+    }
+
+    private static List<Document> read(Corpus corpus) {
+        List<Document> result = new ArrayList<>();
+        for (Document d : corpus.getDocuments()) {
+            result.add(d);
+        }
+        return result;
+    }
+
+    /**
+     * Test of getDocuments method, of class StreamingCorpus.
+     */
+    @Test
+    public void testGetDocuments() throws IOException {
+        System.out.println("getDocuments");
+        File f = File.createTempFile("corpus", ".json");
+        f.deleteOnExit();
+        String docs = mapper.writeValueAsString(documents());
+        Files.write(f.toPath(), ("{\"before\":{\"documents\":[1,2]},\"documents\":" + docs
+                + ",\"after\":[{}]}").getBytes(StandardCharsets.UTF_8));
+        StreamingCorpus instance = new StreamingCorpus(f);
+        assertEquals(3, instance.size());
+        List<Document> result = read(instance);
+        assertEquals(documents(), result);
+        assertEquals("The second document", result.get(1).contents());
+        // The corpus may be iterated again
+        assertEquals(documents(), read(instance));
+    }
+
+    /**
+     * Test of a gzipped corpus
+     */
+    @Test
+    public void testGzip() throws IOException {
+        System.out.println("gzip");
+        File f = File.createTempFile("corpus", ".json.gz");
+        f.deleteOnExit();
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(f))) {
+            mapper.writeValue(out, new CollectionCorpus(documents()));
+        }
+        StreamingCorpus instance = new StreamingCorpus(f);
+        assertEquals(3, instance.size());
+        assertEquals(documents(), read(instance));
+        // The same as the corpus read as a whole
+        try (InputStream in = new GZIPInputStream(new FileInputStream(f))) {
+            assertEquals(read(mapper.readValue(in, CollectionCorpus.class)), read(instance));
+        }
+    }
+
+    /**
+     * Test of a corpus without documents
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        System.out.println("empty");
+        File f = File.createTempFile("corpus", ".json");
+        f.deleteOnExit();
+        Files.write(f.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+        StreamingCorpus instance = new StreamingCorpus(f);
+        assertEquals(0, instance.size());
+        assertEquals(new ArrayList<Document>(), read(instance));
+    }
+
+    /**
+     * Is a file open in this process, as listed in /proc/self/fd
+     */
+    private static boolean isOpen(File f) throws IOException {
+        final Path target = f.toPath().toRealPath();
+        try (DirectoryStream<Path> fds = Files.newDirectoryStream(Paths.get("/proc/self/fd"))) {
+            for (Path fd : fds) {
+                try {
+                    if (Files.readSymbolicLink(fd).equals(target)) {
+                        return true;
+                    }
+                } catch (IOException x) {
+                    // The descriptor was closed while listing
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Test that an iteration that is abandoned releases the file when it is
+     * closed
+     */
+    @Test
+    public void testAbandoned() throws IOException {
+        System.out.println("abandoned");
+        Assume.assumeTrue(new File("/proc/self/fd").isDirectory());
+        File f = File.createTempFile("corpus", ".json");
+        f.deleteOnExit();
+        mapper.writeValue(f, documents());
+        StreamingCorpus instance = new StreamingCorpus(f);
+        Iterator<Document> docs = instance.getDocuments().iterator();
+        assertEquals("doc1", docs.next().id);
+        assertTrue(isOpen(f));
+        Corpus.close(docs);
+        assertFalse(isOpen(f));
+        assertFalse(docs.hasNext());
+    }
+}
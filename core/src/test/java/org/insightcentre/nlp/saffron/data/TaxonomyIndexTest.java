@@ -0,0 +1,128 @@
+package org.insightcentre.nlp.saffron.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import org.insightcentre.nlp.saffron.exceptions.InvalidOperationException;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class TaxonomyIndexTest {
+
+    public TaxonomyIndexTest() {
+    }
+
+    private static Taxonomy node(String root, Taxonomy... children) {
+        return new Taxonomy(root, 0.0, 0.0, new ArrayList<>(Arrays.asList(children)), Status.none);
+    }
+
+    /**
+     * root
+     * - a
+     * - - a1
+     * - - a2
+     * - - - a21
+     * - b
+     * - - b1
+     */
+    private static Taxonomy sample() {
+        return node("root",
+                node("a", node("a1"), node("a2", node("a21"))),
+                node("b", node("b1")));
+    }
+
+    /**
+     * Test of get and getParent methods, of class TaxonomyIndex.
+     */
+    @Test
+    public void testLookup() {
+        System.out.println("lookup");
+        Taxonomy taxo = sample();
+        TaxonomyIndex instance = new TaxonomyIndex(taxo);
+        assertEquals(7, instance.size());
+        assertTrue(instance.contains("a21"));
+        assertFalse(instance.contains("c"));
+        assertSame(taxo.descendent("a2"), instance.get("a2"));
+        assertNull(instance.get("c"));
+        assertEquals("a", instance.getParent("a2").root);
+        assertNull(instance.getParent("root"));
+        assertNull(instance.getParent("c"));
+    }
+
+    /**
+     * Test of getAncestors and isAncestor methods, of class TaxonomyIndex.
+     */
+    @Test
+    public void testAncestors() {
+        System.out.println("ancestors");
+        TaxonomyIndex instance = new TaxonomyIndex(sample());
+        assertEquals(Arrays.asList("root", "a", "a2"), instance.getAncestors("a21"));
+        assertEquals(Collections.emptyList(), instance.getAncestors("root"));
+        assertEquals(Collections.emptyList(), instance.getAncestors("c"));
+        assertTrue(instance.isAncestor("root", "b1"));
+        assertTrue(instance.isAncestor("a", "a21"));
+        assertTrue(instance.isAncestor("a2", "a2"));
+        assertFalse(instance.isAncestor("a21", "a"));
+        assertFalse(instance.isAncestor("b", "a1"));
+        assertFalse(instance.isAncestor("a1", "a2"));
+        assertFalse(instance.isAncestor("c", "a"));
+    }
+
+    /**
+     * Test of updateParent method, of class TaxonomyIndex.
+     */
+    @Test
+    public void testUpdateParent() {
+        System.out.println("updateParent");
+        Taxonomy taxo = sample();
+        TaxonomyIndex instance = new TaxonomyIndex(taxo);
+        instance.updateParent("a2", "b1");
+        assertEquals(1, taxo.descendent("a").children.size());
+        assertEquals("a2", taxo.descendent("b1").children.get(0).root);
+        assertEquals(Arrays.asList("root", "b", "b1", "a2"), instance.getAncestors("a21"));
+        assertTrue(instance.isAncestor("b", "a21"));
+        assertFalse(instance.isAncestor("a", "a21"));
+        // The index agrees with a new index of the modified taxonomy
+        TaxonomyIndex rebuilt = new TaxonomyIndex(taxo);
+        assertEquals(rebuilt.getAncestors("a21"), instance.getAncestors("a21"));
+    }
+
+    /**
+     * Test of updateParent method, of class TaxonomyIndex, with a cycle.
+     */
+    @Test(expected = InvalidOperationException.class)
+    public void testUpdateParentDescendent() {
+        System.out.println("updateParentDescendent");
+        TaxonomyIndex instance = new TaxonomyIndex(sample());
+        instance.updateParent("a2", "b1");
+        instance.updateParent("b", "a21");
+    }
+
+    /**
+     * Test that deep taxonomies can be indexed.
+     */
+    @Test
+    public void testDeep() {
+        System.out.println("deep");
+        Taxonomy taxo = node("t0");
+        Taxonomy t = taxo;
+        for (int i = 1; i < 100000; i++) {
+            Taxonomy c = node("t" + i);
+            t.children.add(c);
+            t = c;
+        }
+        TaxonomyIndex instance = new TaxonomyIndex(taxo);
+        assertEquals(100000, instance.size());
+        assertTrue(instance.isAncestor("t10", "t99999"));
+        assertEquals("t99998", instance.getParent("t99999").root);
+    }
+}
@@ -0,0 +1,178 @@
+package org.insightcentre.nlp.saffron.data.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.insightcentre.nlp.saffron.data.Author;
+import org.insightcentre.nlp.saffron.data.CollectionCorpus;
+import org.insightcentre.nlp.saffron.data.Document;
+import org.insightcentre.nlp.saffron.data.SaffronPath;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class BinaryCorpusTest {
+
+    public BinaryCorpusTest() {
+    }
+
+    private static List<Document> documents() throws IOException {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("source", "test");
+        File doc2 = File.createTempFile("doc2", ".txt");
+        doc2.deleteOnExit();
+        Files.write(doc2.toPath(), "Contents on disk\n".getBytes(StandardCharsets.UTF_8));
+        return Arrays.asList(
+                new Document(null, "doc1", null, "First document", null,
+                        Arrays.asList(new Author("Joe Bloggs"), new Author("jb", "J. Bloggs", new HashSet<>(Arrays.asList("Joe B.")))),
+                        metadata, "The contents of the first document é中", LocalDateTime.of(2018, 1, 1, 12, 30)),
+                new Document(SaffronPath.fromFile(doc2), "doc2", null, null, "text/plain",
+                        null, null, null, null),
+                new Document(null, "doc3", new URL("http://www.example.com/"), "Third", null,
+                        null, null, "Another document", null));
+    }
+
+    private static List<Document> read(Iterable<Document> docs) {
+        List<Document> result = new ArrayList<>();
+        for (Document d : docs) {
+            result.add(d);
+        }
+        return result;
+    }
+
+    /**
+     * Test of write and open methods, of class BinaryCorpus.
+     */
+    @Test
+    public void testWrite() throws IOException, SearchException {
+        System.out.println("write");
+        File f = File.createTempFile("corpus", ".bin");
+        f.deleteOnExit();
+        List<Document> docs = documents();
+        BinaryCorpus.write(f, new CollectionCorpus(docs)).close();
+        assertTrue(BinaryCorpus.isBinaryCorpus(f));
+        BinaryCorpus instance = BinaryCorpus.open(f);
+        assertEquals(3, instance.size());
+        List<Document> result = read(instance.getDocuments());
+        assertEquals(docs, result);
+        assertEquals(docs.get(0).contents(), result.get(0).contents());
+        assertEquals(docs.get(2).contents(), instance.getDocument("doc3").contents());
+        assertNull(result.get(1).getContents());
+        assertEquals("Contents on disk\n", result.get(1).contents());
+        assertNull(instance.getDocument("doc4"));
+        assertEquals(Arrays.asList(docs.get(0)), read(instance.search("FIRST")));
+        // Exported as JSON with the contents
+        ObjectMapper mapper = new ObjectMapper();
+        CollectionCorpus json = mapper.readValue(mapper.writeValueAsString(instance), CollectionCorpus.class);
+        List<Document> jsonDocs = read(json.getDocuments());
+        assertEquals(docs, jsonDocs);
+        assertEquals(docs.get(0).contents(), jsonDocs.get(0).contents());
+        instance.close();
+    }
+
+    /**
+     * Test of updateDocuments method, of class BinaryCorpus.
+     */
+    @Test
+    public void testUpdateDocuments() throws IOException {
+        System.out.println("updateDocuments");
+        File f = File.createTempFile("corpus", ".bin");
+        f.deleteOnExit();
+        List<Document> docs = documents();
+        BinaryCorpus instance = BinaryCorpus.write(f, new CollectionCorpus(docs));
+        Document updated = new Document(null, "doc1", null, "Updated", null, null, null, "New contents", null);
+        Document added = new Document(null, "doc4", null, "Added", null, null, null, "Added contents", null);
+        instance.updateDocuments(Arrays.asList(updated, added));
+        assertEquals(4, instance.size());
+        assertEquals(Arrays.asList(updated, docs.get(1), docs.get(2), added), read(instance.getDocuments()));
+        instance.close();
+
+        instance = BinaryCorpus.open(f);
+        assertEquals("New contents", instance.getDocument("doc1").contents());
+        assertEquals("Added contents", instance.getDocument("doc4").contents());
+        assertEquals(docs.get(2).contents(), instance.getDocument("doc3").contents());
+        instance.close();
+    }
+
+    /**
+     * Test that a corpus whose last update did not complete is opened as it
+     * was before the update
+     */
+    @Test
+    public void testIncompleteUpdate() throws IOException {
+        System.out.println("incompleteUpdate");
+        File f = File.createTempFile("corpus", ".bin");
+        f.deleteOnExit();
+        List<Document> docs = documents();
+        BinaryCorpus instance = BinaryCorpus.write(f, new CollectionCorpus(docs));
+        final long before = f.length();
+        Document first = instance.getDocument("doc1");
+        Document updated = new Document(null, "doc1", null, "Updated", null, null, null, "New contents", null);
+        instance.updateDocuments(Arrays.asList(updated));
+        // The records that were read before the update are not overwritten
+        assertEquals(docs.get(0).contents(), first.contents());
+        instance.close();
+        final long after = f.length();
+        assertTrue(after > before);
+
+        for (long length : new long[]{before + 5, (before + after) / 2, after - 3}) {
+            try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+                raf.setLength(length);
+            }
+            instance = BinaryCorpus.open(f);
+            assertEquals(docs, read(instance.getDocuments()));
+            // A later update continues from the last complete trailer
+            instance.updateDocuments(Arrays.asList(updated));
+            assertEquals("New contents", instance.getDocument("doc1").contents());
+            instance.close();
+            assertEquals(after, f.length());
+        }
+    }
+
+    /**
+     * Test that records may span the segments the file is mapped in
+     */
+    @Test
+    public void testSegments() throws IOException {
+        System.out.println("segments");
+        File f = File.createTempFile("corpus", ".bin");
+        f.deleteOnExit();
+        List<Document> docs = documents();
+        BinaryCorpus.write(f, new CollectionCorpus(docs)).close();
+        BinaryCorpus instance = new BinaryCorpus(f, 7);
+        List<Document> result = read(instance.getDocuments());
+        assertEquals(docs, result);
+        assertEquals(docs.get(0).contents(), result.get(0).contents());
+        instance.close();
+    }
+
+    /**
+     * Test of isBinaryCorpus method, of class BinaryCorpus.
+     */
+    @Test
+    public void testIsBinaryCorpus() throws IOException {
+        System.out.println("isBinaryCorpus");
+        File f = File.createTempFile("corpus", ".json");
+        f.deleteOnExit();
+        new ObjectMapper().writeValue(f, new CollectionCorpus(documents()));
+        assertFalse(BinaryCorpus.isBinaryCorpus(f));
+    }
+}
@@ -0,0 +1,149 @@
+package org.insightcentre.nlp.saffron.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class ConcurrentCacheTest {
+
+    public ConcurrentCacheTest() {
+    }
+
+    /**
+     * Test of get method, of class ConcurrentCache.
+     */
+    @Test
+    public void testGet() {
+        System.out.println("get");
+        ConcurrentCache<String, String> instance = new ConcurrentCache<>(3, (k, v) -> 1, 1);
+        final AtomicInteger loads = new AtomicInteger();
+        for (String key : new String[]{"a", "b", "c", "a", "d", "b"}) {
+            assertEquals(key.toUpperCase(), instance.get(key, k -> {
+                loads.incrementAndGet();
+                return k.toUpperCase();
+            }));
+        }
+        // "a" was used again before "d" was added, so "b" was evicted
+        assertEquals(5, loads.get());
+        assertEquals(3, instance.size());
+        assertEquals("A", instance.getIfPresent("a"));
+        assertNull(instance.getIfPresent("c"));
+        ConcurrentCache.Stats stats = instance.stats();
+        assertEquals(2, stats.getHits());
+        assertEquals(6, stats.getMisses());
+        assertEquals(2, stats.getEvictions());
+        instance.invalidate("a");
+        assertNull(instance.getIfPresent("a"));
+        instance.clear();
+        assertEquals(0, instance.size());
+    }
+
+    /**
+     * Test of a cache limited by weight
+     */
+    @Test
+    public void testWeight() {
+        System.out.println("weight");
+        ConcurrentCache<Integer, String> instance = new ConcurrentCache<>(10, (k, v) -> v.length(), 1);
+        instance.get(1, k -> "xxxx");
+        instance.get(2, k -> "xxxx");
+        assertEquals(8, instance.weight());
+        instance.get(3, k -> "xxxx");
+        assertEquals(2, instance.size());
+        assertEquals(8, instance.weight());
+        assertNull(instance.getIfPresent(1));
+        // A value larger than the limit is kept until the next value is added
+        instance.get(4, k -> "xxxxxxxxxxxx");
+        assertEquals(1, instance.size());
+    }
+
+    /**
+     * Test that a value is loaded once when several threads miss on it
+     */
+    @Test
+    public void testSingleFlight() throws InterruptedException {
+        System.out.println("singleFlight");
+        final ConcurrentCache<String, String> instance = new ConcurrentCache<>(100);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[8];
+        final String[] results = new String[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int t = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException x) {
+                    return;
+                }
+                results[t] = instance.get("key", k -> {
+                    loads.incrementAndGet();
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException x) {
+                    }
+                    return "value";
+                });
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, loads.get());
+        for (String result : results) {
+            assertEquals("value", result);
+        }
+        assertEquals(7, instance.stats().getHits());
+    }
+
+    /**
+     * Test that a failed load is not cached
+     */
+    @Test
+    public void testFailure() {
+        System.out.println("failure");
+        ConcurrentCache<String, String> instance = new ConcurrentCache<>(10);
+        try {
+            instance.get("a", k -> {
+                throw new IllegalArgumentException("Expected failure");
+            });
+            fail("Expected an exception");
+        } catch (IllegalArgumentException x) {
+        }
+        assertEquals(0, instance.size());
+        assertEquals("A", instance.get("a", k -> "A"));
+        assertTrue(instance.stats().getHitRate() < 1.0);
+    }
+
+    /**
+     * Test that a cached value does not keep the thread that loaded it
+     */
+    @Test
+    public void testLoaderReleased() throws InterruptedException {
+        System.out.println("loaderReleased");
+        final ConcurrentCache<String, String> instance = new ConcurrentCache<>(10);
+        Thread thread = new Thread(() -> instance.get("a", k -> "A"));
+        thread.start();
+        thread.join();
+        final WeakReference<Thread> loader = new WeakReference<>(thread);
+        thread = null;
+        for (int i = 0; i < 100 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(loader.get());
+        assertEquals("A", instance.getIfPresent("a"));
+    }
+}
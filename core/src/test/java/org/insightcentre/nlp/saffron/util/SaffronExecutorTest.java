@@ -0,0 +1,78 @@
+package org.insightcentre.nlp.saffron.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class SaffronExecutorTest {
+
+    public SaffronExecutorTest() {
+    }
+
+    /**
+     * Test of newBatch method, of class SaffronExecutor.
+     */
+    @Test
+    public void testBatch() throws Exception {
+        System.out.println("batch");
+        final SaffronExecutor instance = new SaffronExecutor(4, false);
+        final SaffronExecutor.Batch batch = instance.newBatch(3);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        final Thread producer = Thread.currentThread();
+        for (int i = 0; i < 50; i++) {
+            final int task = i;
+            batch.submit(new Runnable() {
+                @Override
+                public void run() {
+                    assertTrue(Thread.currentThread() != producer);
+                    final int r = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(r, Math::max);
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException x) {
+                        throw new RuntimeException(x);
+                    }
+                    running.decrementAndGet();
+                    if (task == 10) {
+                        // A failing task does not stop the batch
+                        throw new RuntimeException("Expected failure");
+                    }
+                    done.incrementAndGet();
+                }
+            });
+        }
+        batch.await();
+        assertEquals(49, done.get());
+        assertEquals(0, running.get());
+        assertTrue(maxRunning.get() <= 3);
+    }
+
+    /**
+     * Test of newIOBatch method, of class SaffronExecutor.
+     */
+    @Test
+    public void testIOBatch() throws Exception {
+        System.out.println("ioBatch");
+        final SaffronExecutor instance = new SaffronExecutor(2, true);
+        final SaffronExecutor.Batch batch = instance.newIOBatch(8);
+        final AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            batch.submit(new Runnable() {
+                @Override
+                public void run() {
+                    done.incrementAndGet();
+                }
+            });
+        }
+        batch.await();
+        assertEquals(20, done.get());
+    }
+}
@@ -2,17 +2,18 @@ package org.insightcentre.nlp.saffron.documentindex;
 
 import org.insightcentre.nlp.saffron.data.CollectionCorpus;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.Callable;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
 import com.google.common.collect.Iterators;
-import org.apache.commons.collections4.Predicate;
 import org.apache.commons.collections4.iterators.FilterIterator;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
@@ -21,6 +22,8 @@ import org.insightcentre.nlp.saffron.data.Author;
 import org.insightcentre.nlp.saffron.data.Corpus;
 import org.insightcentre.nlp.saffron.data.Document;
 import org.insightcentre.nlp.saffron.data.SaffronPath;
+import org.insightcentre.nlp.saffron.data.StreamingCorpus;
+import org.insightcentre.nlp.saffron.data.index.BinaryCorpus;
 import org.insightcentre.nlp.saffron.documentindex.tika.DocumentAnalyzer;
 
 /**
@@ -37,6 +40,7 @@ public class CorpusTools {
      * <li> <code>.json.gz</code> For Gzipped Json file</li>
      * <li> <code>.tar.gz</code> or <code>.tgz</code> For Tarballs</li>
      * <li> <code>.zip</code> For ZIP files</li>
+     * <li> <code>.bin</code> For binary corpora written by {@link BinaryCorpus}</li>
      * <li> A directory containing files </li>
      * </ul>
      * @param file The file to read
@@ -48,13 +52,13 @@ public class CorpusTools {
         if (file.getName().endsWith(".json")) {
             return fromJson(file);
         } else if (file.getName().endsWith(".json.gz")) {
-            return new ObjectMapper().readValue(
-                    new GZIPInputStream(new FileInputStream(file)),
-                    CollectionCorpus.class);
+            return new StreamingCorpus(file);
         } else if (file.getName().endsWith(".tar.gz") || file.getName().endsWith(".tgz")) {
             return fromTarball(file);
         } else if (file.getName().endsWith(".zip")) {
             return fromZIP(file);
+        } else if (file.getName().endsWith(".bin")) {
+            return BinaryCorpus.open(file);
         } else if (file.isDirectory()) {
             File indexFile = new File(file, "segments.gen");
             if(indexFile.exists()) {
@@ -68,14 +72,36 @@ public class CorpusTools {
     }
 
     /**
-     * Read a corpus from a JSON file
+     * Read a corpus from a JSON file. The documents are read from the file
+     * each time the corpus is iterated, so the corpus may be larger than the
+     * memory
      *
      * @param jsonFile The JSON file to read
      * @return The corpus object
      * @throws IOException If the file could not be read
      */
     public static Corpus fromJson(File jsonFile) throws IOException {
-        return new ObjectMapper().readValue(jsonFile, CollectionCorpus.class);
+        return new StreamingCorpus(jsonFile);
+    }
+
+    /**
+     * Find the corpus saved in a run directory. The binary corpus is read
+     * much faster, but is only used if it is at least as new as the JSON
+     * corpus, as the JSON corpus may have been replaced since the binary
+     * corpus was written
+     *
+     * @param directory The directory of the run
+     * @return Either <code>corpus.bin</code> or <code>corpus.json</code>,
+     * which may not exist
+     */
+    public static File savedCorpusFile(File directory) {
+        final File binFile = new File(directory, "corpus.bin");
+        final File jsonFile = new File(directory, "corpus.json");
+        if (binFile.exists() && (!jsonFile.exists()
+                || binFile.lastModified() >= jsonFile.lastModified())) {
+            return binFile;
+        }
+        return jsonFile;
     }
 
 
@@ -163,23 +189,26 @@ public class CorpusTools {
             return new Iterable<Document>() {
                 @Override
                 public Iterator<Document> iterator() {
-                    final FolderIterator iter = new FolderIterator(folder.listFiles());
-                    return new Iterator<Document>() {
+                    return ParseAheadIterator.start(new ParseAheadIterator.Walker() {
                         @Override
-                        public boolean hasNext() {
-                            return iter.hasNext();
-                        }
-
-                        @Override
-                        public Document next() {
-                            File f = iter.next();
-                            try {
-                                return DocumentAnalyzer.analyze(f, f.getName().replaceAll("/|\\\\", "_"));
-                            } catch (IOException ex) {
-                                throw new RuntimeException(ex);
+                        public void walk(ParseAheadIterator.Sink sink) throws InterruptedException {
+                            final FolderIterator iter = new FolderIterator(folder.listFiles());
+                            while (iter.hasNext()) {
+                                final File f = iter.next();
+                                sink.read(new Callable<byte[]>() {
+                                    @Override
+                                    public byte[] call() throws IOException {
+                                        return Files.readAllBytes(f.toPath());
+                                    }
+                                }, new ParseAheadIterator.Parser() {
+                                    @Override
+                                    public Document parse(byte[] data) throws IOException {
+                                        return DocumentAnalyzer.analyze(data, f, f.getName().replaceAll("/|\\\\", "_"));
+                                    }
+                                });
                             }
                         }
-                    };
+                    });
                 }
             };
         }
@@ -321,42 +350,30 @@ public class CorpusTools {
             return new Iterable<Document>() {
                 @Override
                 public Iterator<Document> iterator() {
-                    try {
-                        final ZipFile zip = new ZipFile(zipFile);
-                        final Enumeration<? extends ZipEntry> zes = zip.entries();
-                        return new FilterIterator<>(
-                                new Iterator<Document>() {
-                            File file = null;
-
-                            @Override
-                            public boolean hasNext() {
-                                return zes.hasMoreElements();
-                            }
-
-                            @Override
-                            public Document next() {
-                                try {
-                                    ZipEntry ze = zes.nextElement();
-                                    while (ze.isDirectory() && zes.hasMoreElements()) {
-                                        ze = zes.nextElement();
+                    return ParseAheadIterator.start(new ParseAheadIterator.Walker() {
+                        @Override
+                        public void walk(ParseAheadIterator.Sink sink) throws IOException, InterruptedException {
+                            try (final ZipFile zip = new ZipFile(zipFile)) {
+                                final Enumeration<? extends ZipEntry> zes = zip.entries();
+                                while (zes.hasMoreElements()) {
+                                    final ZipEntry ze = zes.nextElement();
+                                    if (ze.isDirectory()) {
+                                        continue;
+                                    }
+                                    final byte[] data;
+                                    try (InputStream in = zip.getInputStream(ze)) {
+                                        data = ParseAheadIterator.readFully(in);
                                     }
-                                    return DocumentAnalyzer.analyze(zip.getInputStream(ze), ze.getName().replaceAll("/|\\\\", "_"));
-                                } catch (IOException x) {
-                                    throw new RuntimeException(x);
+                                    sink.parse(new Callable<Document>() {
+                                        @Override
+                                        public Document call() throws IOException {
+                                            return DocumentAnalyzer.analyze(new ByteArrayInputStream(data), ze.getName().replaceAll("/|\\\\", "_"));
+                                        }
+                                    });
                                 }
                             }
-                        }, new Predicate<Document>() {
-                            @Override
-                            public boolean evaluate(Document o) {
-                                return o != null;
-                            }
-                        });
-
-                    } catch (ZipException x) {
-                        throw new RuntimeException(x);
-                    } catch (IOException x) {
-                        throw new RuntimeException(x);
-                    }
+                        }
+                    });
                 }
             };
         }
@@ -424,56 +441,27 @@ public class CorpusTools {
             return new Iterable<Document>() {
                 @Override
                 public Iterator<Document> iterator() {
-                    try {
-                        final TarArchiveInputStream tais = new TarArchiveInputStream(new GzipCompressorInputStream(new FileInputStream(zipFile)));
-
-                        return new Iterator<Document>() {
-                            File file = null;
-                            TarArchiveEntry tae;
-
-                            private void advance() {
-                                try {
-                                    if (tae == null) {
-                                        tae = tais.getNextTarEntry();
-                                    }
-                                    while (tae != null && !tae.isFile()) {
-                                        tae = tais.getNextTarEntry();
-                                    }
-                                } catch (IOException x) {
-                                    throw new RuntimeException(x);
-                                }
-                            }
-
-                            @Override
-                            public boolean hasNext() {
-                                advance();
-                                return tae != null;
-                            }
-
-                            @Override
-                            public Document next() {
-                                try {
-                                    advance();
-                                    if (tae == null) {
-                                        throw new NoSuchElementException();
-                                    }
-                                    return DocumentAnalyzer.analyze(tais, tae.getName().replace(File.separator, "_"));
-                                } catch (IOException x) {
-                                    throw new RuntimeException(x);
-                                } finally {
-                                    try {
-                                        tae = tais.getNextTarEntry();
-                                    } catch (IOException x) {
+                    return ParseAheadIterator.start(new ParseAheadIterator.Walker() {
+                        @Override
+                        public void walk(ParseAheadIterator.Sink sink) throws IOException, InterruptedException {
+                            try (final TarArchiveInputStream tais = new TarArchiveInputStream(new GzipCompressorInputStream(new FileInputStream(zipFile)))) {
+                                TarArchiveEntry tae;
+                                while ((tae = tais.getNextTarEntry()) != null) {
+                                    if (!tae.isFile()) {
+                                        continue;
                                     }
+                                    final String name = tae.getName().replace(File.separator, "_");
+                                    final byte[] data = ParseAheadIterator.readFully(tais);
+                                    sink.parse(new Callable<Document>() {
+                                        @Override
+                                        public Document call() throws IOException {
+                                            return DocumentAnalyzer.analyze(new ByteArrayInputStream(data), name);
+                                        }
+                                    });
                                 }
                             }
-                        };
-
-                    } catch (ZipException x) {
-                        throw new RuntimeException(x);
-                    } catch (IOException x) {
-                        throw new RuntimeException(x);
-                    }
+                        }
+                    });
                 }
             };
 
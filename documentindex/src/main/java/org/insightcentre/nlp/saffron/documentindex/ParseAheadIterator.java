@@ -0,0 +1,395 @@
+package org.insightcentre.nlp.saffron.documentindex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.insightcentre.nlp.saffron.data.Document;
+import org.insightcentre.nlp.saffron.util.SaffronExecutor;
+
+/**
+ * Parses the documents of a corpus ahead of the consumer. A walker thread
+ * lists the files (or reads the entries of an archive) and submits a parse
+ * task for each to the shared executor. The pending documents are delivered in
+ * the order they were walked through a bounded queue, so that the walker
+ * stops when the consumer falls behind.
+ *
+ * If the executor has virtual threads, files are read on them, and the walker
+ * submits each document to be parsed once its file has been read, so that
+ * slow reads do not hold the threads of the pool.
+ *
+ * If the consumer stops before the end of the corpus, the walker stops (and
+ * closes the files it has open) when the iterator is closed or, if it is not
+ * closed, once the iterator is no longer reachable. For this reason, the walker
+ * only refers to the iterator weakly.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+class ParseAheadIterator implements Iterator<Document>, Closeable {
+
+    /**
+     * Lists the documents of a corpus
+     */
+    interface Walker {
+
+        /**
+         * Walk all the documents, passing a task that parses each to the sink
+         *
+         * @param sink The sink
+         * @throws IOException If a document could not be read
+         * @throws InterruptedException If the iterator was closed
+         */
+        void walk(Sink sink) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Receives the parse tasks from a walker
+     */
+    interface Sink {
+
+        /**
+         * Parse a document, waiting if too many are already pending
+         *
+         * @param task The task that parses the document, it may return null to
+         * skip the document
+         * @throws InterruptedException If the iterator was closed
+         */
+        void parse(Callable<Document> task) throws InterruptedException;
+
+        /**
+         * Read a document and then parse it, waiting if too many are already
+         * pending
+         *
+         * @param read The task that reads the contents of the document
+         * @param parser The parser of the contents
+         * @throws InterruptedException If the iterator was closed
+         */
+        void read(Callable<byte[]> read, Parser parser) throws InterruptedException;
+    }
+
+    /**
+     * Parses the contents of a document
+     */
+    interface Parser {
+
+        /**
+         * Parse a document
+         *
+         * @param data The contents of the document
+         * @return The document or null to skip the document
+         * @throws IOException If the document could not be parsed
+         */
+        Document parse(byte[] data) throws IOException;
+    }
+
+    private static final CompletableFuture<Document> END = new CompletableFuture<>();
+    /**
+     * How often a walker waiting for the consumer checks whether the iterator
+     * has been closed or collected
+     */
+    static final long POLL_MILLIS = 100;
+
+    private final Channel channel;
+    private final Thread walker;
+    private Future<Document> pending;
+    private Document next;
+
+    /**
+     * Start parsing the documents of a corpus
+     *
+     * @param walker The walker that lists the documents
+     * @param executor The executor to parse on
+     * @param ahead The maximum number of documents parsed or being parsed
+     * that have not yet been consumed
+     */
+    public ParseAheadIterator(final Walker walker, SaffronExecutor executor, int ahead) {
+        this(walker, executor, ahead, executor.usesVirtualThreads());
+    }
+
+    /**
+     * Start parsing the documents of a corpus
+     *
+     * @param walker The walker that lists the documents
+     * @param executor The executor to parse on
+     * @param ahead The maximum number of documents parsed or being parsed
+     * that have not yet been consumed
+     * @param separateReads If true, documents are read as I/O tasks of the
+     * executor before they are parsed
+     */
+    ParseAheadIterator(final Walker walker, SaffronExecutor executor, final int ahead, boolean separateReads) {
+        this.channel = new Channel(ahead, this);
+        final SaffronExecutor.Batch batch = executor.newBatch(ahead);
+        final SaffronExecutor.Batch io = separateReads ? executor.newIOBatch(ahead) : null;
+        this.walker = new Thread(new Walk(walker, new WalkSink(channel, batch, io, ahead), channel),
+                "saffron-corpus-walker");
+        this.walker.setDaemon(true);
+        this.walker.start();
+    }
+
+    /**
+     * The queue between the walker and the iterator
+     */
+    private static class Channel {
+
+        final BlockingQueue<Future<Document>> queue;
+        final WeakReference<ParseAheadIterator> owner;
+        volatile boolean closed = false;
+
+        Channel(int ahead, ParseAheadIterator owner) {
+            this.queue = new ArrayBlockingQueue<>(ahead + 1);
+            this.owner = new WeakReference<>(owner);
+        }
+
+        /**
+         * Add a document to the queue, waiting while the queue is full
+         *
+         * @throws InterruptedException If the iterator was closed or is no
+         * longer reachable
+         */
+        void put(Future<Document> doc) throws InterruptedException {
+            while (!queue.offer(doc, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closed || owner.get() == null) {
+                    throw new InterruptedException("The iterator is no longer used");
+                }
+            }
+        }
+    }
+
+    /**
+     * The task of the walker thread, this must not refer to the iterator
+     */
+    private static class Walk implements Runnable {
+
+        private final Walker walker;
+        private final WalkSink sink;
+        private final Channel channel;
+
+        Walk(Walker walker, WalkSink sink, Channel channel) {
+            this.walker = walker;
+            this.sink = sink;
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            try {
+                try {
+                    walker.walk(sink);
+                } finally {
+                    sink.flush();
+                }
+                channel.put(END);
+            } catch (InterruptedException x) {
+                // Closed by the consumer
+            } catch (IOException | RuntimeException x) {
+                final CompletableFuture<Document> failed = new CompletableFuture<>();
+                failed.completeExceptionally(x);
+                try {
+                    channel.put(failed);
+                    channel.put(END);
+                } catch (InterruptedException x2) {
+                }
+            }
+        }
+    }
+
+    /**
+     * A document that is being read before it is parsed
+     */
+    private static class Reading {
+
+        final CompletableFuture<byte[]> data = new CompletableFuture<>();
+        final Parser parser;
+        final CompletableFuture<Document> doc;
+
+        Reading(Parser parser, CompletableFuture<Document> doc) {
+            this.parser = parser;
+            this.doc = doc;
+        }
+    }
+
+    /**
+     * The sink of the walker thread, all the tasks are submitted from this
+     * thread
+     */
+    private static class WalkSink implements Sink {
+
+        private final Channel channel;
+        private final SaffronExecutor.Batch batch;
+        private final SaffronExecutor.Batch io;
+        private final int ahead;
+        private final ArrayDeque<Reading> reading = new ArrayDeque<>();
+
+        WalkSink(Channel channel, SaffronExecutor.Batch batch, SaffronExecutor.Batch io, int ahead) {
+            this.channel = channel;
+            this.batch = batch;
+            this.io = io;
+            this.ahead = ahead;
+        }
+
+        @Override
+        public void parse(final Callable<Document> task) throws InterruptedException {
+            final CompletableFuture<Document> doc = new CompletableFuture<>();
+            channel.put(doc);
+            submit(doc, task);
+        }
+
+        @Override
+        public void read(final Callable<byte[]> read, final Parser parser) throws InterruptedException {
+            if (io == null) {
+                parse(new Callable<Document>() {
+                    @Override
+                    public Document call() throws Exception {
+                        return parser.parse(read.call());
+                    }
+                });
+                return;
+            }
+            final Reading r = new Reading(parser, new CompletableFuture<Document>());
+            channel.put(r.doc);
+            io.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        r.data.complete(read.call());
+                    } catch (Exception x) {
+                        r.data.completeExceptionally(x);
+                    }
+                }
+            });
+            reading.add(r);
+            if (reading.size() >= ahead) {
+                parseNext();
+            }
+        }
+
+        /**
+         * Parse the documents that have been read
+         */
+        void flush() throws InterruptedException {
+            while (!reading.isEmpty()) {
+                parseNext();
+            }
+        }
+
+        private void parseNext() throws InterruptedException {
+            final Reading r = reading.poll();
+            final byte[] data;
+            try {
+                data = r.data.get();
+            } catch (ExecutionException x) {
+                r.doc.completeExceptionally(x.getCause());
+                return;
+            }
+            submit(r.doc, new Callable<Document>() {
+                @Override
+                public Document call() throws Exception {
+                    return r.parser.parse(data);
+                }
+            });
+        }
+
+        private void submit(final CompletableFuture<Document> doc, final Callable<Document> task) throws InterruptedException {
+            batch.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        doc.complete(task.call());
+                    } catch (Exception x) {
+                        doc.completeExceptionally(x);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Start parsing the documents of a corpus on the shared executor, keeping
+     * two documents per thread ahead of the consumer
+     *
+     * @param walker The walker that lists the documents
+     * @return The iterator over the parsed documents
+     */
+    public static ParseAheadIterator start(Walker walker) {
+        final SaffronExecutor executor = SaffronExecutor.getInstance();
+        return new ParseAheadIterator(walker, executor, 2 * executor.getMaxThreads());
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            if (pending == null) {
+                try {
+                    pending = channel.queue.take();
+                } catch (InterruptedException x) {
+                    throw new RuntimeException(x);
+                }
+            }
+            if (pending == END) {
+                return false;
+            }
+            try {
+                next = pending.get();
+            } catch (InterruptedException x) {
+                throw new RuntimeException(x);
+            } catch (ExecutionException x) {
+                pending = null;
+                if (x.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) x.getCause();
+                }
+                throw new RuntimeException(x.getCause());
+            }
+            pending = null;
+        }
+        return true;
+    }
+
+    @Override
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Document d = next;
+        next = null;
+        return d;
+    }
+
+    /**
+     * Stop walking the corpus, if the consumer does not read all the documents
+     */
+    @Override
+    public void close() {
+        channel.closed = true;
+        walker.interrupt();
+        channel.queue.clear();
+    }
+
+    /**
+     * Read an archive entry into memory, so that it can be parsed on another
+     * thread
+     *
+     * @param in The stream of the entry, this is not closed
+     * @return The contents of the entry
+     * @throws IOException If the entry could not be read
+     */
+    static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) >= 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
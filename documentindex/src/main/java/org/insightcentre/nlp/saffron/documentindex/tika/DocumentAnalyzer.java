@@ -34,11 +34,28 @@ public class DocumentAnalyzer {
     }
 
     public static Document analyze(File f, String id) throws IOException {
+        try (InputStream stream = TikaInputStream.get(f.toPath())) {
+            return analyze(stream, f, id);
+        }
+    }
+
+    /**
+     * Analyze a file whose contents have already been read
+     *
+     * @param data The contents of the file
+     * @param f The file
+     * @param id The identifier of the document
+     * @return The document
+     * @throws IOException If the document could not be parsed
+     */
+    public static Document analyze(byte[] data, File f, String id) throws IOException {
+        return analyze(TikaInputStream.get(data), f, id);
+    }
+
+    private static Document analyze(InputStream stream, File f, String id) throws IOException {
         AutoDetectParser parser = new AutoDetectParser();
         BodyContentHandler handler = new BodyContentHandler(-1);
         Metadata metadata = new Metadata();
-        final InputStream stream;
-            stream = TikaInputStream.get(f.toPath());
         try {
             parser.parse(stream, handler, metadata);
         } catch (SAXException | TikaException ex) {
@@ -3,6 +3,8 @@ package org.insightcentre.nlp.saffron.documentindex;
 import com.google.common.io.Files;
 import java.io.File;
 import java.io.IOException;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.insightcentre.nlp.saffron.data.Corpus;
 import org.insightcentre.nlp.saffron.data.Document;
 import org.insightcentre.nlp.saffron.documentindex.CorpusTools.FolderIterator;
@@ -118,4 +120,40 @@ public class CorpusToolsTest {
         assert(found);
     }
     
+    /**
+     * Test of parallelStream method, of a corpus read by CorpusTools.
+     */
+    @Test
+    public void testParallelStream() throws IOException {
+        System.out.println("parallelStream");
+        for (String file : new String[] { "src/test/resources/corpus", "src/test/resources/corpus.zip", "src/test/resources/corpus.tar.gz" }) {
+            Corpus result = CorpusTools.readFile(new File(file));
+            Set<String> ids = result.parallelStream().map(d -> d.id).collect(Collectors.toSet());
+            assertEquals(8, ids.size());
+        }
+    }
+    
+    /**
+     * Test of savedCorpusFile method, of class CorpusTools.
+     */
+    @Test
+    public void testSavedCorpusFile() throws IOException {
+        System.out.println("savedCorpusFile");
+        File dir = Files.createTempDir();
+        dir.deleteOnExit();
+        File bin = new File(dir, "corpus.bin");
+        File json = new File(dir, "corpus.json");
+        bin.deleteOnExit();
+        json.deleteOnExit();
+        assertEquals(json, CorpusTools.savedCorpusFile(dir));
+        Files.write(new byte[0], bin);
+        assertEquals(bin, CorpusTools.savedCorpusFile(dir));
+        Files.write(new byte[0], json);
+        bin.setLastModified(100000000000L);
+        json.setLastModified(200000000000L);
+        assertEquals(json, CorpusTools.savedCorpusFile(dir));
+        bin.setLastModified(200000000000L);
+        assertEquals(bin, CorpusTools.savedCorpusFile(dir));
+    }
+
 }
@@ -0,0 +1,179 @@
+package org.insightcentre.nlp.saffron.documentindex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import org.insightcentre.nlp.saffron.data.Document;
+import org.insightcentre.nlp.saffron.util.SaffronExecutor;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class ParseAheadIteratorTest {
+
+    public ParseAheadIteratorTest() {
+    }
+
+    private static ParseAheadIterator.Walker walker(final int n, final int fail) {
+        return new ParseAheadIterator.Walker() {
+            @Override
+            public void walk(ParseAheadIterator.Sink sink) throws IOException, InterruptedException {
+                final Random random = new Random(n);
+                for (int i = 0; i < n; i++) {
+                    final int id = i;
+                    final int delay = random.nextInt(3);
+                    sink.parse(new Callable<Document>() {
+                        @Override
+                        public Document call() throws Exception {
+                            Thread.sleep(delay);
+                            if (id == fail) {
+                                throw new IOException("Expected failure");
+                            }
+                            // Skipped documents
+                            if (id % 7 == 3) {
+                                return null;
+                            }
+                            return new Document(null, "doc" + id, null, null, "text/plain",
+                                    new ArrayList<>(), new HashMap<>(), "contents", null);
+                        }
+                    });
+                }
+            }
+        };
+    }
+
+    /**
+     * Test that the documents are delivered in the order they were walked
+     */
+    @Test
+    public void testOrder() {
+        System.out.println("order");
+        ParseAheadIterator instance = new ParseAheadIterator(walker(50, -1), new SaffronExecutor(4, false), 3);
+        List<String> ids = new ArrayList<>();
+        while (instance.hasNext()) {
+            ids.add(instance.next().id);
+        }
+        List<String> expResult = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            if (i % 7 != 3) {
+                expResult.add("doc" + i);
+            }
+        }
+        assertEquals(expResult, ids);
+    }
+
+    /**
+     * Test that documents read before they are parsed are delivered in the
+     * order they were walked
+     */
+    @Test
+    public void testSeparateReads() {
+        System.out.println("separateReads");
+        ParseAheadIterator instance = new ParseAheadIterator(new ParseAheadIterator.Walker() {
+            @Override
+            public void walk(ParseAheadIterator.Sink sink) throws IOException, InterruptedException {
+                final Random random = new Random(1);
+                for (int i = 0; i < 50; i++) {
+                    final String id = "doc" + i;
+                    final int delay = random.nextInt(3);
+                    sink.read(new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() throws Exception {
+                            Thread.sleep(delay);
+                            return id.getBytes("UTF-8");
+                        }
+                    }, new ParseAheadIterator.Parser() {
+                        @Override
+                        public Document parse(byte[] data) throws IOException {
+                            return new Document(null, new String(data, "UTF-8"), null, null, "text/plain",
+                                    new ArrayList<>(), new HashMap<>(), "contents", null);
+                        }
+                    });
+                }
+            }
+        }, new SaffronExecutor(2, false), 3, true);
+        List<String> ids = new ArrayList<>();
+        while (instance.hasNext()) {
+            ids.add(instance.next().id);
+        }
+        List<String> expResult = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expResult.add("doc" + i);
+        }
+        assertEquals(expResult, ids);
+    }
+
+    /**
+     * Test that a document that could not be parsed fails the iteration
+     */
+    @Test
+    public void testFailure() {
+        System.out.println("failure");
+        ParseAheadIterator instance = new ParseAheadIterator(walker(20, 5), new SaffronExecutor(2, false), 2);
+        int n = 0;
+        try {
+            while (instance.hasNext()) {
+                instance.next();
+                n++;
+            }
+            fail("Expected an exception");
+        } catch (RuntimeException x) {
+            assertEquals(IOException.class, x.getCause().getClass());
+        }
+        assertEquals(4, n);
+        instance.close();
+    }
+
+    /**
+     * Test that closing the iterator stops the walker
+     */
+    @Test
+    public void testClose() throws InterruptedException {
+        System.out.println("close");
+        final Thread[] walkerThread = new Thread[1];
+        ParseAheadIterator instance = new ParseAheadIterator(new ParseAheadIterator.Walker() {
+            @Override
+            public void walk(ParseAheadIterator.Sink sink) throws IOException, InterruptedException {
+                walkerThread[0] = Thread.currentThread();
+                walker(1000, -1).walk(sink);
+            }
+        }, new SaffronExecutor(2, false), 2);
+        instance.next();
+        instance.close();
+        walkerThread[0].join(5000);
+        assertFalse(walkerThread[0].isAlive());
+    }
+
+    /**
+     * Test that the walker stops when the iterator is dropped without being
+     * closed
+     */
+    @Test
+    public void testAbandoned() throws InterruptedException {
+        System.out.println("abandoned");
+        final Thread[] walkerThread = new Thread[1];
+        ParseAheadIterator instance = new ParseAheadIterator(new ParseAheadIterator.Walker() {
+            @Override
+            public void walk(ParseAheadIterator.Sink sink) throws IOException, InterruptedException {
+                walkerThread[0] = Thread.currentThread();
+                walker(1000, -1).walk(sink);
+            }
+        }, new SaffronExecutor(2, false), 2);
+        instance.next();
+        instance = null;
+        for (int i = 0; i < 100 && walkerThread[0].isAlive(); i++) {
+            System.gc();
+            walkerThread[0].join(ParseAheadIterator.POLL_MILLIS);
+        }
+        assertFalse(walkerThread[0].isAlive());
+    }
+}
@@ -15,6 +15,7 @@ import org.insightcentre.nlp.saffron.data.connections.AuthorAuthor;
 import org.insightcentre.nlp.saffron.data.connections.AuthorTerm;
 import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
 import org.insightcentre.nlp.saffron.data.connections.TermTerm;
+import org.insightcentre.nlp.saffron.data.index.BinaryCorpus;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -66,7 +67,9 @@ public class CommandLineSaffronRunListener implements SaffronRunListener {
     @Override
     public void setCorpus(String saffronDatasetName, Corpus searcher) {
         try {
-            writer.writeValue(new File(outputFolder, "corpus.json"), searcher);
+            // The JSON is exported from the binary corpus, so the documents are read only once
+            final BinaryCorpus corpus = BinaryCorpus.write(new File(outputFolder, "corpus.bin"), searcher);
+            writer.writeValue(new File(outputFolder, "corpus.json"), corpus);
         } catch(IOException x) {
             throw new RuntimeException(x);
         }
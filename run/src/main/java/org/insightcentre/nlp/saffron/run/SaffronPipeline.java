@@ -357,6 +357,7 @@ public class SaffronPipeline {
         KGSearch kgSearch = KGSearch.create(config.taxonomy.search, config.kg, relationClassifier, termMap.keySet());
         final KnowledgeGraph kGraph = kgSearch.extractKnowledgeGraphWithDenialAndAllowanceList(termMap,
                 run.inclusionList.getRequiredRelations(), run.inclusionList.getExcludedRelations(), relationClassifier.typeMap.keySet());
+        status.log("BERT embedding cache: " + relationClassifier.getCacheStats());
         status.setKnowledgeGraph(runName, kGraph);
         status.setStageComplete("Building knowledge graph", runName);
         return kGraph;
@@ -1,6 +1,6 @@
 package org.insightcentre.nlp.saffron.taxonomy.classifiers;
 
-import org.insightcentre.nlp.saffron.util.SimpleCache;
+import org.insightcentre.nlp.saffron.util.ConcurrentCache;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
@@ -37,7 +37,7 @@ public abstract class BERTBasedRelationClassifier implements MulticlassRelationC
 	private Bert bert;
 	private final long sizeEmbeddings;
 
-	private SimpleCache<String, float[]> simpleCache = new SimpleCache<>(10000);
+	private final ConcurrentCache<String, float[]> embeddingCache = new ConcurrentCache<>(10000);
 	
 	public final Map<TypedLink.Type,Integer> typeMap;
 
@@ -109,8 +109,8 @@ public abstract class BERTBasedRelationClassifier implements MulticlassRelationC
     public Map<Type, Double> predict(String source, String target) {
 
 
-		float[] embedding_source = simpleCache.get(source, e -> this.bert.embedSequence(source));
-		float[] embedding_target = simpleCache.get(target, e -> this.bert.embedSequence(target));
+		float[] embedding_source = embeddingCache.get(source, e -> this.bert.embedSequence(source));
+		float[] embedding_target = embeddingCache.get(target, e -> this.bert.embedSequence(target));
 
         INDArray features = Nd4j.zeros(1, 1, 2, 1024);
 
@@ -131,4 +131,13 @@ public abstract class BERTBasedRelationClassifier implements MulticlassRelationC
 
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * The statistics of the cache of BERT embeddings of the terms
+     *
+     * @return The statistics
+     */
+    public ConcurrentCache.Stats getCacheStats() {
+        return embeddingCache.stats();
+    }
+}
@@ -7,6 +7,7 @@ import org.insightcentre.nlp.saffron.data.connections.AuthorAuthor;
 import org.insightcentre.nlp.saffron.data.connections.AuthorTerm;
 import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
 import org.insightcentre.nlp.saffron.data.connections.TermTerm;
+import org.insightcentre.nlp.saffron.documentindex.CorpusTools;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -112,18 +113,11 @@ public class KGExtractionUtils {
         utils.setTerms((List<Term>) mapper.readValue(termsFile,
                 tf.constructCollectionType(List.class, Term.class)));
 
-        File indexFile = new File(directory, "corpus.json");
+        File indexFile = CorpusTools.savedCorpusFile(directory);
         if (!indexFile.exists()) {
             System.err.println("Corpus does not exist... skipping");
         } else {
-
-            // Temporary fix until more changes from other branch can be merged
-            //utils.setCorpus(CorpusTools.readFile(indexFile));
-            try{
-                utils.setCorpus((Corpus)Class.forName("org.insightcentre.nlp.saffron.documentindex.CorpusTools").getMethod("readFile", File.class).invoke(null, indexFile));
-            } catch(Exception x) {
-                throw new RuntimeException(x);
-            }
+            utils.setCorpus(CorpusTools.readFile(indexFile));
         }
         return utils;
     }
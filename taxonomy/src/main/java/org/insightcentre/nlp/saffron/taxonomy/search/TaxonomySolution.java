@@ -26,6 +26,9 @@ public class TaxonomySolution extends Solution{
     public final Map<String, Taxonomy> heads;
     public final Set<String> terms;
     public final int size;
+    // The head of the fragment containing each term, so that a term is found
+    // without searching every fragment
+    private final Map<String, String> headOf;
 
     /**
      * Create a new solution
@@ -37,12 +40,32 @@ public class TaxonomySolution extends Solution{
         this.heads = heads;
         this.terms = terms;
         this.size = calcSize();
+        this.headOf = new HashMap<>();
+        for (Map.Entry<String, Taxonomy> e : heads.entrySet()) {
+            indexHead(headOf, e.getKey(), e.getValue());
+        }
     }
 
-    private TaxonomySolution(Map<String, Taxonomy> heads, Set<String> terms, int size) {
+    private TaxonomySolution(Map<String, Taxonomy> heads, Set<String> terms, int size, Map<String, String> headOf) {
         this.heads = heads;
         this.terms = terms;
         this.size = size;
+        this.headOf = headOf;
+    }
+
+    private static void indexHead(Map<String, String> headOf, String head, Taxonomy taxo) {
+        indexHead(headOf, head, taxo, false);
+    }
+
+    private static void indexHead(Map<String, String> headOf, String head, Taxonomy taxo, boolean replace) {
+        if (replace) {
+            headOf.put(taxo.root, head);
+        } else {
+            headOf.putIfAbsent(taxo.root, head);
+        }
+        for (Taxonomy child : taxo.children) {
+            indexHead(headOf, head, child, replace);
+        }
     }
 
     /**
@@ -71,53 +94,58 @@ public class TaxonomySolution extends Solution{
                                 final double linkScore,
                                 final boolean accepted) {
 
+        final String topHead = headOf.get(top);
         if (heads.containsKey(bottom)) {
 
-            for (Map.Entry<String, Taxonomy> e : heads.entrySet()) {
-                if (e.getValue().hasDescendent(top)) {
-                    if (e.getKey().equals(bottom)) {
-                        return null;
-                    }
-                    // Connecting bottom to an existing top
-                    Map<String, Taxonomy> newHeads = new HashMap<>(heads);
-                    newHeads.remove(bottom);
-                    newHeads.put(e.getKey(),
-                            insertIntoTaxo(newHeads.get(e.getKey()), top, heads.get(bottom).withLinkScore(linkScore).deepCopy()));
-                    return new TaxonomySolution(newHeads, terms, size);
+            if (topHead != null) {
+                if (topHead.equals(bottom)) {
+                    return null;
                 }
+                // Connecting bottom to an existing top
+                Map<String, Taxonomy> newHeads = new HashMap<>(heads);
+                newHeads.remove(bottom);
+                newHeads.put(topHead,
+                        insertIntoTaxo(newHeads.get(topHead), top, heads.get(bottom).withLinkScore(linkScore).deepCopy()));
+                Map<String, String> newHeadOf = new HashMap<>(headOf);
+                indexHead(newHeadOf, topHead, heads.get(bottom), true);
+                return new TaxonomySolution(newHeads, terms, size, newHeadOf);
             }
             // top is not yet in taxonomy
             Map<String, Taxonomy> newHeads = new HashMap<>(heads);
             Taxonomy t2 = new Taxonomy(top, topScore, Double.NaN, new ArrayList<>(Arrays.asList(newHeads.get(bottom).withLinkScore(linkScore))), accepted ? Status.accepted : Status.none);
             newHeads.remove(bottom);
             newHeads.put(top, t2);
-            return new TaxonomySolution(newHeads, terms, size + 1);
+            Map<String, String> newHeadOf = new HashMap<>(headOf);
+            newHeadOf.put(top, top);
+            indexHead(newHeadOf, top, heads.get(bottom), true);
+            return new TaxonomySolution(newHeads, terms, size + 1, newHeadOf);
         } else {
-            for (Map.Entry<String, Taxonomy> e : heads.entrySet()) {
-                if (e.getValue().hasDescendent(bottom)) {
-                    return null;
-                }
+            if (headOf.containsKey(bottom)) {
+                return null;
             }
             // bottom is not yet in taxonomy
-            for (Map.Entry<String, Taxonomy> e : heads.entrySet()) {
-                if (e.getValue().hasDescendent(top)) {
-                    // But top is
-                    Map<String, Taxonomy> newHeads = new HashMap<>(heads);
-                    newHeads.put(e.getKey(),
-                            insertIntoTaxo(newHeads.get(e.getKey()), top,
-                                    new Taxonomy(bottom, bottomScore, linkScore, new ArrayList<Taxonomy>(), accepted ? Status.accepted : Status.none)));
-                    return new TaxonomySolution(newHeads, terms, size + 1);
-                }
+            if (topHead != null) {
+                // But top is
+                Map<String, Taxonomy> newHeads = new HashMap<>(heads);
+                newHeads.put(topHead,
+                        insertIntoTaxo(newHeads.get(topHead), top,
+                                new Taxonomy(bottom, bottomScore, linkScore, new ArrayList<Taxonomy>(), accepted ? Status.accepted : Status.none)));
+                Map<String, String> newHeadOf = new HashMap<>(headOf);
+                newHeadOf.put(bottom, topHead);
+                return new TaxonomySolution(newHeads, terms, size + 1, newHeadOf);
             }
             // top and bottom are not in the taxonomy
             Map<String, Taxonomy> newHeads = new HashMap<>(heads);
+            Map<String, String> newHeadOf = new HashMap<>(headOf);
+            newHeadOf.put(top, top);
+            newHeadOf.put(bottom, top);
             Taxonomy t = new Taxonomy(top, topScore, Double.NaN, new ArrayList<Taxonomy>() {
                 {
                     add(new Taxonomy(bottom, bottomScore, linkScore, new ArrayList<Taxonomy>(), accepted ? Status.accepted : Status.none));
                 }
             }, Status.none);
             newHeads.put(top, t);
-            return new TaxonomySolution(newHeads, terms, size + 2);
+            return new TaxonomySolution(newHeads, terms, size + 2, newHeadOf);
         }
     }
 
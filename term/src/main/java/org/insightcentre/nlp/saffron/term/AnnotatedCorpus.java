@@ -0,0 +1,105 @@
+package org.insightcentre.nlp.saffron.term;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A compact in-memory copy of the annotations (lower-cased tokens and tags) of
+ * every document read during term extraction. This allows the features that
+ * need a further pass over the corpus (the domain statistics and the novel
+ * topic model) to be calculated without reading, parsing and tagging the
+ * documents again.
+ *
+ * Tokens and tags are stored as ids of a {@link TermDictionary}, so the memory
+ * required is about eight bytes per token. Documents may be added from several
+ * threads, the order of the documents is not preserved.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class AnnotatedCorpus implements Iterable<List<AnnotatedSentence>> {
+
+    private final TermDictionary words = new TermDictionary();
+    private final TermDictionary tagDictionary = new TermDictionary();
+    private final ConcurrentLinkedQueue<int[][]> documents = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Add the annotations of a document
+     *
+     * @param sentences The annotated sentences of the document
+     */
+    public void add(List<AnnotatedSentence> sentences) {
+        // Each sentence is stored as its length, the tokens and the tags (if any)
+        final int[][] doc = new int[sentences.size()][];
+        int i = 0;
+        for (AnnotatedSentence sentence : sentences) {
+            final int n = sentence.size();
+            final int[] s = new int[sentence.tags == null ? n + 1 : 2 * n + 1];
+            s[0] = n;
+            for (int j = 0; j < n; j++) {
+                s[j + 1] = words.id(sentence.lowerTokens[j]);
+            }
+            if (sentence.tags != null) {
+                for (int j = 0; j < n; j++) {
+                    s[n + j + 1] = tagDictionary.id(sentence.tags[j]);
+                }
+            }
+            doc[i++] = s;
+        }
+        documents.add(doc);
+    }
+
+    /**
+     * The number of documents
+     *
+     * @return The number of documents added
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Iterate over the documents. The sentences returned have only lower-cased
+     * tokens (so that the tokens and lower tokens are the same) and no lemmas
+     *
+     * @return An iterator over the sentences of each document
+     */
+    @Override
+    public Iterator<List<AnnotatedSentence>> iterator() {
+        final Iterator<int[][]> iter = documents.iterator();
+        return new Iterator<List<AnnotatedSentence>>() {
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public List<AnnotatedSentence> next() {
+                return decode(iter.next());
+            }
+        };
+    }
+
+    private List<AnnotatedSentence> decode(int[][] doc) {
+        final List<AnnotatedSentence> sentences = new ArrayList<>(doc.length);
+        for (int[] s : doc) {
+            final int n = s[0];
+            final String[] tokens = new String[n];
+            for (int j = 0; j < n; j++) {
+                tokens[j] = words.term(s[j + 1]);
+            }
+            final String[] tags;
+            if (s.length > n + 1) {
+                tags = new String[n];
+                for (int j = 0; j < n; j++) {
+                    tags[j] = tagDictionary.term(s[n + j + 1]);
+                }
+            } else {
+                tags = null;
+            }
+            sentences.add(new AnnotatedSentence(tokens, tokens, tags, null));
+        }
+        return sentences;
+    }
+}
@@ -0,0 +1,131 @@
+package org.insightcentre.nlp.saffron.term;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.insightcentre.nlp.saffron.data.Document;
+
+import opennlp.tools.lemmatizer.Lemmatizer;
+import opennlp.tools.postag.POSTagger;
+import opennlp.tools.tokenize.Tokenizer;
+
+/**
+ * A single sentence that has been tokenized, tagged and (lazily) lemmatized.
+ * A sentence is annotated once and the annotation is shared by all the
+ * components that read it, so that the OpenNLP models are called only once
+ * per sentence.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class AnnotatedSentence {
+
+    /** The tokens as returned by the tokenizer */
+    public final String[] tokens;
+    /** The tokens in lower case */
+    public final String[] lowerTokens;
+    /** The part-of-speech tags or null if no tagger was given */
+    public final String[] tags;
+    private final Lemmatizer lemmatizer;
+    private String[] lemmas;
+
+    public AnnotatedSentence(String[] tokens, String[] tags, Lemmatizer lemmatizer) {
+        this.tokens = tokens;
+        this.lowerTokens = new String[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            lowerTokens[i] = tokens[i].toLowerCase();
+        }
+        this.tags = tags;
+        this.lemmatizer = lemmatizer;
+    }
+
+    /**
+     * Create a sentence from existing annotations (e.g., read from a cache)
+     *
+     * @param tokens The tokens
+     * @param lowerTokens The tokens in lower case
+     * @param tags The tags (may be null)
+     * @param lemmas The lemmas (may be null)
+     */
+    public AnnotatedSentence(String[] tokens, String[] lowerTokens, String[] tags, String[] lemmas) {
+        this.tokens = tokens;
+        this.lowerTokens = lowerTokens;
+        this.tags = tags;
+        this.lemmatizer = null;
+        this.lemmas = lemmas;
+    }
+
+    /**
+     * The number of tokens in this sentence
+     *
+     * @return The length of the sentence
+     */
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * Get the lemmas of the (lower-cased) tokens of this sentence. The
+     * lemmatizer is called only the first time this method is called.
+     *
+     * @return The lemmas or null if there is no lemmatizer
+     */
+    public String[] lemmas() {
+        if (lemmas == null && lemmatizer != null && tags != null) {
+            lemmas = lemmatizer.lemmatize(lowerTokens, tags);
+        }
+        return lemmas;
+    }
+
+    /**
+     * Annotate a single sentence
+     *
+     * @param sentence The sentence text
+     * @param tokenizer The tokenizer
+     * @param tagger The tagger (or null for no tagging)
+     * @param lemmatizer The lemmatizer (or null for no lemmatization)
+     * @return The annotated sentence
+     */
+    public static AnnotatedSentence annotate(String sentence, Tokenizer tokenizer,
+            POSTagger tagger, Lemmatizer lemmatizer) {
+        String[] tokens;
+        try {
+            tokens = tokenizer.tokenize(sentence);
+        } catch (Exception x) {
+            System.err.println(sentence);
+            throw x;
+        }
+        final String[] tags;
+        if (tagger == null) {
+            tags = null;
+        } else if (tokens.length == 0) {
+            tags = new String[0];
+        } else {
+            tags = tagger.tag(tokens);
+            if (tags.length != tokens.length) {
+                throw new RuntimeException("Tagger did not return same number of tokens as tokenizer");
+            }
+        }
+        return new AnnotatedSentence(tokens, tags, lemmatizer);
+    }
+
+    /**
+     * Annotate every sentence (line) of a document
+     *
+     * @param doc The document
+     * @param tokenizer The tokenizer
+     * @param tagger The tagger (may be null)
+     * @param lemmatizer The lemmatizer (may be null)
+     * @return The list of annotated sentences
+     */
+    public static List<AnnotatedSentence> annotate(Document doc, ThreadLocal<Tokenizer> tokenizer,
+            ThreadLocal<POSTagger> tagger, ThreadLocal<Lemmatizer> lemmatizer) {
+        final Tokenizer tok = tokenizer.get();
+        final POSTagger tag = tagger == null ? null : tagger.get();
+        final Lemmatizer lem = lemmatizer == null ? null : lemmatizer.get();
+        final List<AnnotatedSentence> sentences = new ArrayList<>();
+        for (String sentence : doc.contents().split("\n")) {
+            sentences.add(annotate(sentence, tok, tag, lem));
+        }
+        return sentences;
+    }
+}
@@ -0,0 +1,222 @@
+package org.insightcentre.nlp.saffron.term;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.insightcentre.nlp.saffron.data.Document;
+import org.insightcentre.nlp.saffron.data.SaffronPath;
+
+import opennlp.tools.lemmatizer.Lemmatizer;
+import opennlp.tools.postag.POSTagger;
+import opennlp.tools.tokenize.Tokenizer;
+
+/**
+ * A persistent store of the annotations (tokens, tags and lemmas) of
+ * documents. Each document is stored in its own file keyed by a hash of the
+ * content of the document and the identity of the models used to annotate it,
+ * so that repeated runs over the same corpus do not need to call the
+ * tokenizer, tagger or lemmatizer for documents that have not changed.
+ *
+ * This class is thread-safe: entries are written to a temporary file and then
+ * moved into place.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class AnnotationCache {
+
+    private static final int MAGIC = 0x53414e31;
+    private static final int HAS_TAGS = 1;
+    private static final int HAS_LEMMAS = 2;
+
+    private final File directory;
+    private final String modelIdentity;
+    private final ThreadLocal<Tokenizer> tokenizer;
+    private final ThreadLocal<POSTagger> tagger;
+    private final ThreadLocal<Lemmatizer> lemmatizer;
+
+    /**
+     * Create an annotation cache
+     *
+     * @param directory The directory to store the annotations in
+     * @param modelIdentity A string that identifies the models in use (see
+     * {@link #modelIdentity(SaffronPath...)})
+     * @param tokenizer The tokenizer
+     * @param tagger The tagger (may be null)
+     * @param lemmatizer The lemmatizer (may be null)
+     */
+    public AnnotationCache(File directory, String modelIdentity,
+            ThreadLocal<Tokenizer> tokenizer, ThreadLocal<POSTagger> tagger,
+            ThreadLocal<Lemmatizer> lemmatizer) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create annotation cache at " + directory);
+        }
+        this.directory = directory;
+        this.modelIdentity = modelIdentity;
+        this.tokenizer = tokenizer;
+        this.tagger = tagger;
+        this.lemmatizer = lemmatizer;
+    }
+
+    /**
+     * Create a string identifying a set of models. The identity changes if any
+     * model file is changed
+     *
+     * @param models The paths to the models (elements may be null)
+     * @return A string identifying these models
+     */
+    public static String modelIdentity(SaffronPath... models) {
+        StringBuilder sb = new StringBuilder();
+        for (SaffronPath model : models) {
+            if (model == null) {
+                sb.append("null;");
+            } else {
+                File f = model.toFile();
+                sb.append(f.getAbsolutePath()).append(":").append(f.length())
+                        .append(":").append(f.lastModified()).append(";");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Get the annotations of a document, either from the cache or by
+     * annotating it and storing the result
+     *
+     * @param doc The document
+     * @return The annotated sentences of the document
+     */
+    public List<AnnotatedSentence> annotate(Document doc) {
+        final String contents = doc.contents();
+        final File file = fileFor(contents);
+        if (file.exists()) {
+            try {
+                return read(file);
+            } catch (IOException x) {
+                System.err.println("Could not read cached annotations for " + doc.id + " (" + x.getMessage() + "), reannotating");
+            }
+        }
+        final Tokenizer tok = tokenizer.get();
+        final POSTagger tag = tagger == null ? null : tagger.get();
+        final Lemmatizer lem = lemmatizer == null ? null : lemmatizer.get();
+        final List<AnnotatedSentence> sentences = new ArrayList<>();
+        for (String sentence : contents.split("\n")) {
+            sentences.add(AnnotatedSentence.annotate(sentence, tok, tag, lem));
+        }
+        try {
+            write(file, sentences);
+        } catch (IOException x) {
+            System.err.println("Could not cache annotations for " + doc.id + ": " + x.getMessage());
+        }
+        return sentences;
+    }
+
+    private File fileFor(String contents) {
+        final String key = hash(contents);
+        return new File(new File(directory, key.substring(0, 2)), key + ".ann");
+    }
+
+    private String hash(String contents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelIdentity.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(contents.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    private static List<AnnotatedSentence> read(File file) throws IOException {
+        // The files are small, so they are read rather than mapped
+        final ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        try {
+            if (buf.getInt() != MAGIC) {
+                throw new IOException("Not an annotation file");
+            }
+            final int n = buf.getInt();
+            final List<AnnotatedSentence> sentences = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                final int flags = buf.get();
+                final String[] tokens = readStrings(buf);
+                final String[] lowerTokens = new String[tokens.length];
+                for (int j = 0; j < tokens.length; j++) {
+                    lowerTokens[j] = tokens[j].toLowerCase();
+                }
+                final String[] tags = (flags & HAS_TAGS) != 0 ? readStrings(buf) : null;
+                final String[] lemmas = (flags & HAS_LEMMAS) != 0 ? readStrings(buf) : null;
+                sentences.add(new AnnotatedSentence(tokens, lowerTokens, tags, lemmas));
+            }
+            return sentences;
+        } catch (RuntimeException x) {
+            throw new IOException("Corrupt annotation file", x);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buf) {
+        final String[] strings = new String[buf.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            final byte[] b = new byte[buf.getInt()];
+            buf.get(b);
+            strings[i] = new String(b, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static void write(File file, List<AnnotatedSentence> sentences) throws IOException {
+        final File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+            throw new IOException("Could not create " + dir);
+        }
+        final File tmp = File.createTempFile("ann", ".tmp", dir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(sentences.size());
+                for (AnnotatedSentence s : sentences) {
+                    final String[] lemmas = s.lemmas();
+                    out.writeByte((s.tags != null ? HAS_TAGS : 0) | (lemmas != null ? HAS_LEMMAS : 0));
+                    writeStrings(out, s.tokens);
+                    if (s.tags != null) {
+                        writeStrings(out, s.tags);
+                    }
+                    if (lemmas != null) {
+                        writeStrings(out, lemmas);
+                    }
+                }
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException x) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        out.writeInt(strings.length);
+        for (String s : strings) {
+            final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+}
@@ -14,11 +14,21 @@ public class CasingStats {
     public final HashMap<String, Object2IntOpenHashMap<String>> casing = new HashMap<>();
     
     public void addCasing(String term) {
-        String termLc = term.toLowerCase();
-        if(!casing.containsKey(term)) {
-            casing.put(termLc, new Object2IntOpenHashMap<String>());
+        addCasing(term.toLowerCase(), term);
+    }
+
+    /**
+     * Count an occurrence of a term where the lower case form is already known
+     * @param termLc The term in lower case
+     * @param term The term as it occurred
+     */
+    public void addCasing(String termLc, String term) {
+        Object2IntOpenHashMap<String> counts = casing.get(termLc);
+        if(counts == null) {
+            counts = new Object2IntOpenHashMap<String>();
+            casing.put(termLc, counts);
         }
-        casing.get(termLc).put(term, casing.get(termLc).getInt(term) + 1);
+        counts.addTo(term, 1);
     }
 
     public String trueCase(String term) {
@@ -0,0 +1,224 @@
+package org.insightcentre.nlp.saffron.term;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
+
+/**
+ * The occurrences of candidate terms in each document, written to a temporary
+ * file during the scan of the corpus instead of being held as
+ * {@link DocumentTerm} objects. Only the document terms of the terms that are
+ * finally selected are read back (see {@link #select(Collection)}), so the
+ * memory used is bounded by the output rather than by the number of
+ * candidates.
+ *
+ * Each document is stored as its index, the number of terms and then the id
+ * (in the term dictionary) and frequency of each term.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class DocumentTermSpill implements Iterable<DocumentTerm>, Closeable {
+
+    private final TermDictionary dictionary;
+    private final File file;
+    private final DataOutputStream out;
+    private final List<String> documents = new ArrayList<>();
+    private boolean finished = false;
+
+    /**
+     * Create a spill in a new temporary file
+     *
+     * @param dictionary The dictionary the term ids are taken from
+     * @throws IOException If the temporary file cannot be created
+     */
+    public DocumentTermSpill(TermDictionary dictionary) throws IOException {
+        this.dictionary = dictionary;
+        this.file = File.createTempFile("docterms", ".bin");
+        this.file.deleteOnExit();
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    /**
+     * The dictionary of the term ids
+     *
+     * @return The dictionary
+     */
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Add the terms of a document. This may be called by several threads
+     *
+     * @param documentId The identifier of the document
+     * @param termFrequency The frequency of each term (by id) in the document
+     */
+    public synchronized void add(String documentId, Int2IntMap termFrequency) {
+        if (finished) {
+            throw new IllegalStateException("Document terms cannot be added after they have been read");
+        }
+        try {
+            out.writeInt(documents.size());
+            documents.add(documentId);
+            out.writeInt(termFrequency.size());
+            for (Int2IntMap.Entry e : termFrequency.int2IntEntrySet()) {
+                out.writeInt(e.getIntKey());
+                out.writeInt(e.getIntValue());
+            }
+        } catch (IOException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * The number of documents added
+     *
+     * @return The number of documents
+     */
+    public synchronized int documentCount() {
+        return documents.size();
+    }
+
+    /**
+     * Read the document terms of some terms only
+     *
+     * @param terms The terms to read
+     * @return The document terms of these terms
+     */
+    public List<DocumentTerm> select(Collection<String> terms) {
+        final IntSet ids = new IntOpenHashSet();
+        for (String term : terms) {
+            final int id = dictionary.lookup(term);
+            if (id >= 0) {
+                ids.add(id);
+            }
+        }
+        final List<DocumentTerm> result = new ArrayList<>();
+        final Reader r = new Reader(ids);
+        try {
+            while (r.hasNext()) {
+                result.add(r.next());
+            }
+        } finally {
+            r.close();
+        }
+        return result;
+    }
+
+    /**
+     * Iterate over all the document terms. The iterator reads the file as it
+     * goes and closes it when the end is reached
+     *
+     * @return An iterator of all document terms
+     */
+    @Override
+    public Iterator<DocumentTerm> iterator() {
+        return new Reader(null);
+    }
+
+    private synchronized void finish() throws IOException {
+        if (!finished) {
+            out.close();
+            finished = true;
+        }
+    }
+
+    /**
+     * Delete the temporary file
+     */
+    @Override
+    public void close() throws IOException {
+        finish();
+        file.delete();
+    }
+
+    private class Reader implements Iterator<DocumentTerm> {
+
+        private final IntSet ids;
+        private DataInputStream in;
+        private String document;
+        private int remaining = 0;
+        private DocumentTerm next;
+
+        public Reader(IntSet ids) {
+            this.ids = ids;
+            try {
+                finish();
+                this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            } catch (IOException x) {
+                throw new RuntimeException(x);
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            try {
+                while (next == null && in != null) {
+                    if (remaining == 0) {
+                        final int doc;
+                        try {
+                            doc = in.readInt();
+                        } catch (EOFException x) {
+                            close();
+                            return;
+                        }
+                        document = documents.get(doc);
+                        remaining = in.readInt();
+                        continue;
+                    }
+                    final int id = in.readInt();
+                    final int tf = in.readInt();
+                    remaining--;
+                    if (ids == null || ids.contains(id)) {
+                        next = new DocumentTerm(document, dictionary.term(id), tf, null, null, null);
+                    }
+                }
+            } catch (IOException x) {
+                throw new RuntimeException(x);
+            }
+        }
+
+        private void close() {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException x) {
+                    throw new RuntimeException(x);
+                }
+                in = null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public DocumentTerm next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final DocumentTerm dt = next;
+            advance();
+            return dt;
+        }
+    }
+}
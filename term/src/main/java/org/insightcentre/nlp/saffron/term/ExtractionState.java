@@ -0,0 +1,254 @@
+package org.insightcentre.nlp.saffron.term;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
+import org.insightcentre.nlp.saffron.term.domain.DomainModelTermRelation;
+
+/**
+ * The mergeable statistics of a term extraction run. These are saved after
+ * each run so that a later run only needs to process the documents that have
+ * been added to the corpus since.
+ *
+ * The frequency statistics are stored before filtering by minimum frequency,
+ * so that terms that become frequent in later runs are counted correctly.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class ExtractionState {
+
+    /** The frequency statistics (not filtered) */
+    public final FrequencyStats frequencyStats;
+    /** The casing statistics */
+    public final CasingStats casing;
+    /** The temporal frequency statistics (or null if no interval is used) */
+    public final TemporalFrequencyStats temporalFrequencyStats;
+    /** The correspondence between domain model terms and terms */
+    public final RelationshipStats relationshipStats;
+    /** The terms extracted from each document */
+    public final List<DocumentTerm> documentTerms;
+    /** The identifiers of the documents that have been processed */
+    public final Set<String> documents;
+
+    public ExtractionState(FrequencyStats frequencyStats, CasingStats casing,
+            TemporalFrequencyStats temporalFrequencyStats, RelationshipStats relationshipStats,
+            List<DocumentTerm> documentTerms, Set<String> documents) {
+        this.frequencyStats = frequencyStats;
+        this.casing = casing;
+        this.temporalFrequencyStats = temporalFrequencyStats;
+        this.relationshipStats = relationshipStats;
+        this.documentTerms = documentTerms;
+        this.documents = documents;
+    }
+
+    /**
+     * Create the state of a run in which no document has been processed
+     *
+     * @param interval The interval for temporal statistics (or null)
+     */
+    public ExtractionState(Duration interval) {
+        this(new FrequencyStats(), new CasingStats(),
+                interval == null ? null : new TemporalFrequencyStats(interval),
+                new RelationshipStats(), new ArrayList<DocumentTerm>(), new HashSet<String>());
+    }
+
+    /**
+     * Merge the statistics of newly processed documents into this state. The
+     * temporal statistics are not included as they are updated in place
+     *
+     * @param stats The frequency statistics of the new documents (not filtered)
+     * @param casing The casing statistics of the new documents
+     * @param relationshipStats The relations of the new documents
+     * @param documentTerms The document terms of the new documents
+     * @param documents The identifiers of the new documents
+     */
+    public void add(FrequencyStats stats, CasingStats casing, RelationshipStats relationshipStats,
+            Collection<DocumentTerm> documentTerms, Collection<String> documents) {
+        this.frequencyStats.add(stats);
+        this.casing.add(casing);
+        this.relationshipStats.add(relationshipStats);
+        this.documentTerms.addAll(documentTerms);
+        this.documents.addAll(documents);
+    }
+
+    /**
+     * Read a saved state
+     *
+     * @param file The file (gzipped if the name ends with .gz)
+     * @return The state
+     * @throws IOException If the file cannot be read
+     */
+    public static ExtractionState read(File file) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        FrequencyStats frequencyStats = new FrequencyStats();
+        CasingStats casing = new CasingStats();
+        TemporalFrequencyStats temporal = null;
+        RelationshipStats relationshipStats = new RelationshipStats();
+        List<DocumentTerm> documentTerms = new ArrayList<>();
+        Set<String> documents = new HashSet<>();
+        try (InputStream in = openInput(file);
+                JsonParser p = mapper.getFactory().createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Extraction state is not a JSON object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = p.getCurrentName();
+                p.nextToken();
+                switch (field) {
+                    case "frequencies":
+                        frequencyStats = mapper.readValue(p, FrequencyStats.class);
+                        break;
+                    case "casing":
+                        final Map<String, Map<String, Integer>> c = mapper.readValue(p,
+                                new TypeReference<Map<String, Map<String, Integer>>>() {
+                        });
+                        for (Map.Entry<String, Map<String, Integer>> e : c.entrySet()) {
+                            casing.casing.put(e.getKey(), new Object2IntOpenHashMap<>(e.getValue()));
+                        }
+                        break;
+                    case "temporal":
+                        temporal = readTemporal(p, mapper);
+                        break;
+                    case "relations":
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            final DomainModelTermRelation r = mapper.readValue(p, DomainModelTermRelation.class);
+                            relationshipStats.addRelation(r.getDomainTerm(), r.getTerm(), r.getFrequency());
+                        }
+                        break;
+                    case "documentTerms":
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            documentTerms.add(mapper.readValue(p, DocumentTerm.class));
+                        }
+                        break;
+                    case "documents":
+                        while (p.nextToken() != JsonToken.END_ARRAY) {
+                            documents.add(p.getText());
+                        }
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+        }
+        return new ExtractionState(frequencyStats, casing, temporal, relationshipStats, documentTerms, documents);
+    }
+
+    private static TemporalFrequencyStats readTemporal(JsonParser p, ObjectMapper mapper) throws IOException {
+        Duration interval = null;
+        LocalDateTime start = null;
+        List<FrequencyStats> freqs = new ArrayList<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "interval":
+                    interval = Duration.ofSeconds(p.getLongValue());
+                    break;
+                case "start":
+                    start = p.getCurrentToken() == JsonToken.VALUE_NULL ? null : LocalDateTime.parse(p.getText());
+                    break;
+                case "frequencies":
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        freqs.add(mapper.readValue(p, FrequencyStats.class));
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        if (interval == null) {
+            throw new IOException("Temporal statistics do not have an interval");
+        }
+        return new TemporalFrequencyStats(interval, start, freqs);
+    }
+
+    /**
+     * Save this state. The state is written to a temporary file first so that
+     * a failed write does not destroy the previous state
+     *
+     * @param file The file (gzipped if the name ends with .gz)
+     * @throws IOException If the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final File dir = file.getAbsoluteFile().getParentFile();
+        final File tmp = File.createTempFile("state", ".tmp", dir);
+        try {
+            try (OutputStream out = openOutput(tmp, file.getName().endsWith(".gz"));
+                    JsonGenerator g = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                g.writeStartObject();
+                g.writeFieldName("frequencies");
+                mapper.writeValue(g, frequencyStats);
+                g.writeFieldName("casing");
+                mapper.writeValue(g, casing.casing);
+                if (temporalFrequencyStats != null) {
+                    g.writeObjectFieldStart("temporal");
+                    g.writeNumberField("interval", temporalFrequencyStats.getInterval().getSeconds());
+                    if (temporalFrequencyStats.getStart() != null) {
+                        g.writeStringField("start", temporalFrequencyStats.getStart().toString());
+                    }
+                    g.writeArrayFieldStart("frequencies");
+                    for (FrequencyStats fs : temporalFrequencyStats.freqs) {
+                        mapper.writeValue(g, fs);
+                    }
+                    g.writeEndArray();
+                    g.writeEndObject();
+                }
+                g.writeArrayFieldStart("relations");
+                for (DomainModelTermRelation r : relationshipStats.getRelations()) {
+                    mapper.writeValue(g, r);
+                }
+                g.writeEndArray();
+                g.writeArrayFieldStart("documentTerms");
+                for (DocumentTerm dt : documentTerms) {
+                    mapper.writeValue(g, dt);
+                }
+                g.writeEndArray();
+                g.writeArrayFieldStart("documents");
+                for (String doc : documents) {
+                    g.writeString(doc);
+                }
+                g.writeEndArray();
+                g.writeEndObject();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static InputStream openInput(File file) throws IOException {
+        final InputStream in = new BufferedInputStream(new FileInputStream(file));
+        return file.getName().endsWith(".gz") ? new GZIPInputStream(in) : in;
+    }
+
+    private static OutputStream openOutput(File file, boolean gzip) throws IOException {
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        return gzip ? new GZIPOutputStream(out) : out;
+    }
+}
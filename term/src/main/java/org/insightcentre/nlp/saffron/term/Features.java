@@ -14,7 +14,7 @@ public class Features {
 
     public static double calcFeature(
             TermExtractionConfiguration.Feature feat,
-            String term, FrequencyStats stats, Lazy<FrequencyStats> ref,
+            String term, FrequencyStats stats, Lazy<? extends ReferenceFrequencies> ref,
             Lazy<InclusionStats> incl, Lazy<NovelTopicModel> topicModel,
             Lazy<DomainStats> domain, TemporalFrequencyStats tempStats,
             SaffronListener log) throws IntervalTooLong {
@@ -58,10 +58,27 @@ public class Features {
 
     private static double EPS = 0.1;
 
-    public static double weirdness(String term, FrequencyStats stats, FrequencyStats ref) {
+    /**
+     * The number of (space-separated) tokens in a term. This is the same as
+     * <code>term.split(" ").length</code> for terms without repeated or
+     * trailing spaces, but does not allocate.
+     * @param term The term
+     * @return The number of tokens
+     */
+    public static int tokenCount(String term) {
+        int n = 1;
+        for (int i = 0; i < term.length(); i++) {
+            if (term.charAt(i) == ' ') {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    public static double weirdness(String term, FrequencyStats stats, ReferenceFrequencies ref) {
         int i = stats.termFrequency.getInt(term);
-        int j = ref.termFrequency.getInt(term);
-        return ((double) i + EPS) * (ref.tokens + EPS) / ((double) j + EPS) / (stats.tokens + EPS);
+        int j = ref.getTermFrequency(term);
+        return ((double) i + EPS) * (ref.getTokens() + EPS) / ((double) j + EPS) / (stats.tokens + EPS);
     }
 
     public static double termFreq(String term, FrequencyStats stats) {
@@ -94,11 +111,11 @@ public class Features {
 
     public static double cValue(String term, FrequencyStats freq, InclusionStats incl) {
         double tf = freq.termFrequency.getInt(term) + EPS;
-        double t = term.split(" ").length;
+        double t = tokenCount(term);
         double subtf = 0.0;
-        if (incl.subTerms.containsKey(term)) {
-            final Set<String> subterms = incl.superTerms.get(term);
-            if (subterms != null) {
+        if (incl.getSubTermCount(term) > 0) {
+            final Set<String> subterms = incl.getSuperTerms(term);
+            if (!subterms.isEmpty()) {
                 for (String subterm : subterms) {
                     subtf += freq.termFrequency.getInt(subterm) + EPS;
                 }
@@ -110,40 +127,40 @@ public class Features {
 
     public static double basic(String term, double alpha, FrequencyStats freq, InclusionStats incl) {
         double tf = freq.termFrequency.getInt(term) + EPS;
-        double t = term.split(" ").length;
-        double et = incl.superTerms.containsKey(term) ? incl.superTerms.get(term).size() : 0.0;
+        double t = tokenCount(term);
+        double et = incl.getSuperTermCount(term);
         return t * log2(tf) + alpha * et;
     }
     
     public static double futureBasic(String term, double alpha, TemporalFrequencyStats freq, InclusionStats incl, double futureAmount, SaffronListener log) throws IntervalTooLong {
         double tf = freq.predict(term, (int)(freq.freqs.size() * futureAmount), 2);
-        double t = term.split(" ").length;
-        double et = incl.superTerms.containsKey(term) ? incl.superTerms.get(term).size() : 0.0;
+        double t = tokenCount(term);
+        double et = incl.getSuperTermCount(term);
         return t * log2(tf) + alpha * et;
     }
 
     public static double basicCombo(String term, double alpha, double beta, FrequencyStats freq, InclusionStats incl) {
         double tf = freq.termFrequency.getInt(term) + EPS;
-        double t = term.split(" ").length;
-        double et = incl.superTerms.containsKey(term) ? incl.superTerms.get(term).size() : 0.0;
-        double et2 = incl.subTerms.getInt(term);
+        double t = tokenCount(term);
+        double et = incl.getSuperTermCount(term);
+        double et2 = incl.getSubTermCount(term);
         return t * log2(tf) + alpha * et + beta * et2;
     }
 
     
     public static double futureBasicCombo(String term, double alpha, double beta, TemporalFrequencyStats freq, InclusionStats incl, double futureAmount, SaffronListener log) throws IntervalTooLong {
         double tf = freq.predict(term, (int)(freq.freqs.size() * futureAmount), 2);
-        double t = term.split(" ").length;
-        double et = incl.superTerms.containsKey(term) ? incl.superTerms.get(term).size() : 0.0;
-        double et2 = incl.subTerms.getInt(term);
+        double t = tokenCount(term);
+        double et = incl.getSuperTermCount(term);
+        double et2 = incl.getSubTermCount(term);
         return t * log2(tf) + alpha * et + beta * et2;
     }
 
     
-    public static double relevance(String term, FrequencyStats freq, FrequencyStats ref) {
+    public static double relevance(String term, FrequencyStats freq, ReferenceFrequencies ref) {
         double ntf1 = ((double) freq.termFrequency.getInt(term) + EPS) / (freq.tokens + EPS);
         double df = (double) freq.docFrequency.getInt(term) / freq.documents;
-        double ntf2 = ((double) ref.termFrequency.getInt(term) + EPS) / (ref.tokens + EPS);
+        double ntf2 = ((double) ref.getTermFrequency(term) + EPS) / (ref.getTokens() + EPS);
 
         return 1.0 - 1.0 / (log2(2.0 + ntf1 * df / ntf2));
     }
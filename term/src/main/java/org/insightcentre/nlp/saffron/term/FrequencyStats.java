@@ -11,12 +11,22 @@ import java.util.Objects;
  * documents
  * @author John McCrae &lt;john@mccr.ae&gt;
  */
-public class FrequencyStats {
+public class FrequencyStats implements ReferenceFrequencies {
     public Object2IntOpenHashMap<String> termFrequency = new Object2IntOpenHashMap<>();
     public Object2IntOpenHashMap<String> docFrequency = new Object2IntOpenHashMap<>();
     public long tokens = 0;
     public long documents = 0;
         
+    @Override
+    public int getTermFrequency(String term) {
+        return termFrequency.getInt(term);
+    }
+
+    @Override
+    public long getTokens() {
+        return tokens;
+    }
+
     /**
      * Combine a second frequency statistic into this one
      * @param other The other frequency statistic
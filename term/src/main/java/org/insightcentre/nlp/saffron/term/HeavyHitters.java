@@ -0,0 +1,219 @@
+package org.insightcentre.nlp.saffron.term;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+/**
+ * An approximate count of the most frequent candidate terms, in memory that
+ * is fixed by its configuration rather than by the size of the vocabulary.
+ * Every occurrence is counted in a Count-Min sketch, and a table holds the
+ * terms with the highest estimated counts. When the table is full, a new term
+ * replaces the term with the lowest count if its estimate is higher.
+ *
+ * The estimates never undercount a term. A term may however be left out of
+ * the table if more than {@code capacity} terms are more frequent than it.
+ * The terms are identified by a 64-bit hash, so no strings are held.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class HeavyHitters {
+
+    /**
+     * The number of rows (hash functions) of the sketch
+     */
+    public static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int capacity;
+    private final int width;
+    private final int[] sketch;
+    private long total = 0;
+    // A min-heap of the table by count, with the position of each key
+    private final long[] keys;
+    private final int[] counts;
+    private int size = 0;
+    private final Long2IntOpenHashMap position = new Long2IntOpenHashMap();
+    private final int[] buckets = new int[DEPTH];
+
+    /**
+     * Create an empty count
+     *
+     * @param capacity The number of terms held in the table
+     * @param width The number of counters in each row of the sketch, which is
+     * rounded up to a power of two
+     */
+    public HeavyHitters(int capacity, int width) {
+        if (capacity <= 0 || width <= 0) {
+            throw new IllegalArgumentException("The capacity and width must be positive");
+        }
+        this.capacity = capacity;
+        this.width = Integer.highestOneBit(width) == width ? width : Integer.highestOneBit(width) << 1;
+        this.sketch = new int[DEPTH * this.width];
+        this.keys = new long[capacity];
+        this.counts = new int[capacity];
+        this.position.defaultReturnValue(-1);
+    }
+
+    private int bucket(long key, int row) {
+        long h = (key ^ SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 31)) * 0x94D049BB133111EBL;
+        return row * width + (int) ((h ^ (h >>> 29)) & (width - 1));
+    }
+
+    /**
+     * Count an occurrence of a term
+     *
+     * @param key The hash of the term
+     */
+    public void offer(long key) {
+        total++;
+        // Conservative update: only the counters at the minimum are raised
+        int est = Integer.MAX_VALUE;
+        for (int r = 0; r < DEPTH; r++) {
+            buckets[r] = bucket(key, r);
+            est = Math.min(est, sketch[buckets[r]]);
+        }
+        est++;
+        for (int r = 0; r < DEPTH; r++) {
+            if (sketch[buckets[r]] < est) {
+                sketch[buckets[r]] = est;
+            }
+        }
+        consider(key, est);
+    }
+
+    /**
+     * The estimated number of occurrences of a term
+     *
+     * @param key The hash of the term
+     * @return The estimate, which is at least the true count
+     */
+    public int estimate(long key) {
+        int est = Integer.MAX_VALUE;
+        for (int r = 0; r < DEPTH; r++) {
+            est = Math.min(est, sketch[bucket(key, r)]);
+        }
+        return est;
+    }
+
+    private void consider(long key, int count) {
+        final int p = position.get(key);
+        if (p >= 0) {
+            counts[p] = count;
+            siftDown(p);
+        } else if (size < capacity) {
+            keys[size] = key;
+            counts[size] = count;
+            position.put(key, size);
+            siftUp(size++);
+        } else if (count > counts[0]) {
+            position.remove(keys[0]);
+            keys[0] = key;
+            counts[0] = count;
+            position.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (counts[parent] <= counts[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            final int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            final int child = left + 1 < size && counts[left + 1] < counts[left] ? left + 1 : left;
+            if (counts[i] <= counts[child]) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        final long k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        final int c = counts[i];
+        counts[i] = counts[j];
+        counts[j] = c;
+        position.put(keys[i], i);
+        position.put(keys[j], j);
+    }
+
+    /**
+     * Combine a second count into this one. The table then holds the terms of
+     * both tables with the highest combined estimates
+     *
+     * @param other The other count, which must have the same width
+     */
+    public void add(HeavyHitters other) {
+        if (other.width != width) {
+            throw new IllegalArgumentException("Cannot combine sketches of different widths");
+        }
+        for (int i = 0; i < sketch.length; i++) {
+            sketch[i] += other.sketch[i];
+        }
+        total += other.total;
+        final LongOpenHashSet union = new LongOpenHashSet(size + other.size);
+        for (int i = 0; i < size; i++) {
+            union.add(keys[i]);
+        }
+        for (int i = 0; i < other.size; i++) {
+            union.add(other.keys[i]);
+        }
+        size = 0;
+        position.clear();
+        for (long key : union) {
+            consider(key, estimate(key));
+        }
+    }
+
+    /**
+     * The terms in the table that may occur at least a given number of times
+     *
+     * @param minFrequency The minimum frequency
+     * @return The hashes of the terms whose estimate is at least the minimum
+     */
+    public LongSet candidates(int minFrequency) {
+        final LongOpenHashSet result = new LongOpenHashSet();
+        for (int i = 0; i < size; i++) {
+            if (estimate(keys[i]) >= minFrequency) {
+                result.add(keys[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The number of terms in the table
+     *
+     * @return The number of terms
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The number of occurrences counted
+     *
+     * @return The total count
+     */
+    public long getTotal() {
+        return total;
+    }
+}
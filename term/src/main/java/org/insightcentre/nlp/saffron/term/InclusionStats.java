@@ -1,43 +1,217 @@
 package org.insightcentre.nlp.saffron.term;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import static org.insightcentre.nlp.saffron.term.TermExtractionTask.join;
+import java.util.stream.IntStream;
 
 /**
+ * The inclusion of terms in one another, where a term is included in a
+ * (longer) term if its tokens form a contiguous span of that term.
+ *
+ * The terms are inserted into a trie over token identifiers. The sub-terms of
+ * a term are found by walking the trie from each token of the term, so no
+ * string is created for any span, and the terms are processed in parallel.
+ * The super-terms of each term are stored as a sorted array of term
+ * identifiers.
  *
  * @author John McCrae &lt;john@mccr.ae&gt;
  */
 public class InclusionStats {
 
-    public final Map<String, Set<String>> superTerms = new HashMap<>();
-    public final Object2IntMap<String> subTerms = new Object2IntOpenHashMap<>();
+    private static final int[] NONE = new int[0];
+
+    private final String[] terms;
+    private final Object2IntOpenHashMap<String> termIds;
+    private final int[][] superTerms;
+    private final int[] subTerms;
 
     public InclusionStats(Object2IntMap<String> freqs) {
-        calcInclusions(freqs);
-    }
-
-    private void calcInclusions(Object2IntMap<String> freqs) {
-        for (String term : freqs.keySet()) {
-            String[] tokens = term.split(" ");
-            for (int i = 0; i < tokens.length; i++) {
-                for (int j = i + 1; j <= tokens.length; j++) {
-                    if (j - i != tokens.length) {
-                        String t = join(tokens, i, j - 1);
-                        if (freqs.containsKey(t)) {
-                            if (!superTerms.containsKey(t)) {
-                                superTerms.put(t, new HashSet<String>());
-                            }
-                            subTerms.put(term, subTerms.getInt(term) + 1);
-                            superTerms.get(t).add(term);
-                        }
+        this.terms = freqs.keySet().toArray(new String[freqs.size()]);
+        this.termIds = new Object2IntOpenHashMap<>(terms.length);
+        termIds.defaultReturnValue(-1);
+        for (int i = 0; i < terms.length; i++) {
+            termIds.put(terms[i], i);
+        }
+        this.subTerms = new int[terms.length];
+        this.superTerms = calcInclusions();
+    }
+
+    private int[][] calcInclusions() {
+        // Convert each term to token identifiers and insert it into the trie
+        final Object2IntOpenHashMap<String> tokenIds = new Object2IntOpenHashMap<>();
+        tokenIds.defaultReturnValue(-1);
+        final int[][] tokens = new int[terms.length][];
+        final Long2IntOpenHashMap children = new Long2IntOpenHashMap();
+        children.defaultReturnValue(-1);
+        final IntArrayList nodeTerm = new IntArrayList();
+        nodeTerm.add(-1);
+        for (int i = 0; i < terms.length; i++) {
+            final String[] tks = terms[i].split(" ", -1);
+            final int[] ids = new int[tks.length];
+            int node = 0;
+            for (int j = 0; j < tks.length; j++) {
+                int id = tokenIds.getInt(tks[j]);
+                if (id < 0) {
+                    id = tokenIds.size();
+                    tokenIds.put(tks[j], id);
+                }
+                ids[j] = id;
+                final long key = edge(node, id);
+                int child = children.get(key);
+                if (child < 0) {
+                    child = nodeTerm.size();
+                    nodeTerm.add(-1);
+                    children.put(key, child);
+                }
+                node = child;
+            }
+            nodeTerm.set(node, i);
+            tokens[i] = ids;
+        }
+
+        // Find the sub-terms of each term (the trie is only read from here on)
+        final int[][] subs = new int[terms.length][];
+        IntStream.range(0, terms.length).parallel().forEach(t -> {
+            final int[] ids = tokens[t];
+            final IntArrayList found = new IntArrayList();
+            for (int i = 0; i < ids.length; i++) {
+                int node = 0;
+                for (int j = i; j < ids.length; j++) {
+                    node = children.get(edge(node, ids[j]));
+                    if (node < 0) {
+                        break;
+                    }
+                    final int sub = nodeTerm.getInt(node);
+                    if (sub >= 0 && j + 1 - i != ids.length) {
+                        found.add(sub);
                     }
                 }
             }
+            subTerms[t] = found.size();
+            final int[] s = found.toIntArray();
+            IntArrays.quickSort(s);
+            subs[t] = unique(s);
+        });
+
+        // Invert the sub-terms to get the super-terms
+        final int[] counts = new int[terms.length];
+        for (int[] s : subs) {
+            for (int sub : s) {
+                counts[sub]++;
+            }
+        }
+        final int[][] supers = new int[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            supers[i] = counts[i] == 0 ? NONE : new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int t = 0; t < terms.length; t++) {
+            for (int sub : subs[t]) {
+                supers[sub][counts[sub]++] = t;
+            }
+        }
+        return supers;
+    }
+
+    private static long edge(int node, int token) {
+        return ((long) node << 32) | (token & 0xffffffffL);
+    }
+
+    private static int[] unique(int[] sorted) {
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+
+    /**
+     * Get the terms that contain a term
+     *
+     * @param term The term
+     * @return The (longer) terms that contain this term as a span
+     */
+    public Set<String> getSuperTerms(String term) {
+        final int id = termIds.getInt(term);
+        if (id < 0 || superTerms[id].length == 0) {
+            return Collections.emptySet();
+        }
+        return new TermSet(superTerms[id]);
+    }
+
+    /**
+     * Get the number of terms that contain a term
+     *
+     * @param term The term
+     * @return The number of (longer) terms that contain this term as a span
+     */
+    public int getSuperTermCount(String term) {
+        final int id = termIds.getInt(term);
+        return id < 0 ? 0 : superTerms[id].length;
+    }
+
+    /**
+     * Get the number of sub-terms of a term
+     *
+     * @param term The term
+     * @return The number of spans of this term that are also terms
+     */
+    public int getSubTermCount(String term) {
+        final int id = termIds.getInt(term);
+        return id < 0 ? 0 : subTerms[id];
+    }
+
+    /**
+     * A read-only view of a set of term identifiers as strings
+     */
+    private class TermSet extends AbstractSet<String> {
+
+        private final int[] ids;
+
+        public TermSet(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < ids.length;
+                }
+
+                @Override
+                public String next() {
+                    if (i >= ids.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return terms[ids[i++]];
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            final int id = termIds.getInt(o);
+            return id >= 0 && Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
         }
     }
 }
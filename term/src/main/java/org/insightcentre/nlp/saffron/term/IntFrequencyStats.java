@@ -0,0 +1,55 @@
+package org.insightcentre.nlp.saffron.term;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+/**
+ * Frequency statistics keyed by the ids of a {@link TermDictionary}. These are
+ * used while counting, as they avoid holding a string key for each term in
+ * every partial statistic, and are converted to {@link FrequencyStats} once
+ * counting is complete.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class IntFrequencyStats {
+
+    public final Int2IntOpenHashMap termFrequency = new Int2IntOpenHashMap();
+    public final Int2IntOpenHashMap docFrequency = new Int2IntOpenHashMap();
+    public long tokens = 0;
+    public long documents = 0;
+
+    /**
+     * Combine a second frequency statistic into this one
+     *
+     * @param other The other frequency statistic (using the same dictionary)
+     */
+    public void add(IntFrequencyStats other) {
+        for (Int2IntMap.Entry e : other.termFrequency.int2IntEntrySet()) {
+            termFrequency.addTo(e.getIntKey(), e.getIntValue());
+        }
+        for (Int2IntMap.Entry e : other.docFrequency.int2IntEntrySet()) {
+            docFrequency.addTo(e.getIntKey(), e.getIntValue());
+        }
+        tokens += other.tokens;
+        documents += other.documents;
+    }
+
+    /**
+     * Convert to string-keyed frequency statistics
+     *
+     * @param dictionary The dictionary the ids were taken from
+     * @return The frequency statistics
+     */
+    public FrequencyStats toFrequencyStats(TermDictionary dictionary) {
+        final FrequencyStats stats = new FrequencyStats();
+        for (Int2IntMap.Entry e : termFrequency.int2IntEntrySet()) {
+            stats.termFrequency.put(dictionary.term(e.getIntKey()), e.getIntValue());
+        }
+        for (Int2IntMap.Entry e : docFrequency.int2IntEntrySet()) {
+            stats.docFrequency.put(dictionary.term(e.getIntKey()), e.getIntValue());
+        }
+        stats.tokens = tokens;
+        stats.documents = documents;
+        return stats;
+    }
+}
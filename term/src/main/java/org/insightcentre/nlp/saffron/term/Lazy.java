@@ -1,18 +1,25 @@
 package org.insightcentre.nlp.saffron.term;
 
 /**
- * A lazy loaded variable 
+ * A lazy loaded variable. This may be shared between threads, in which case
+ * it is initialized only once.
  * @author John McCrae
  */
 public abstract class Lazy<X> {
 
-    private X x;
+    private volatile X x;
 
     public X get() {
-        if (x == null) {
-            x = init();
+        X result = x;
+        if (result == null) {
+            synchronized (this) {
+                result = x;
+                if (result == null) {
+                    result = x = init();
+                }
+            }
         }
-        return x;
+        return result;
     }
 
     protected abstract X init();
@@ -0,0 +1,239 @@
+package org.insightcentre.nlp.saffron.term;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A reference corpus stored as a sorted binary table that is memory-mapped
+ * rather than loaded onto the heap. The operating system shares the pages of
+ * the file between all runs and processes that use it, and an instance is
+ * shared by all users within the JVM (see {@link #open(File)}).
+ *
+ * The file consists of a header (magic number, version, token count, document
+ * count and number of terms), an index of fixed-size entries (offset of the
+ * term, term frequency and document frequency) sorted by the UTF-8 bytes of
+ * the term, and the terms themselves, each prefixed by its length. Lookups are
+ * a binary search over the index. The terms are stored in blocks of 1GB, no
+ * term crosses a block boundary, so that files larger than 2GB can be mapped.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class MappedReferenceCorpus implements ReferenceFrequencies {
+
+    private static final int MAGIC = 0x53524631;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int ENTRY_SIZE = 16;
+    private static final int BLOCK_BITS = 30;
+    private static final long BLOCK_SIZE = 1L << BLOCK_BITS;
+    private static final ConcurrentHashMap<String, MappedReferenceCorpus> OPEN = new ConcurrentHashMap<>();
+
+    private final MappedByteBuffer index;
+    private final MappedByteBuffer[] blocks;
+    private final long tokens;
+    private final long documents;
+    private final int size;
+    private final long lastModified;
+
+    private MappedReferenceCorpus(File file) throws IOException {
+        this.lastModified = file.lastModified();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a binary reference corpus");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(file + " has unsupported version " + header.getInt(4));
+            }
+            this.tokens = header.getLong(8);
+            this.documents = header.getLong(16);
+            this.size = header.getInt(24);
+            this.index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) size * ENTRY_SIZE);
+            final long blobStart = HEADER_SIZE + (long) size * ENTRY_SIZE;
+            final long blobSize = channel.size() - blobStart;
+            this.blocks = new MappedByteBuffer[(int) ((blobSize + BLOCK_SIZE - 1) >>> BLOCK_BITS)];
+            for (int i = 0; i < blocks.length; i++) {
+                final long start = (long) i << BLOCK_BITS;
+                blocks[i] = channel.map(FileChannel.MapMode.READ_ONLY, blobStart + start,
+                        Math.min(BLOCK_SIZE, blobSize - start));
+            }
+        }
+    }
+
+    /**
+     * Open a binary reference corpus. Each file is mapped only once per JVM,
+     * and reopened only if it has been modified
+     *
+     * @param file The file
+     * @return The reference corpus
+     * @throws IOException If the file is not a binary reference corpus
+     */
+    public static MappedReferenceCorpus open(File file) throws IOException {
+        final String key = file.getCanonicalPath();
+        MappedReferenceCorpus corpus = OPEN.get(key);
+        if (corpus == null || corpus.lastModified != file.lastModified()) {
+            corpus = new MappedReferenceCorpus(file);
+            OPEN.put(key, corpus);
+        }
+        return corpus;
+    }
+
+    @Override
+    public int getTermFrequency(String term) {
+        final int i = find(term);
+        return i < 0 ? 0 : index.getInt(i * ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Get the document frequency of a term in the reference corpus
+     *
+     * @param term The term
+     * @return The number of documents containing the term
+     */
+    public int getDocFrequency(String term) {
+        final int i = find(term);
+        return i < 0 ? 0 : index.getInt(i * ENTRY_SIZE + 12);
+    }
+
+    @Override
+    public long getTokens() {
+        return tokens;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    /**
+     * The number of distinct terms in the reference corpus
+     *
+     * @return The number of terms
+     */
+    public int size() {
+        return size;
+    }
+
+    private int find(String term) {
+        final byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int c = compareAt(index.getLong(mid * ENTRY_SIZE), key);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareAt(long offset, byte[] key) {
+        final MappedByteBuffer block = blocks[(int) (offset >>> BLOCK_BITS)];
+        final int pos = (int) (offset & (BLOCK_SIZE - 1));
+        final int len = block.getInt(pos);
+        final int n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            final int c = (block.get(pos + 4 + i) & 0xff) - (key[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return len - key.length;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        final int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            final int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Write frequency statistics as a binary reference corpus
+     *
+     * @param stats The frequency statistics
+     * @param file The file to write to
+     * @throws IOException If the file could not be written
+     */
+    public static void write(FrequencyStats stats, File file) throws IOException {
+        final int n = stats.termFrequency.size();
+        if ((long) n * ENTRY_SIZE > Integer.MAX_VALUE) {
+            throw new IOException("Too many terms for a binary reference corpus: " + n);
+        }
+        final byte[][] keys = new byte[n][];
+        final String[] terms = new String[n];
+        int i = 0;
+        for (Object2IntMap.Entry<String> e : stats.termFrequency.object2IntEntrySet()) {
+            terms[i] = e.getKey();
+            keys[i] = e.getKey().getBytes(StandardCharsets.UTF_8);
+            i++;
+        }
+        final Integer[] order = new Integer[n];
+        for (i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return compareBytes(keys[o1], keys[o2]);
+            }
+        });
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stats.tokens);
+            out.writeLong(stats.documents);
+            out.writeInt(n);
+            out.writeInt(0);
+            long offset = 0;
+            for (int j : order) {
+                offset = align(offset, keys[j].length);
+                out.writeLong(offset);
+                out.writeInt(stats.termFrequency.getInt(terms[j]));
+                out.writeInt(stats.docFrequency.getInt(terms[j]));
+                offset += 4 + keys[j].length;
+            }
+            offset = 0;
+            for (int j : order) {
+                final long aligned = align(offset, keys[j].length);
+                for (; offset < aligned; offset++) {
+                    out.writeByte(0);
+                }
+                out.writeInt(keys[j].length);
+                out.write(keys[j]);
+                offset += 4 + keys[j].length;
+            }
+        }
+    }
+
+    /**
+     * Move the offset to the next block if the term would cross a block
+     * boundary
+     */
+    private static long align(long offset, int length) {
+        final long end = offset + 4 + length;
+        if ((offset >>> BLOCK_BITS) != ((end - 1) >>> BLOCK_BITS)) {
+            return ((offset >>> BLOCK_BITS) + 1) << BLOCK_BITS;
+        }
+        return offset;
+    }
+}
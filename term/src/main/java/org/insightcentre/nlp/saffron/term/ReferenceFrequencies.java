@@ -0,0 +1,25 @@
+package org.insightcentre.nlp.saffron.term;
+
+/**
+ * The frequencies of terms in a reference (background) corpus, as used by the
+ * weirdness and relevance features
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public interface ReferenceFrequencies {
+
+    /**
+     * Get the frequency of a term in the reference corpus
+     *
+     * @param term The term (in lower case)
+     * @return The number of occurrences of the term or zero if it does not occur
+     */
+    int getTermFrequency(String term);
+
+    /**
+     * Get the size of the reference corpus
+     *
+     * @return The total number of tokens in the reference corpus
+     */
+    long getTokens();
+}
@@ -0,0 +1,334 @@
+package org.insightcentre.nlp.saffron.term;
+
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
+
+/**
+ * Counts the candidate terms of a corpus with a suffix array, as an
+ * alternative to {@link TermExtractionTask} for long n-grams. The documents
+ * are encoded as a stream of token ids, and a suffix array with the longest
+ * common prefixes of adjacent suffixes is built over the stream. Equal spans
+ * are then adjacent in the suffix array, so each candidate is counted without
+ * hashing it, and a string is created once per distinct term rather than once
+ * per occurrence.
+ *
+ * The candidates are the same as those of {@link TermExtractionTask} without a
+ * lemmatizer or domain model.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class SuffixArrayCounter {
+
+    private static final byte VALID = 1, STOP = 2, PRECEEDING = 4, MIDDLE = 8, END = 16, LONG = 32;
+
+    private final Set<String> stopWords;
+    private final int ngramMin, ngramMax;
+    private final Set<String> preceedingTokens, middleTokens, endTokens;
+    private final boolean headTokenFinal;
+    private final Set<String> blacklist;
+
+    // The stream of token ids, where each sentence is followed by a unique
+    // negative separator so that no span crosses a sentence
+    private final IntArrayList stream = new IntArrayList();
+    private final ByteArrayList flags = new ByteArrayList();
+    private final IntArrayList docStarts = new IntArrayList();
+    private final List<String> docIds = new ArrayList<>();
+    private final Object2IntOpenHashMap<String> tokenIds = new Object2IntOpenHashMap<>();
+    private final List<String> tokens = new ArrayList<>();
+    private final CasingStats casing = new CasingStats();
+    private int sentences = 0;
+    private long tokenCount = 0;
+
+    /**
+     * Create a counter
+     *
+     * @param stopWords The stop words
+     * @param ngramMin The minimum length of a term
+     * @param ngramMax The maximum length of a term
+     * @param preceedingTokens The tags allowed in non-final position
+     * @param middleTokens The tags allowed in non-final position, but not completing
+     * @param endTokens The tags allowed in final position
+     * @param headTokenFinal Whether the head of a term is its final token
+     * @param blacklist The (lower-cased) tokens not allowed in terms
+     */
+    public SuffixArrayCounter(Set<String> stopWords, int ngramMin, int ngramMax,
+            Set<String> preceedingTokens, Set<String> middleTokens, Set<String> endTokens,
+            boolean headTokenFinal, Set<String> blacklist) {
+        this.stopWords = stopWords;
+        this.ngramMin = ngramMin;
+        this.ngramMax = ngramMax;
+        this.preceedingTokens = preceedingTokens;
+        this.middleTokens = middleTokens;
+        this.endTokens = endTokens;
+        this.headTokenFinal = headTokenFinal;
+        this.blacklist = blacklist;
+        this.tokenIds.defaultReturnValue(-1);
+    }
+
+    /**
+     * Add a document to the stream. This may be called from several threads
+     *
+     * @param docId The identifier of the document
+     * @param document The annotated sentences of the document
+     */
+    public synchronized void add(String docId, List<AnnotatedSentence> document) {
+        docStarts.add(stream.size());
+        docIds.add(docId);
+        for (AnnotatedSentence sentence : document) {
+            final String[] tags = sentence.tags;
+            for (int i = 0; i < sentence.tokens.length; i++) {
+                final String token = sentence.tokens[i];
+                final String lower = sentence.lowerTokens[i];
+                int id = tokenIds.getInt(lower);
+                if (id < 0) {
+                    id = tokens.size();
+                    tokenIds.put(lower, id);
+                    tokens.add(lower);
+                }
+                int f = 0;
+                if (TermExtractionTask.isValidTerm(token, lower, blacklist)) {
+                    f |= VALID;
+                }
+                if (stopWords.contains(lower) || stopWords.contains(token)) {
+                    f |= STOP;
+                }
+                if (preceedingTokens.contains(tags[i])) {
+                    f |= PRECEEDING;
+                }
+                if (middleTokens.contains(tags[i])) {
+                    f |= MIDDLE;
+                }
+                if (endTokens.contains(tags[i])) {
+                    f |= END;
+                }
+                if (lower.length() > 2) {
+                    f |= LONG;
+                }
+                stream.add(id);
+                flags.add((byte) f);
+                // Both patterns accept a single token only if it is a non-stop head
+                if ((f & (VALID | STOP | END | LONG)) == (VALID | END | LONG) && ngramMin <= 1) {
+                    casing.addCasing(lower, token);
+                }
+            }
+            tokenCount += sentence.tokens.length;
+            stream.add(-(++sentences));
+            flags.add((byte) 0);
+        }
+    }
+
+    /**
+     * Count the terms of all documents added
+     *
+     * @param docTerms The queue to add the document terms to (or null)
+     * @param casing The casing statistics to add to (or null)
+     * @return The frequency statistics of the terms
+     */
+    public synchronized FrequencyStats count(ConcurrentLinkedQueue<DocumentTerm> docTerms,
+            CasingStats casing) {
+        final FrequencyStats stats = new FrequencyStats();
+        stats.tokens = tokenCount;
+        stats.documents = docIds.size();
+        if (casing != null) {
+            casing.add(this.casing);
+        }
+        final int[] text = stream.toIntArray();
+        final int[] sa = suffixArray(text);
+        final int[] lcp = lcp(text, sa);
+        final int[] docStart = docStarts.toIntArray();
+
+        // The open groups of equal spans, by length
+        int maxLength = 0;
+        final List<Int2IntOpenHashMap> groups = new ArrayList<>();
+        final IntArrayList groupPos = new IntArrayList();
+        final IntArrayList lengths = new IntArrayList();
+        groups.add(null);
+        groupPos.add(-1);
+        for (int r = 0; r <= sa.length; r++) {
+            final int common = r < sa.length ? lcp[r] : 0;
+            for (int l = maxLength; l > common; l--) {
+                final Int2IntOpenHashMap group = groups.get(l);
+                if (group != null && !group.isEmpty()) {
+                    close(text, groupPos.getInt(l), l, group, stats, docTerms);
+                    group.clear();
+                }
+            }
+            maxLength = Math.min(maxLength, common);
+            if (r == sa.length) {
+                break;
+            }
+            final int p = sa[r];
+            spans(text, p, lengths);
+            if (lengths.isEmpty()) {
+                continue;
+            }
+            final int doc = Arrays.binarySearch(docStart, p);
+            final int d = doc >= 0 ? lastStart(docStart, doc) : -doc - 2;
+            for (int k = 0; k < lengths.size(); k++) {
+                final int l = lengths.getInt(k);
+                while (groups.size() <= l) {
+                    groups.add(null);
+                    groupPos.add(-1);
+                }
+                Int2IntOpenHashMap group = groups.get(l);
+                if (group == null) {
+                    group = new Int2IntOpenHashMap();
+                    groups.set(l, group);
+                }
+                if (group.isEmpty()) {
+                    groupPos.set(l, p);
+                }
+                group.addTo(d, 1);
+                maxLength = Math.max(maxLength, l);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Several documents may start at the same position if some are empty
+     */
+    private static int lastStart(int[] docStart, int doc) {
+        while (doc + 1 < docStart.length && docStart[doc + 1] == docStart[doc]) {
+            doc++;
+        }
+        return doc;
+    }
+
+    private void close(int[] text, int pos, int length, Int2IntOpenHashMap group,
+            FrequencyStats stats, ConcurrentLinkedQueue<DocumentTerm> docTerms) {
+        final StringBuilder sb = new StringBuilder();
+        for (int k = pos; k < pos + length; k++) {
+            if (k != pos) {
+                sb.append(' ');
+            }
+            sb.append(tokens.get(text[k]));
+        }
+        final String term = sb.toString();
+        int tf = 0;
+        for (Int2IntMap.Entry e : group.int2IntEntrySet()) {
+            tf += e.getIntValue();
+            if (docTerms != null) {
+                docTerms.add(new DocumentTerm(docIds.get(e.getIntKey()), term,
+                        e.getIntValue(), null, null, null));
+            }
+        }
+        stats.termFrequency.put(term, tf);
+        stats.docFrequency.put(term, group.size());
+    }
+
+    /**
+     * Find the lengths of the candidate terms that start at a position, in
+     * the same way as {@link TermExtractionTask}
+     */
+    private void spans(int[] text, int i, IntArrayList lengths) {
+        lengths.clear();
+        boolean nonStop = false;
+        for (int j = i; j < i + ngramMax && text[j] >= 0; j++) {
+            final byte f = flags.getByte(j);
+            if ((f & VALID) == 0) {
+                // No longer span from i can be a term
+                return;
+            }
+            if ((f & STOP) == 0) {
+                nonStop = true;
+            }
+            final boolean pre = (f & PRECEEDING) != 0, mid = (f & MIDDLE) != 0, end = (f & END) != 0;
+            final boolean emit;
+            final boolean stop;
+            if (headTokenFinal) {
+                emit = end && nonStop;
+                stop = !pre && (i == j || !mid);
+            } else {
+                emit = j == i ? end && nonStop : pre;
+                stop = j == i ? !end : !mid && !pre;
+            }
+            if (emit && j - i >= ngramMin - 1 && (j > i || (f & LONG) != 0)) {
+                lengths.add(j - i + 1);
+            }
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Build the suffix array of a stream by prefix doubling
+     *
+     * @param text The stream of token ids
+     * @return The positions of the suffixes in lexicographic order
+     */
+    static int[] suffixArray(int[] text) {
+        final int n = text.length;
+        final int[] sa = new int[n];
+        final long[] key = new long[n];
+        for (int i = 0; i < n; i++) {
+            sa[i] = i;
+            // Order by the signed value
+            key[i] = text[i];
+        }
+        LongArrays.parallelRadixSortIndirect(sa, key, true);
+        int[] rank = new int[n];
+        int[] tmp = new int[n];
+        for (int r = 1; r < n; r++) {
+            rank[sa[r]] = rank[sa[r - 1]] + (key[sa[r]] != key[sa[r - 1]] ? 1 : 0);
+        }
+        for (int k = 1; n > 0 && rank[sa[n - 1]] < n - 1; k <<= 1) {
+            for (int i = 0; i < n; i++) {
+                key[i] = ((long) rank[i] << 32) | (i + k < n ? rank[i + k] + 1 : 0);
+            }
+            LongArrays.parallelRadixSortIndirect(sa, key, true);
+            tmp[sa[0]] = 0;
+            for (int r = 1; r < n; r++) {
+                tmp[sa[r]] = tmp[sa[r - 1]] + (key[sa[r]] != key[sa[r - 1]] ? 1 : 0);
+            }
+            final int[] t = rank;
+            rank = tmp;
+            tmp = t;
+        }
+        return sa;
+    }
+
+    /**
+     * Calculate the length of the longest common prefix of each suffix and
+     * the one before it in the suffix array (Kasai et al.)
+     *
+     * @param text The stream of token ids
+     * @param sa The suffix array
+     * @return The longest common prefixes (0 for the first suffix)
+     */
+    static int[] lcp(int[] text, int[] sa) {
+        final int n = text.length;
+        final int[] rank = new int[n];
+        for (int r = 0; r < n; r++) {
+            rank[sa[r]] = r;
+        }
+        final int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            if (rank[i] > 0) {
+                final int j = sa[rank[i] - 1];
+                while (i + h < n && j + h < n && text[i + h] == text[j + h]) {
+                    h++;
+                }
+                lcp[rank[i]] = h;
+                if (h > 0) {
+                    h--;
+                }
+            } else {
+                h = 0;
+            }
+        }
+        return lcp;
+    }
+}
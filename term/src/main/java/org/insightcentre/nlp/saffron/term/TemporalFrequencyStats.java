@@ -3,18 +3,21 @@ package org.insightcentre.nlp.saffron.term;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.ArrayRealVector;
 import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
-import org.apache.commons.math3.linear.RealVector;
 import org.apache.commons.math3.linear.SingularMatrixException;
 
 /**
@@ -26,10 +29,31 @@ public class TemporalFrequencyStats {
     private LocalDateTime start = null;
     
     public List<FrequencyStats> freqs = new ArrayList<>();
+    private volatile Predictor predictor;
 
     public TemporalFrequencyStats(Duration interval) {
         this.interval = interval;
     }
+
+    /**
+     * Recreate temporal statistics (e.g., from a saved state)
+     * @param interval The length of each interval
+     * @param start The start of the first interval (or null if empty)
+     * @param freqs The statistics of each interval
+     */
+    public TemporalFrequencyStats(Duration interval, LocalDateTime start, List<FrequencyStats> freqs) {
+        this.interval = interval;
+        this.start = start;
+        this.freqs = freqs;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
     
     private long divCeil(long x, long y) {
         if(x % y == 0) {
@@ -40,6 +64,7 @@ public class TemporalFrequencyStats {
     }
     
     public void add(FrequencyStats stats, LocalDateTime time) {
+        predictor = null;
         if(start == null) {
             start = time;
             freqs.add(stats);
@@ -70,35 +95,162 @@ public class TemporalFrequencyStats {
      * @return The prediction (a double between 0 and 1)
      */
     public double predict(String word, int intervalsAfterEnd, int degree) throws IntervalTooLong {
-        if(freqs.isEmpty()) 
-            throw new RuntimeException("Cannot predict future term frequency (likely no dates provided in corpus)");
-        if(degree <= 0)
-            throw new IllegalArgumentException("Degree must be greater than one");
-        if(freqs.size() < degree + 1)
-            throw new IntervalTooLong(String.format("Only %d time periods were created, which is not sufficient to make a degree %d prediction", freqs.size(), degree));
-        RealMatrix x = new Array2DRowRealMatrix(freqs.size(), degree + 1);
-        RealVector y = new ArrayRealVector(freqs.size());
-        for(int i = 0; i < freqs.size(); i++) {
-            for(int j = 0; j <= degree; j++) {
-                x.setEntry(i, j, Math.pow(i - freqs.size() + 1, j));
+        return predictor(intervalsAfterEnd, degree).predict(word);
+    }
+
+    /**
+     * Create a predictor of future term frequencies. The least-squares fit
+     * depends only on the number of intervals, so the projection of the
+     * frequencies onto the prediction is calculated once, and each prediction
+     * is then a dot product with the (sparse) frequencies of the term. The
+     * predictor is cached until the statistics are changed by
+     * {@link #add(FrequencyStats, LocalDateTime)}.
+     *
+     * @param intervalsAfterEnd The number of intervals beyond the most recent one observed to predict for
+     * @param degree The degree of the approximation (2 is a good value)
+     * @return The predictor
+     * @throws IntervalTooLong If there are not enough intervals for the degree
+     */
+    public Predictor predictor(int intervalsAfterEnd, int degree) throws IntervalTooLong {
+        Predictor p = predictor;
+        if (p != null && p.intervalsAfterEnd == intervalsAfterEnd && p.degree == degree
+                && p.source == freqs && p.weights.length == freqs.size()) {
+            return p;
+        }
+        synchronized (this) {
+            p = predictor;
+            if (p != null && p.intervalsAfterEnd == intervalsAfterEnd && p.degree == degree
+                    && p.source == freqs && p.weights.length == freqs.size()) {
+                return p;
             }
-            y.setEntry(i, (double)freqs.get(i).termFrequency.getInt(word) / freqs.get(i).tokens);
+            p = new Predictor(intervalsAfterEnd, degree);
+            predictor = p;
+            return p;
         }
-        final RealMatrix xtx_inv;
-        try {
-            xtx_inv = MatrixUtils.inverse(x.transpose().multiply(x));
-        } catch(SingularMatrixException x2) {
-            System.err.println("Matrix is singular");
-            System.err.println(x);
-            throw new RuntimeException("Could not predict future scores", x2);
+    }
+
+    /**
+     * Predicts the future frequency of all terms from a single least-squares
+     * projection. The frequencies are held as a sparse term by interval matrix
+     * in compressed row form.
+     */
+    public class Predictor {
+        private final int intervalsAfterEnd;
+        private final int degree;
+        private final List<FrequencyStats> source;
+        /** The weight of the count of a term in each interval */
+        private final double[] weights;
+        /** Whether any interval has no tokens, in which case no prediction can be made */
+        private final boolean undefined;
+        private final Object2IntOpenHashMap<String> rows = new Object2IntOpenHashMap<>();
+        private final int[] rowStart;
+        private final int[] intervals;
+        private final int[] counts;
+
+        private Predictor(int intervalsAfterEnd, int degree) throws IntervalTooLong {
+            this.intervalsAfterEnd = intervalsAfterEnd;
+            this.degree = degree;
+            this.source = freqs;
+            final int n = freqs.size();
+            if(n == 0)
+                throw new RuntimeException("Cannot predict future term frequency (likely no dates provided in corpus)");
+            if(degree <= 0)
+                throw new IllegalArgumentException("Degree must be greater than one");
+            if(n < degree + 1)
+                throw new IntervalTooLong(String.format("Only %d time periods were created, which is not sufficient to make a degree %d prediction", n, degree));
+            RealMatrix x = new Array2DRowRealMatrix(n, degree + 1);
+            for(int i = 0; i < n; i++) {
+                for(int j = 0; j <= degree; j++) {
+                    x.setEntry(i, j, Math.pow(i - n + 1, j));
+                }
+            }
+            final RealMatrix xtx_inv;
+            try {
+                xtx_inv = MatrixUtils.inverse(x.transpose().multiply(x));
+            } catch(SingularMatrixException x2) {
+                System.err.println("Matrix is singular");
+                System.err.println(x);
+                throw new RuntimeException("Could not predict future scores", x2);
+            }
+            // The prediction is sum_k h^k a_k with a = (X^T X)^-1 X^T y, so it
+            // is linear in y with weights sum_k h^k [(X^T X)^-1 X^T]_k
+            final RealMatrix projection = xtx_inv.multiply(x.transpose());
+            this.weights = new double[n];
+            boolean noTokens = false;
+            for(int i = 0; i < n; i++) {
+                double w = 0.0;
+                for(int k = 0; k < degree; k++) {
+                    w += projection.getEntry(k, i) * Math.pow(intervalsAfterEnd, k);
+                }
+                final long tokens = freqs.get(i).tokens;
+                noTokens = noTokens || tokens == 0;
+                weights[i] = w / tokens;
+            }
+            this.undefined = noTokens;
+
+            rows.defaultReturnValue(-1);
+            int nnz = 0;
+            for(FrequencyStats fs : freqs) {
+                for(Object2IntMap.Entry<String> e : fs.termFrequency.object2IntEntrySet()) {
+                    if(rows.getInt(e.getKey()) < 0) {
+                        rows.put(e.getKey(), rows.size());
+                    }
+                    nnz++;
+                }
+            }
+            this.rowStart = new int[rows.size() + 1];
+            for(FrequencyStats fs : freqs) {
+                for(String term : fs.termFrequency.keySet()) {
+                    rowStart[rows.getInt(term) + 1]++;
+                }
+            }
+            for(int r = 0; r < rows.size(); r++) {
+                rowStart[r + 1] += rowStart[r];
+            }
+            this.intervals = new int[nnz];
+            this.counts = new int[nnz];
+            final int[] fill = Arrays.copyOf(rowStart, rows.size());
+            for(int i = 0; i < n; i++) {
+                for(Object2IntMap.Entry<String> e : freqs.get(i).termFrequency.object2IntEntrySet()) {
+                    final int k = fill[rows.getInt(e.getKey())]++;
+                    intervals[k] = i;
+                    counts[k] = e.getIntValue();
+                }
+            }
         }
-        RealVector a = xtx_inv.operate(x.preMultiply(y));
-        
-        double prediction = 0.0;
-        for(int i = 0; i < degree; i++) {
-            prediction += a.getEntry(i) * Math.pow(intervalsAfterEnd, i);
+
+        /**
+         * Predict the corpus probability for a future term frequency
+         * @param word The word to predict for
+         * @return The prediction (a double between 0 and 1)
+         */
+        public double predict(String word) {
+            if(undefined) {
+                return Double.NaN;
+            }
+            final int r = rows.getInt(word);
+            return r < 0 ? 0.0 : predictRow(r);
+        }
+
+        /**
+         * Predict the corpus probability of every term
+         * @return The prediction for each term that occurs in any interval
+         */
+        public Object2DoubleMap<String> predictAll() {
+            final Object2DoubleOpenHashMap<String> predictions = new Object2DoubleOpenHashMap<>(rows.size());
+            for(Object2IntMap.Entry<String> e : rows.object2IntEntrySet()) {
+                predictions.put(e.getKey(), undefined ? Double.NaN : predictRow(e.getIntValue()));
+            }
+            return predictions;
+        }
+
+        private double predictRow(int r) {
+            double prediction = 0.0;
+            for(int k = rowStart[r]; k < rowStart[r + 1]; k++) {
+                prediction += weights[intervals[k]] * counts[k];
+            }
+            return max(min(prediction, 1), 0);
         }
-        return max(min(prediction, 1), 0);
     }
 
 }
@@ -0,0 +1,103 @@
+package org.insightcentre.nlp.saffron.term;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe dictionary that assigns each distinct term an integer id. The
+ * dictionary holds exactly one instance of each term string, so the statistics
+ * of the extraction can be counted by id and all outputs share the same
+ * strings.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class TermDictionary {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private volatile String[][] chunks = new String[16][];
+
+    /**
+     * Get the id of a term, assigning a new id if the term has not been seen
+     * before
+     *
+     * @param term The term
+     * @return The id of the term
+     */
+    public int id(String term) {
+        Integer id = ids.get(term);
+        if (id == null) {
+            id = ids.computeIfAbsent(term, t -> {
+                final int i = nextId.getAndIncrement();
+                chunk(i)[i & CHUNK_MASK] = t;
+                return i;
+            });
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of a term without adding it to the dictionary
+     *
+     * @param term The term
+     * @return The id of the term or -1 if it is not in the dictionary
+     */
+    public int lookup(String term) {
+        final Integer id = ids.get(term);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Get the (unique) string for an id
+     *
+     * @param id The id as returned by {@link #id(String)}
+     * @return The term
+     */
+    public String term(int id) {
+        return chunks[id >>> CHUNK_BITS][id & CHUNK_MASK];
+    }
+
+    /**
+     * Get the unique instance of a term string held by this dictionary
+     *
+     * @param term The term
+     * @return An equal string that is shared by all users of this dictionary
+     */
+    public String intern(String term) {
+        return term(id(term));
+    }
+
+    /**
+     * The number of terms in this dictionary
+     *
+     * @return The number of terms
+     */
+    public int size() {
+        return nextId.get();
+    }
+
+    private String[] chunk(int id) {
+        final int c = id >>> CHUNK_BITS;
+        String[][] cs = chunks;
+        if (c < cs.length && cs[c] != null) {
+            return cs[c];
+        }
+        synchronized (this) {
+            cs = chunks;
+            if (c >= cs.length) {
+                final String[][] cs2 = new String[Math.max(cs.length * 2, c + 1)][];
+                System.arraycopy(cs, 0, cs2, 0, cs.length);
+                cs = cs2;
+            }
+            if (cs[c] == null) {
+                cs[c] = new String[CHUNK_SIZE];
+            }
+            chunks = cs;
+            return cs[c];
+        }
+    }
+}
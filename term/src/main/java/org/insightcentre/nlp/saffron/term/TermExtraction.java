@@ -9,18 +9,17 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.zip.GZIPInputStream;
 
 import org.insightcentre.nlp.saffron.DefaultSaffronListener;
@@ -28,19 +27,23 @@ import org.insightcentre.nlp.saffron.SaffronListener;
 import org.insightcentre.nlp.saffron.config.Configuration;
 import org.insightcentre.nlp.saffron.config.TermExtractionConfiguration;
 import org.insightcentre.nlp.saffron.config.TermExtractionConfiguration.Feature;
-import org.insightcentre.nlp.saffron.data.CollectionCorpus;
 import org.insightcentre.nlp.saffron.data.Corpus;
 import org.insightcentre.nlp.saffron.data.Document;
 import org.insightcentre.nlp.saffron.data.SaffronPath;
 import org.insightcentre.nlp.saffron.data.Status;
+import org.insightcentre.nlp.saffron.data.StreamingCorpus;
 import org.insightcentre.nlp.saffron.data.Term;
 import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
 import org.insightcentre.nlp.saffron.term.domain.DomainModelTermRelation;
 import org.insightcentre.nlp.saffron.term.domain.DomainStats;
 import org.insightcentre.nlp.saffron.term.lda.NovelTopicModel;
+import org.insightcentre.nlp.saffron.util.SaffronExecutor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
+import it.unimi.dsi.fastutil.objects.Object2BooleanOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
 import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
 import joptsimple.OptionParser;
@@ -80,6 +83,13 @@ public class TermExtraction {
     private final Set<String> configBlacklist;
     private final boolean oneTermPerDoc;
     private final Duration interval;
+    private final AnnotationCache annotationCache;
+    private final boolean fusedScan;
+    private final File stateFile;
+    private final boolean spillDocumentTerms;
+    private final boolean parallelTopicModel;
+    private final int heavyHitters, sketchWidth;
+    private final boolean suffixArrayCounting;
 
     private final List<String> domainModel;
 
@@ -107,6 +117,14 @@ public class TermExtraction {
         this.configBlacklist = Collections.EMPTY_SET;
         this.oneTermPerDoc = false;
         this.interval = null;
+        this.annotationCache = null;
+        this.fusedScan = false;
+        this.stateFile = null;
+        this.spillDocumentTerms = false;
+        this.parallelTopicModel = false;
+        this.heavyHitters = 0;
+        this.sketchWidth = config.sketchWidth;
+        this.suffixArrayCounting = false;
         this.domainModel = Collections.EMPTY_LIST;
     }
 
@@ -140,6 +158,14 @@ public class TermExtraction {
         this.configBlacklist = blacklist;
         this.oneTermPerDoc = oneTermPerDoc;
         this.interval = intervalDays > 0 ? Duration.ofDays(intervalDays) : null;
+        this.annotationCache = null;
+        this.fusedScan = false;
+        this.stateFile = null;
+        this.spillDocumentTerms = false;
+        this.parallelTopicModel = false;
+        this.heavyHitters = 0;
+        this.sketchWidth = 0;
+        this.suffixArrayCounting = false;
         this.domainModel = domainModel == null ? new ArrayList<String>() : domainModel;
     }
 
@@ -148,24 +174,30 @@ public class TermExtraction {
     }
 
     public TermExtraction(final TermExtractionConfiguration config, List<String> domainModel) throws IOException {
-        this.nThreads = config.numThreads <= 0 ? 10 : config.numThreads;
+        this(config, domainModel, loadTagger(config), loadTokenizer(config));
+    }
+
+    private static ThreadLocal<POSTagger> loadTagger(final TermExtractionConfiguration config) throws IOException {
         if (config.posModel == null) {
             throw new RuntimeException("Tagger must be set");
         }
         final POSModel posModel = new POSModel(config.posModel.toFile());
-        this.tagger = new ThreadLocal<POSTagger>() {
+        return new ThreadLocal<POSTagger>() {
             @Override
             protected POSTagger initialValue() {
                 return new POSTaggerME(posModel);
             }
         };
+    }
+
+    private static ThreadLocal<Tokenizer> loadTokenizer(final TermExtractionConfiguration config) throws IOException {
         final TokenizerModel tokenizerModel;
         if (config.tokenizerModel == null) {
             tokenizerModel = null;
         } else {
             tokenizerModel = new TokenizerModel(config.tokenizerModel.toFile());
         }
-        this.tokenizer = new ThreadLocal<Tokenizer>() {
+        return new ThreadLocal<Tokenizer>() {
             @Override
             protected Tokenizer initialValue() {
 
@@ -176,6 +208,17 @@ public class TermExtraction {
                 }
             }
         };
+    }
+
+    /**
+     * Create an extractor with the settings of a configuration but the given
+     * tagger and tokenizer instead of those of the models in the configuration
+     */
+    TermExtraction(final TermExtractionConfiguration config, List<String> domainModel,
+            ThreadLocal<POSTagger> tagger, ThreadLocal<Tokenizer> tokenizer) throws IOException {
+        this.nThreads = config.numThreads <= 0 ? 10 : config.numThreads;
+        this.tagger = tagger;
+        this.tokenizer = tokenizer;
         this.maxDocs = config.maxDocs;
         this.minTermFreq = config.minTermFreq;
         this.minDocFreq = config.minDocFreq;
@@ -211,6 +254,17 @@ public class TermExtraction {
         }
         this.oneTermPerDoc = config.oneTermPerDoc;
         this.interval = config.intervalDays > 0 ? Duration.ofDays(config.intervalDays) : null;
+        this.annotationCache = config.annotationCache == null ? null
+                : new AnnotationCache(config.annotationCache.toFile(),
+                        AnnotationCache.modelIdentity(config.tokenizerModel, config.posModel, config.lemmatizerModel),
+                        tokenizer, tagger, lemmatizer);
+        this.fusedScan = config.fusedScan;
+        this.stateFile = config.incrementalState == null ? null : config.incrementalState.toFile();
+        this.spillDocumentTerms = config.spillDocumentTerms;
+        this.parallelTopicModel = config.parallelTopicModel;
+        this.heavyHitters = config.heavyHitters;
+        this.sketchWidth = config.sketchWidth;
+        this.suffixArrayCounting = config.suffixArrayCounting;
         this.domainModel = domainModel == null ? new ArrayList<String>() : domainModel;
     }
 
@@ -242,85 +296,517 @@ public class TermExtraction {
             ConcurrentLinkedQueue<DocumentTerm> docTerms,
             CasingStats casing, Set<String> blackList)
             throws InterruptedException, ExecutionException {
-        ExecutorService service = new ThreadPoolExecutor(nThreads, nThreads, 0,
-                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1000),
-                new ThreadPoolExecutor.CallerRunsPolicy());
-        final FrequencyStats summary = new FrequencyStats();
+        return extractStats(searcher, docTerms, casing, blackList, null);
+    }
+
+    /**
+     * Extract the statistics from the corpus
+     *
+     * @param searcher The corpus
+     * @param docTerms The queue to add document terms to (or null)
+     * @param casing The casing statistics to add to (or null)
+     * @param blackList The terms not to extract
+     * @param annotatedCorpus If not null, the annotations of each document are
+     * added to this so that later stages do not read the corpus again
+     * @return The statistics
+     * @throws InterruptedException If the extraction is interrupted
+     * @throws ExecutionException If a task fails
+     */
+    public ExtractStatsResult extractStats(Corpus searcher,
+            ConcurrentLinkedQueue<DocumentTerm> docTerms,
+            CasingStats casing, Set<String> blackList, AnnotatedCorpus annotatedCorpus)
+            throws InterruptedException, ExecutionException {
+        return extractStats(searcher, docTerms, casing, blackList, annotatedCorpus, minTermFreq, minDocFreq);
+    }
+
+    private ExtractStatsResult extractStats(Corpus searcher,
+            ConcurrentLinkedQueue<DocumentTerm> docTerms,
+            CasingStats casing, Set<String> blackList, AnnotatedCorpus annotatedCorpus,
+            int minTermFreq, double minDocFreq)
+            throws InterruptedException, ExecutionException {
+        final TemporalFrequencyStats temporalFrequencyStats;
+        if(interval != null) {
+            temporalFrequencyStats = new TemporalFrequencyStats(interval);
+        } else {
+            temporalFrequencyStats = null;
+        }
+        final ExtractStatsResult esr = collectStats(searcher, docTerms, null, casing, blackList,
+                annotatedCorpus, temporalFrequencyStats, Collections.EMPTY_SET, null,
+                collectCandidates(searcher, blackList, minTermFreq));
+        esr.frequencyStats.filterByTermFrequency(minTermFreq);
+        esr.frequencyStats.filterByDocFrequency(minDocFreq);
+        return esr;
+    }
+
+    /**
+     * Extract the statistics from the corpus, writing the document terms to a
+     * spill file rather than holding them in memory
+     *
+     * @param searcher The corpus
+     * @param spill The spill to write the document terms to
+     * @param casing The casing statistics to add to (or null)
+     * @param blackList The terms not to extract
+     * @param annotatedCorpus If not null, the annotations of each document are
+     * added to this so that later stages do not read the corpus again
+     * @return The statistics
+     * @throws InterruptedException If the extraction is interrupted
+     * @throws ExecutionException If a task fails
+     */
+    public ExtractStatsResult extractStatsSpilled(Corpus searcher,
+            DocumentTermSpill spill,
+            CasingStats casing, Set<String> blackList, AnnotatedCorpus annotatedCorpus)
+            throws InterruptedException, ExecutionException {
+        return extractStatsSpilled(searcher, spill, casing, blackList, annotatedCorpus, minTermFreq, minDocFreq);
+    }
+
+    private ExtractStatsResult extractStatsSpilled(Corpus searcher,
+            DocumentTermSpill spill,
+            CasingStats casing, Set<String> blackList, AnnotatedCorpus annotatedCorpus,
+            int minTermFreq, double minDocFreq)
+            throws InterruptedException, ExecutionException {
         final TemporalFrequencyStats temporalFrequencyStats;
         if(interval != null) {
             temporalFrequencyStats = new TemporalFrequencyStats(interval);
         } else {
             temporalFrequencyStats = null;
         }
-        final RelationshipStats relationshipStats = new RelationshipStats();
+        final ExtractStatsResult esr = collectStats(searcher, null, spill, casing, blackList,
+                annotatedCorpus, temporalFrequencyStats, Collections.EMPTY_SET, null,
+                collectCandidates(searcher, blackList, minTermFreq));
+        esr.frequencyStats.filterByTermFrequency(minTermFreq);
+        esr.frequencyStats.filterByDocFrequency(minDocFreq);
+        return esr;
+    }
+
+    /**
+     * Extract the statistics of only the documents that have not been
+     * processed in a previous run, merge them with the state saved by that run
+     * and save the new state.
+     *
+     * @param searcher The corpus
+     * @param docTerms The queue to add the document terms of all documents to
+     * @param casing The casing statistics to add to
+     * @param blackList The terms not to extract
+     * @param annotatedCorpus The corpus to add the annotations of the new
+     * documents to (or null)
+     * @param stateFile The file containing the state of the previous run, if
+     * this does not exist all documents are processed
+     * @param log The listener
+     * @return The statistics of the whole corpus
+     * @throws InterruptedException If the extraction is interrupted
+     * @throws ExecutionException If a task fails
+     * @throws IOException If the state could not be read or written
+     */
+    public ExtractStatsResult extractStatsIncremental(Corpus searcher,
+            ConcurrentLinkedQueue<DocumentTerm> docTerms,
+            CasingStats casing, Set<String> blackList, AnnotatedCorpus annotatedCorpus,
+            File stateFile, SaffronListener log)
+            throws InterruptedException, ExecutionException, IOException {
+        return extractStatsIncremental(searcher, docTerms, casing, blackList, annotatedCorpus,
+                stateFile, log, minTermFreq, minDocFreq);
+    }
+
+    private ExtractStatsResult extractStatsIncremental(Corpus searcher,
+            ConcurrentLinkedQueue<DocumentTerm> docTerms,
+            CasingStats casing, Set<String> blackList, AnnotatedCorpus annotatedCorpus,
+            File stateFile, SaffronListener log, int minTermFreq, double minDocFreq)
+            throws InterruptedException, ExecutionException, IOException {
+        final ExtractionState state = stateFile.exists()
+                ? ExtractionState.read(stateFile)
+                : new ExtractionState(interval);
+        final ConcurrentLinkedQueue<DocumentTerm> newDocTerms = new ConcurrentLinkedQueue<>();
+        final CasingStats newCasing = new CasingStats();
+        final List<String> newDocuments = new ArrayList<>();
+        final ExtractStatsResult delta = collectStats(searcher, newDocTerms, null, newCasing, blackList,
+                annotatedCorpus, state.temporalFrequencyStats, state.documents, newDocuments, null);
+        log.log(String.format("Processed %d new documents (%d processed previously)",
+                newDocuments.size(), state.documents.size()));
+        state.add(delta.frequencyStats, newCasing, delta.relationshipStats, newDocTerms, newDocuments);
+        state.write(stateFile);
+
+        final FrequencyStats summary = new FrequencyStats();
+        summary.add(state.frequencyStats);
+        summary.filterByTermFrequency(minTermFreq);
+        summary.filterByDocFrequency(minDocFreq);
+        if (docTerms != null) {
+            docTerms.addAll(state.documentTerms);
+        }
+        if (casing != null) {
+            casing.add(state.casing);
+        }
+        return new ExtractStatsResult(summary, state.temporalFrequencyStats, state.relationshipStats);
+    }
+
+    /**
+     * Count the statistics of the documents without filtering
+     *
+     * @param spill If not null, the document terms are written to this instead
+     * of the queue
+     * @param skip The identifiers of documents not to process
+     * @param processed If not null, the identifiers of the documents processed
+     * are added to this list
+     * @param candidates If not null, only the terms with these hashes are
+     * counted (see {@link #collectCandidates(Corpus, Set, int)})
+     */
+    private ExtractStatsResult collectStats(Corpus searcher,
+            ConcurrentLinkedQueue<DocumentTerm> docTerms, DocumentTermSpill spill,
+            CasingStats casing, Set<String> blackList, AnnotatedCorpus annotatedCorpus,
+            TemporalFrequencyStats temporalFrequencyStats, Set<String> skip,
+            List<String> processed, LongSet candidates)
+            throws InterruptedException, ExecutionException {
+        if (suffixArrayCounting && spill == null && candidates == null && temporalFrequencyStats == null
+                && (lemmatizer == null || lemmatizer.get() == null)
+                && (domainModel == null || domainModel.isEmpty())) {
+            return collectStatsBySuffixArray(searcher, docTerms, casing, blackList,
+                    annotatedCorpus, skip, processed);
+        }
+        final SaffronExecutor.Batch batch = SaffronExecutor.getInstance().newBatch(nThreads);
+        // Each worker accumulates into its own statistics, which are merged
+        // once all the documents are processed
+        final TermDictionary dictionary = spill != null ? spill.getDictionary() : new TermDictionary();
+        final ThreadAccumulator<IntFrequencyStats> summaries = new ThreadAccumulator<>(
+                IntFrequencyStats::new, IntFrequencyStats::add);
+        final ThreadAccumulator<CasingStats> casings = casing == null ? null
+                : new ThreadAccumulator<>(CasingStats::new, CasingStats::add);
+        final ThreadAccumulator<RelationshipStats> relStats = new ThreadAccumulator<>(
+                RelationshipStats::new, RelationshipStats::add);
+        final Set<String> lowerBlackList = lowercaseAll(blackList);
+        final TokenAutomaton domainModelAutomaton = domainModel == null || domainModel.isEmpty()
+                ? null : TokenAutomaton.build(domainModel, tokenizer.get());
 
         int docCount = 0;
-        for (Document doc : searcher.getDocuments()) {
-            service.submit(new TermExtractionTask(doc, tagger, lemmatizer, tokenizer,
-                    stopWords, ngramMin, ngramMax, preceedingsTokens, middleTokens, endTokens,
-                    headTokenFinal,
-                    summary, docTerms, casing, lowercaseAll(blackList), temporalFrequencyStats, this.domainModel, relationshipStats));
-            if (docCount++ > maxDocs) {
-                break;
+        final Iterator<Document> docs = searcher.getDocuments().iterator();
+        try {
+            while (docs.hasNext()) {
+                final Document doc = docs.next();
+                if (skip.contains(doc.id)) {
+                    continue;
+                }
+                if (processed != null) {
+                    processed.add(doc.id);
+                }
+                batch.submit(new TermExtractionTask(doc, tagger, lemmatizer, tokenizer,
+                        stopWords, ngramMin, ngramMax, preceedingsTokens, middleTokens, endTokens,
+                        headTokenFinal,
+                        null, docTerms, casing, lowerBlackList, temporalFrequencyStats, this.domainModel, null)
+                        .withAnnotationCache(annotationCache)
+                        .withTermDictionary(dictionary)
+                        .withDocumentTermSpill(spill)
+                        .withDomainModel(domainModelAutomaton)
+                        .withAnnotatedCorpus(annotatedCorpus)
+                        .withCandidates(candidates)
+                        .withAccumulators(summaries, casings, relStats));
+                if (docCount++ > maxDocs) {
+                    break;
+                }
             }
+        } finally {
+            Corpus.close(docs);
         }
 
-        service.shutdown();
-        service.awaitTermination(2, TimeUnit.DAYS);
-        summary.filterByTermFrequency(minTermFreq);
-       	summary.filterByDocFrequency(minDocFreq);
+        batch.await();
+        final FrequencyStats summary = summaries.merge().toFrequencyStats(dictionary);
+        if (casings != null) {
+            casing.add(casings.merge());
+        }
+        final RelationshipStats relationshipStats = relStats.merge();
         return new ExtractStatsResult(summary, temporalFrequencyStats, relationshipStats);
     }
 
-    private Object2DoubleMap<String> scoreByFeat(List<String> terms, final TermExtractionConfiguration.Feature feature,
-            final FrequencyStats stats, final Lazy<FrequencyStats> ref,
+    /**
+     * Count the statistics of the documents with a suffix array, so that the
+     * cost of long n-grams does not depend on ngramMax. The documents are
+     * annotated in parallel and the terms are counted once all documents are
+     * read
+     *
+     * @param skip The identifiers of documents not to process
+     * @param processed If not null, the identifiers of the documents processed
+     * are added to this list
+     */
+    private ExtractStatsResult collectStatsBySuffixArray(Corpus searcher,
+            ConcurrentLinkedQueue<DocumentTerm> docTerms,
+            CasingStats casing, Set<String> blackList, AnnotatedCorpus annotatedCorpus,
+            Set<String> skip, List<String> processed)
+            throws InterruptedException, ExecutionException {
+        final SaffronExecutor.Batch batch = SaffronExecutor.getInstance().newBatch(nThreads);
+        final SuffixArrayCounter counter = new SuffixArrayCounter(stopWords, ngramMin, ngramMax,
+                preceedingsTokens, middleTokens, endTokens, headTokenFinal, lowercaseAll(blackList));
+
+        int docCount = 0;
+        final Iterator<Document> docs = searcher.getDocuments().iterator();
+        try {
+            while (docs.hasNext()) {
+                final Document doc = docs.next();
+                if (skip.contains(doc.id)) {
+                    continue;
+                }
+                if (processed != null) {
+                    processed.add(doc.id);
+                }
+                batch.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            final List<AnnotatedSentence> sentences = annotationCache != null
+                                    ? annotationCache.annotate(doc)
+                                    : AnnotatedSentence.annotate(doc, tokenizer, tagger, lemmatizer);
+                            if (annotatedCorpus != null) {
+                                annotatedCorpus.add(sentences);
+                            }
+                            counter.add(doc.id, sentences);
+                        } catch (Exception x) {
+                            x.printStackTrace();
+                        }
+                    }
+                });
+                if (docCount++ > maxDocs) {
+                    break;
+                }
+            }
+        } finally {
+            Corpus.close(docs);
+        }
+
+        batch.await();
+        final FrequencyStats summary = counter.count(docTerms, casing);
+        return new ExtractStatsResult(summary, null, new RelationshipStats());
+    }
+
+    /**
+     * Count the candidate terms approximately, keeping only those that may
+     * occur at least the minimum term frequency, so that the exact count does
+     * not need to hold every candidate of the corpus
+     *
+     * @param searcher The corpus
+     * @param blackList The terms not to extract
+     * @param minTermFreq The minimum frequency of a candidate
+     * @return The hashes of the candidates or null if this is disabled
+     */
+    private LongSet collectCandidates(Corpus searcher, Set<String> blackList, int minTermFreq)
+            throws InterruptedException, ExecutionException {
+        if (heavyHitters <= 0) {
+            return null;
+        }
+        final SaffronExecutor.Batch batch = SaffronExecutor.getInstance().newBatch(nThreads);
+        final ThreadAccumulator<HeavyHitters> sketches = new ThreadAccumulator<>(
+                () -> new HeavyHitters(heavyHitters, sketchWidth), HeavyHitters::add);
+        final ThreadAccumulator<IntFrequencyStats> summaries = new ThreadAccumulator<>(
+                IntFrequencyStats::new, IntFrequencyStats::add);
+        final Set<String> lowerBlackList = lowercaseAll(blackList);
+        final TokenAutomaton domainModelAutomaton = domainModel == null || domainModel.isEmpty()
+                ? null : TokenAutomaton.build(domainModel, tokenizer.get());
+
+        int docCount = 0;
+        final Iterator<Document> docs = searcher.getDocuments().iterator();
+        try {
+            while (docs.hasNext()) {
+                final Document doc = docs.next();
+                batch.submit(new TermExtractionTask(doc, tagger, lemmatizer, tokenizer,
+                        stopWords, ngramMin, ngramMax, preceedingsTokens, middleTokens, endTokens,
+                        headTokenFinal,
+                        null, null, null, lowerBlackList, null, this.domainModel, null)
+                        .withAnnotationCache(annotationCache)
+                        .withDomainModel(domainModelAutomaton)
+                        .withHeavyHitters(sketches)
+                        .withAccumulators(summaries, null, null));
+                if (docCount++ > maxDocs) {
+                    break;
+                }
+            }
+        } finally {
+            Corpus.close(docs);
+        }
+
+        batch.await();
+        return sketches.merge().candidates(minTermFreq);
+    }
+
+    private Object2DoubleMap<String> scoreByFeat(final List<String> terms, final TermExtractionConfiguration.Feature feature,
+            final FrequencyStats stats, final Lazy<ReferenceFrequencies> ref,
             final Lazy<InclusionStats> incl, final Lazy<NovelTopicModel> ntm,
             final Lazy<DomainStats> domain, final Set<String> whiteList,
             final TemporalFrequencyStats tempStats,
-            SaffronListener log) throws IntervalTooLong {
-        final Object2DoubleMap<String> scores = new Object2DoubleOpenHashMap<>();
-        for (String term : terms) {
-            if (whiteList.contains(term)) {
-                scores.put(term, Double.POSITIVE_INFINITY);
-            } else {
-                scores.put(term,
-                        Features.calcFeature(feature, term, stats, ref, incl, ntm, domain, tempStats, log));
-            }
+            final SaffronListener log) throws IntervalTooLong {
+        final double[] values = new double[terms.size()];
+        try {
+            IntStream.range(0, terms.size()).parallel().forEach(i -> {
+                final String term = terms.get(i);
+                if (whiteList.contains(term)) {
+                    values[i] = Double.POSITIVE_INFINITY;
+                } else {
+                    try {
+                        values[i] = Features.calcFeature(feature, term, stats, ref, incl, ntm, domain, tempStats, log);
+                    } catch (IntervalTooLong x) {
+                        throw new UncheckedIntervalTooLong(x);
+                    }
+                }
+            });
+        } catch (UncheckedIntervalTooLong x) {
+            throw x.getCause();
+        }
+        final Object2DoubleMap<String> scores = new Object2DoubleOpenHashMap<>(terms.size());
+        for (int i = 0; i < values.length; i++) {
+            scores.put(terms.get(i), values[i]);
         }
         return scores;
 
     }
 
+    /**
+     * Score the terms by each of the features, calculating the features in
+     * parallel
+     */
+    private List<Object2DoubleMap<String>> scoreByFeats(final List<String> terms, final List<Feature> features,
+            final FrequencyStats stats, final Lazy<ReferenceFrequencies> ref,
+            final Lazy<InclusionStats> incl, final Lazy<NovelTopicModel> ntm,
+            final Lazy<DomainStats> domain, final Set<String> whiteList,
+            final TemporalFrequencyStats tempStats,
+            final SaffronListener log) throws IntervalTooLong {
+        try {
+            return features.parallelStream().map(feat -> {
+                try {
+                    return scoreByFeat(terms, feat, stats, ref, incl, ntm, domain, whiteList, tempStats, log);
+                } catch (IntervalTooLong x) {
+                    throw new UncheckedIntervalTooLong(x);
+                }
+            }).collect(Collectors.toList());
+        } catch (UncheckedIntervalTooLong x) {
+            throw x.getCause();
+        }
+    }
+
+    private static class UncheckedIntervalTooLong extends RuntimeException {
+
+        public UncheckedIntervalTooLong(IntervalTooLong cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IntervalTooLong getCause() {
+            return (IntervalTooLong) super.getCause();
+        }
+    }
+
+    /**
+     * Calculate whether each term is a proper term once, rather than on every
+     * comparison while ranking
+     */
+    private Object2BooleanMap<String> properTerms(final List<String> terms) {
+        final boolean[] values = new boolean[terms.size()];
+        IntStream.range(0, terms.size()).parallel().forEach(i
+                -> values[i] = isProperTerm(terms.get(i), stopWords));
+        final Object2BooleanMap<String> proper = new Object2BooleanOpenHashMap<>(terms.size());
+        for (int i = 0; i < values.length; i++) {
+            proper.put(terms.get(i), values[i]);
+        }
+        return proper;
+    }
+
     private void rankTermsByFeat(List<String> terms, final Object2DoubleMap<String> scores,
-            Set<String> whiteList, Set<String> blackList) {
-        terms.removeIf((String t) -> blackList.contains(t));
+            Set<String> whiteList, Set<String> blackList, final Object2BooleanMap<String> properTerms) {
+        final List<String> ranked = new TermRanking(terms, scores, whiteList, blackList, properTerms).sorted();
+        terms.clear();
+        terms.addAll(ranked);
+    }
 
-        terms.sort(new Comparator<String>() {
-            @Override
-            public int compare(String o1, String o2) {
-                if (whiteList.contains(o1)) {
-                    if (whiteList.contains(o2)) {
-                        return -Double.compare(scores.getDouble(o1), scores.getDouble(o2));
-                    } else {
-                        return -1;
-                    }
-                } else {
-                    if (whiteList.contains(o2)) {
-                        return +1;
-                    } else {
-                        boolean proper1 = isProperTerm(o1, stopWords);
-                        boolean proper2 = isProperTerm(o2, stopWords);
-                        if (proper1 == proper2) {
-                            return -Double.compare(scores.getDouble(o1), scores.getDouble(o2));
-                        } else if (proper1) {
-                            return -1;
-                        } else {
-                            return +1;
-                        }
-                    }
+    /**
+     * Select the best terms (up to the maximum number of terms) without
+     * sorting all the candidates
+     */
+    private List<String> selectTerms(List<String> terms, final Object2DoubleMap<String> scores,
+            Set<String> whiteList, Set<String> blackList, final Object2BooleanMap<String> properTerms,
+            Iterable<DocumentTerm> dts, int maxTerms, boolean oneTermPerDoc) {
+        final TermRanking ranking = new TermRanking(terms, scores, whiteList, blackList, properTerms);
+        if (ranking.size() > maxTerms) {
+            if (oneTermPerDoc) {
+                return getTopTerms(ranking, maxTerms, dts);
+            } else {
+                return ranking.top(maxTerms);
+            }
+        } else {
+            return ranking.sorted();
+        }
+    }
+
+    /**
+     * The settings that are only used once the statistics have been
+     * extracted, to filter, score and select the terms. These may differ
+     * between the variants of a sweep
+     */
+    private static class Ranking {
+
+        final TermExtractionConfiguration.WeightingMethod method;
+        final Feature keyFeature;
+        final List<Feature> features;
+        final int maxTerms;
+        final boolean oneTermPerDoc;
+        final int minTermFreq;
+        final double minDocFreq;
+
+        Ranking(TermExtraction te) {
+            this.method = te.method;
+            this.keyFeature = te.keyFeature;
+            this.features = te.features;
+            this.maxTerms = te.maxTerms;
+            this.oneTermPerDoc = te.oneTermPerDoc;
+            this.minTermFreq = te.minTermFreq;
+            this.minDocFreq = te.minDocFreq;
+        }
+
+        Ranking(TermExtractionConfiguration config) {
+            this.method = config.method;
+            this.keyFeature = config.baseFeature;
+            this.features = config.features;
+            this.maxTerms = config.maxTerms;
+            this.oneTermPerDoc = config.oneTermPerDoc;
+            this.minTermFreq = config.minTermFreq;
+            this.minDocFreq = config.minDocFreq;
+        }
+
+        List<Feature> used() {
+            return method == TermExtractionConfiguration.WeightingMethod.one
+                    ? Arrays.asList(keyFeature) : features;
+        }
+    }
+
+    /**
+     * The statistics filtered by a minimum term and document frequency, and
+     * the features calculated from them, which are shared by all variants
+     * with the same filter
+     */
+    private class FilteredStats {
+
+        final FrequencyStats freqs;
+        final List<String> terms;
+        final Lazy<InclusionStats> incl;
+        final Lazy<DomainStats> domain;
+
+        FilteredStats(final FrequencyStats freqs, final Set<String> whiteList,
+                final Corpus searcher, final AnnotatedCorpus annotatedCorpus) {
+            this.freqs = freqs;
+            this.terms = new ArrayList<>(freqs.docFrequency.keySet());
+            for (String whiteListTerm : whiteList) {
+                if (!freqs.docFrequency.containsKey(whiteListTerm)) {
+                    terms.add(whiteListTerm);
                 }
             }
-        });
+            this.incl = new Lazy<InclusionStats>() {
+                @Override
+                protected InclusionStats init() {
+                    return new InclusionStats(freqs.docFrequency);
+                }
+            };
+            this.domain = new Lazy<DomainStats>() {
+
+                @Override
+                protected DomainStats init() {
+                    if (annotatedCorpus != null) {
+                        return DomainStats.initialize(annotatedCorpus, nThreads, ngramMax, freqs, incl.get(), stopWords, preceedingsTokens, middleTokens, endTokens, headTokenFinal);
+                    }
+                    return DomainStats.initialize(searcher, nThreads, tokenizer, ngramMax, maxDocs, freqs, incl.get(), stopWords, tagger, preceedingsTokens, middleTokens, endTokens, headTokenFinal, annotationCache);
+                }
+            };
+        }
     }
 
     public Result extractTerms(final Corpus searcher) {
@@ -333,20 +819,138 @@ public class TermExtraction {
     }
 
     public Result extractTerms(final Corpus searcher, final Set<String> whiteList, final Set<String> blackList, SaffronListener log) {
+        return extractTerms(searcher, Arrays.asList(new Ranking(this)), whiteList, blackList, log).get(0);
+    }
+
+    /**
+     * Extract the terms for several variants of the configuration while
+     * reading the corpus only once. The settings used to filter, score and
+     * select the terms ({@code method}, {@code features},
+     * {@code baseFeature}, {@code minTermFreq}, {@code minDocFreq},
+     * {@code maxTerms} and {@code oneTermPerDoc}) are taken from each variant,
+     * all other settings are those of this extractor. A warning is given for
+     * each variant that changes a setting used to read the corpus, as the
+     * change has no effect. The variants are scored in parallel
+     *
+     * @param searcher The corpus
+     * @param variants The configurations to extract terms with
+     * @param whiteList The terms that must be extracted
+     * @param blackList The terms that must not be extracted
+     * @param log The listener
+     * @return The result of each variant, in the same order
+     */
+    public List<Result> sweep(final Corpus searcher, final List<TermExtractionConfiguration> variants,
+            final Set<String> whiteList, final Set<String> blackList, SaffronListener log) {
+        final List<Ranking> rankings = new ArrayList<>();
+        for (int i = 0; i < variants.size(); i++) {
+            final List<String> ignored = scanSettingsChanged(variants.get(i));
+            if (!ignored.isEmpty()) {
+                log.log("Warning: variant " + i + " of the sweep changes " + String.join(", ", ignored)
+                        + ", which cannot differ between the variants of a sweep. The settings of the base configuration are used");
+            }
+            rankings.add(new Ranking(variants.get(i)));
+        }
+        return extractTerms(searcher, rankings, whiteList, blackList, log);
+    }
+
+    /**
+     * Find the settings used to read the corpus that a variant of a sweep
+     * changes
+     *
+     * @param variant The variant
+     * @return The names of the settings that differ from this extractor
+     */
+    private List<String> scanSettingsChanged(TermExtractionConfiguration variant) {
+        final List<String> changed = new ArrayList<>();
+        if (variant.ngramMin != ngramMin) {
+            changed.add("ngramMin");
+        }
+        if (variant.ngramMax != ngramMax) {
+            changed.add("ngramMax");
+        }
+        if (variant.maxDocs != maxDocs) {
+            changed.add("maxDocs");
+        }
+        if (variant.headTokenFinal != headTokenFinal) {
+            changed.add("headTokenFinal");
+        }
+        if (!Objects.equals(variant.preceedingTokens, preceedingsTokens)) {
+            changed.add("preceedingTokens");
+        }
+        if (!Objects.equals(variant.middleTokens, middleTokens)) {
+            changed.add("middleTokens");
+        }
+        if (!Objects.equals(variant.headTokens, endTokens)) {
+            changed.add("headTokens");
+        }
+        try {
+            final Set<String> variantStopWords = variant.stopWords == null
+                    ? new HashSet<>(Arrays.asList(TermExtractionConfiguration.ENGLISH_STOPWORDS))
+                    : readLineByLine(variant.stopWords);
+            if (!variantStopWords.equals(stopWords)) {
+                changed.add("stopWords");
+            }
+        } catch (IOException x) {
+            changed.add("stopWords");
+        }
+        if (!Objects.equals(variant.intervalDays > 0 ? Duration.ofDays(variant.intervalDays) : null, interval)) {
+            changed.add("intervalDays");
+        }
+        if (!Objects.equals(variant.corpus == null ? null : variant.corpus.toFile(), refFile)) {
+            changed.add("corpus");
+        }
+        return changed;
+    }
+
+    private List<Result> extractTerms(final Corpus searcher, final List<Ranking> rankings,
+            final Set<String> whiteList, final Set<String> blackList, final SaffronListener log) {
         blackList.addAll(configBlacklist);
+        DocumentTermSpill spill = null;
         try {
-            final ConcurrentLinkedQueue<DocumentTerm> dts = new ConcurrentLinkedQueue<>();
+            // The corpus is read with the loosest filter of all variants
+            int scanTermFreq = Integer.MAX_VALUE;
+            double scanDocFreq = Double.POSITIVE_INFINITY;
+            boolean needsSecondPass = false;
+            for (Ranking ranking : rankings) {
+                scanTermFreq = Math.min(scanTermFreq, ranking.minTermFreq);
+                scanDocFreq = Math.min(scanDocFreq, ranking.minDocFreq);
+                needsSecondPass = needsSecondPass || ranking.used().contains(Feature.novelTopicModel)
+                        || ranking.used().contains(Feature.postRankDC);
+            }
             final CasingStats casing = new CasingStats();
-            final ExtractStatsResult esr = extractStats(searcher, dts, casing, blackList);
+            // An incremental run only annotates the new documents, so the
+            // second pass features read the whole corpus again instead
+            final AnnotatedCorpus annotatedCorpus = fusedScan && needsSecondPass && stateFile == null
+                    ? new AnnotatedCorpus() : null;
+            final Iterable<DocumentTerm> dts;
+            final ExtractStatsResult esr;
+            if (stateFile != null) {
+                final ConcurrentLinkedQueue<DocumentTerm> queue = new ConcurrentLinkedQueue<>();
+                esr = extractStatsIncremental(searcher, queue, casing, blackList, annotatedCorpus, stateFile, log,
+                        scanTermFreq, scanDocFreq);
+                dts = queue;
+            } else if (spillDocumentTerms) {
+                spill = new DocumentTermSpill(new TermDictionary());
+                esr = extractStatsSpilled(searcher, spill, casing, blackList, annotatedCorpus,
+                        scanTermFreq, scanDocFreq);
+                dts = spill;
+            } else {
+                final ConcurrentLinkedQueue<DocumentTerm> queue = new ConcurrentLinkedQueue<>();
+                esr = extractStats(searcher, queue, casing, blackList, annotatedCorpus,
+                        scanTermFreq, scanDocFreq);
+                dts = queue;
+            }
             final FrequencyStats freqs = esr.frequencyStats;
             final TemporalFrequencyStats tfs = esr.temporalFrequencyStats;
             final RelationshipStats relStats = esr.relationshipStats;
-            Lazy<FrequencyStats> ref = new Lazy<FrequencyStats>() {
+            final Lazy<ReferenceFrequencies> ref = new Lazy<ReferenceFrequencies>() {
                 @Override
-                protected FrequencyStats init() {
+                protected ReferenceFrequencies init() {
                     ObjectMapper mapper = new ObjectMapper();
                     try {
-                        if (refFile.getName().endsWith("json.gz")) {
+                        if (refFile.getName().endsWith(".bin")) {
+                            return MappedReferenceCorpus.open(refFile);
+                        } else if (refFile.getName().endsWith("json.gz")) {
                             return mapper.readValue(
                                     new GZIPInputStream(new FileInputStream(refFile)),
                                     FrequencyStats.class);
@@ -365,88 +969,114 @@ public class TermExtraction {
                     }
                 }
             };
-            final Lazy<InclusionStats> incl = new Lazy<InclusionStats>() {
-                @Override
-                protected InclusionStats init() {
-                    return new InclusionStats(freqs.docFrequency);
-                }
-            };
-            Lazy<NovelTopicModel> ntm = new Lazy<NovelTopicModel>() {
+            final Lazy<NovelTopicModel> ntm = new Lazy<NovelTopicModel>() {
 
                 @Override
                 protected NovelTopicModel init() {
                     try {
-                        return NovelTopicModel.initialize(searcher, tokenizer);
+                        if (annotatedCorpus != null) {
+                            return NovelTopicModel.initialize(annotatedCorpus, parallelTopicModel ? nThreads : 1);
+                        }
+                        return NovelTopicModel.initialize(searcher, tokenizer, parallelTopicModel ? nThreads : 1);
                     } catch (IOException x) {
                         x.printStackTrace();
                         return null;
                     }
                 }
             };
-            Lazy<DomainStats> domain = new Lazy<DomainStats>() {
-
-                @Override
-                protected DomainStats init() {
-                    return DomainStats.initialize(searcher, nThreads, tokenizer, ngramMax, maxDocs, freqs, incl.get(), stopWords, tagger, preceedingsTokens, middleTokens, endTokens, headTokenFinal);
-                }
-            };
-            List<String> terms = new ArrayList<>(freqs.docFrequency.keySet());
-            for (String whiteListTerm : whiteList) {
-                if (!freqs.docFrequency.containsKey(whiteListTerm)) {
-                    terms.add(whiteListTerm);
+            // The variants with the same filter share the filtered statistics
+            final Map<List<Object>, FilteredStats> filtered = new HashMap<>();
+            final List<Object> scanKey = Arrays.asList(scanTermFreq, scanDocFreq);
+            filtered.put(scanKey, new FilteredStats(freqs, whiteList, searcher, annotatedCorpus));
+            for (Ranking ranking : rankings) {
+                final List<Object> key = Arrays.asList(ranking.minTermFreq, ranking.minDocFreq);
+                if (!filtered.containsKey(key)) {
+                    final FrequencyStats f = new FrequencyStats();
+                    f.add(freqs);
+                    f.filterByTermFrequency(ranking.minTermFreq);
+                    f.filterByDocFrequency(ranking.minDocFreq);
+                    filtered.put(key, new FilteredStats(f, whiteList, searcher, annotatedCorpus));
                 }
             }
-            switch (method) {
-                case one:
-                    Object2DoubleMap<String> scores = scoreByFeat(terms, keyFeature,
-                            freqs, ref, incl, ntm, domain, whiteList, tfs, log);
-                    rankTermsByFeat(terms, scores, whiteList, blackList);
-                    if (terms.size() > maxTerms) {
-                        if (oneTermPerDoc) {
-                            terms = getTopTerms(terms, maxTerms, dts);
-                        } else {
-                            terms = terms.subList(0, maxTerms);
-                        }
-                    }
-                    return new Result(convertToTerms(terms, freqs, scores, casing, whiteList, stopWords),
-                            addTfIdf(filterTerms(terms, dts, casing, stopWords)), filterToTerms(relStats, terms));
-                case voting:
-                    Object2DoubleMap<String> voting = new Object2DoubleOpenHashMap<>();
-                    for (Feature feat : features) {
-                        Object2DoubleMap<String> scores2 = scoreByFeat(terms, feat,
-                                freqs, ref, incl, ntm, domain, whiteList, tfs, log);
-                        rankTermsByFeat(terms, scores2, whiteList, blackList);
-                        int i = 1;
-                        for (String term : terms) {
-                            voting.put(term, voting.getDouble(term) + 1.0 / i++);
-                        }
-                    }
-                    rankTermsByFeat(terms, voting, whiteList, blackList);
-                    if (terms.size() > maxTerms) {
-                        if (oneTermPerDoc) {
-                            terms = getTopTerms(terms, maxTerms, dts);
-                        } else {
-                            terms = terms.subList(0, maxTerms);
-                        }
+            final Object2BooleanMap<String> properTerms = properTerms(filtered.get(scanKey).terms);
+            try {
+                return IntStream.range(0, rankings.size()).parallel().mapToObj(i -> {
+                    final Ranking ranking = rankings.get(i);
+                    final FilteredStats fs = filtered.get(Arrays.asList(ranking.minTermFreq, ranking.minDocFreq));
+                    try {
+                        return rankTerms(ranking, fs, ref, ntm, tfs, relStats, casing, properTerms,
+                                dts, whiteList, blackList, log);
+                    } catch (IntervalTooLong x) {
+                        throw new UncheckedIntervalTooLong(x);
                     }
-                    return new Result(convertToTerms(terms, freqs, voting, casing, whiteList, stopWords),
-                            addTfIdf(filterTerms(terms, dts, casing, stopWords)), filterToTerms(relStats, terms));
-                default:
-                    throw new UnsupportedOperationException("TODO");
+                }).collect(Collectors.toList());
+            } catch (UncheckedIntervalTooLong x) {
+                throw x.getCause();
             }
         } catch (IntervalTooLong x) {
             throw new RuntimeException("The intervalDays parameter is too big, please reduce it to allow future term frequency predictions.", x);
-        } catch (ExecutionException | InterruptedException x) {
+        } catch (ExecutionException | InterruptedException | IOException x) {
             throw new RuntimeException(x);
+        } finally {
+            if (spill != null) {
+                try {
+                    spill.close();
+                } catch (IOException x) {
+                    x.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Score and select the terms for one variant of the configuration
+     */
+    private Result rankTerms(final Ranking ranking, final FilteredStats fs,
+            final Lazy<ReferenceFrequencies> ref, final Lazy<NovelTopicModel> ntm,
+            final TemporalFrequencyStats tfs, final RelationshipStats relStats,
+            final CasingStats casing, final Object2BooleanMap<String> properTerms,
+            final Iterable<DocumentTerm> dts, final Set<String> whiteList,
+            final Set<String> blackList, final SaffronListener log) throws IntervalTooLong {
+        final FrequencyStats freqs = fs.freqs;
+        List<String> terms = new ArrayList<>(fs.terms);
+        switch (ranking.method) {
+            case one:
+                Object2DoubleMap<String> scores = scoreByFeat(terms, ranking.keyFeature,
+                        freqs, ref, fs.incl, ntm, fs.domain, whiteList, tfs, log);
+                terms = selectTerms(terms, scores, whiteList, blackList, properTerms, dts,
+                        ranking.maxTerms, ranking.oneTermPerDoc);
+                return new Result(convertToTerms(terms, freqs, scores, casing, whiteList, stopWords),
+                        addTfIdf(filterTerms(terms, dts, casing, stopWords)), filterToTerms(relStats, terms));
+            case voting:
+                Object2DoubleMap<String> voting = new Object2DoubleOpenHashMap<>();
+                // The features are scored in parallel, but ranked in turn
+                // so that ties are broken as before
+                for (Object2DoubleMap<String> scores2 : scoreByFeats(terms, ranking.features,
+                            freqs, ref, fs.incl, ntm, fs.domain, whiteList, tfs, log)) {
+                    rankTermsByFeat(terms, scores2, whiteList, blackList, properTerms);
+                    int i = 1;
+                    for (String term : terms) {
+                        voting.put(term, voting.getDouble(term) + 1.0 / i++);
+                    }
+                }
+                terms = selectTerms(terms, voting, whiteList, blackList, properTerms, dts,
+                        ranking.maxTerms, ranking.oneTermPerDoc);
+                return new Result(convertToTerms(terms, freqs, voting, casing, whiteList, stopWords),
+                        addTfIdf(filterTerms(terms, dts, casing, stopWords)), filterToTerms(relStats, terms));
+            default:
+                throw new UnsupportedOperationException("TODO");
         }
     }
 
 	private static List<DocumentTerm> filterTerms(List<String> ts,
-            ConcurrentLinkedQueue<DocumentTerm> dts,
+            Iterable<DocumentTerm> dts,
             CasingStats casing, Set<String> stopWords) {
         Set<String> ts2 = new HashSet<>(ts);
         Set<DocumentTerm> rval = new HashSet<>();
-        for (DocumentTerm dt : dts) {
+        // Only the document terms of the selected terms are read back from a spill
+        final Iterable<DocumentTerm> selected = dts instanceof DocumentTermSpill
+                ? ((DocumentTermSpill) dts).select(ts2) : dts;
+        for (DocumentTerm dt : selected) {
             if (ts2.contains(dt.getTermString())) { // && isProperTerm(dt.term_string, stopWords)) {
                 rval.add(new DocumentTerm(dt.getDocumentId(),
                         casing.trueCase(dt.getTermString()),
@@ -582,7 +1212,7 @@ public class TermExtraction {
         return ss;
     }
 
-    private List<String> getTopTerms(List<String> terms, int maxTerms, ConcurrentLinkedQueue<DocumentTerm> dts) {
+    private List<String> getTopTerms(TermRanking ranking, int maxTerms, Iterable<DocumentTerm> dts) {
         Set<String> docs = new HashSet<>();
         Map<String, Set<String>> term2doc = new HashMap<>();
         for (DocumentTerm dt : dts) {
@@ -592,23 +1222,28 @@ public class TermExtraction {
             }
             term2doc.get(dt.getTermString()).add(dt.getDocumentId());
         }
-        List<String> acceptedTerms = new ArrayList<>();
-        for (String term : terms) {
+        List<String> acceptedTerms = ranking.top(maxTerms);
+        for (String term : acceptedTerms) {
             Set<String> d = term2doc.get(term);
-            if (acceptedTerms.size() < maxTerms) {
-                if (d != null) {
-                    docs.removeAll(d);
-                }
-                acceptedTerms.add(term);
-            } else if (docs.isEmpty()) {
+            if (d != null) {
+                docs.removeAll(d);
+            }
+        }
+        if (docs.isEmpty()) {
+            return acceptedTerms;
+        }
+        // Only rank the remaining terms if some documents have no term yet
+        final List<String> terms = ranking.sorted();
+        for (String term : terms.subList(acceptedTerms.size(), terms.size())) {
+            if (docs.isEmpty()) {
                 return acceptedTerms;
-            } else {
-                if (d != null) {
-                    d.retainAll(docs);
-                    if (!d.isEmpty()) {
-                        docs.removeAll(d);
-                        acceptedTerms.add(term);
-                    }
+            }
+            Set<String> d = term2doc.get(term);
+            if (d != null) {
+                d.retainAll(docs);
+                if (!d.isEmpty()) {
+                    docs.removeAll(d);
+                    acceptedTerms.add(term);
                 }
             }
         }
@@ -704,6 +1339,29 @@ public class TermExtraction {
         System.exit(-1);
     }
 
+    private static void writeResult(ObjectMapper mapper, Result r, File termsFile,
+            File docTermsFile, File domainCorrespondenceFile) throws IOException {
+        r.normalize();
+
+        mapper.writerWithDefaultPrettyPrinter().writeValue(termsFile, r.terms);
+        mapper.writeValue(docTermsFile, r.docTerms);
+        if (domainCorrespondenceFile != null) {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(domainCorrespondenceFile, r.dmRelations);
+        }
+    }
+
+    /**
+     * The file to write the output of one variant of a sweep to, e.g.,
+     * terms.json becomes terms.2.json
+     */
+    private static File variantFile(File file, int i) {
+        final String name = file.getName();
+        final int dot = name.indexOf('.');
+        final String variantName = dot < 0 ? name + "." + i
+                : name.substring(0, dot) + "." + i + name.substring(dot);
+        return new File(file.getAbsoluteFile().getParentFile(), variantName);
+    }
+
     public static void main(String[] args) {
         try {
             // Parse command line arguments
@@ -715,6 +1373,7 @@ public class TermExtraction {
                     accepts("o", "The doc-term corespondences to write").withRequiredArg().ofType(File.class);
                     accepts("d", "The domain model terms to use").withRequiredArg().ofType(File.class);
                     accepts("domain-correspondence", "The domain model-term correspondence to write").withRequiredArg().ofType(File.class);
+                    accepts("sweep", "A list of term extraction configurations to run on a single reading of the corpus. The outputs of each are written with its index before the file extension").withRequiredArg().ofType(File.class);
                 }
             };
             final OptionSet os;
@@ -770,17 +1429,24 @@ public class TermExtraction {
 
             Configuration c = mapper.readValue((File) os.valueOf("c"), Configuration.class);
             File corpusFile = (File) os.valueOf("x");
-            final Corpus searcher = mapper.readValue(corpusFile, CollectionCorpus.class);
+            final Corpus searcher = new StreamingCorpus(corpusFile, mapper);
 
             final TermExtraction te = new TermExtraction(c.termExtraction, domainModel);
 
-            final Result r = te.extractTerms(searcher);
-            r.normalize();
-
-            mapper.writerWithDefaultPrettyPrinter().writeValue((File) os.valueOf("t"), r.terms);
-            mapper.writeValue((File) os.valueOf("o"), r.docTerms);
-            if (os.valueOf("domain-correspondence") != null) {
-            	mapper.writerWithDefaultPrettyPrinter().writeValue((File) os.valueOf("domain-correspondence"), r.dmRelations);
+            if (os.valueOf("sweep") != null) {
+                final List<TermExtractionConfiguration> variants = mapper.readValue((File) os.valueOf("sweep"),
+                        mapper.getTypeFactory().constructCollectionType(List.class, TermExtractionConfiguration.class));
+                final List<Result> rs = te.sweep(searcher, variants, new HashSet<>(), new HashSet<>(),
+                        new DefaultSaffronListener());
+                for (int i = 0; i < rs.size(); i++) {
+                    writeResult(mapper, rs.get(i), variantFile((File) os.valueOf("t"), i),
+                            variantFile((File) os.valueOf("o"), i),
+                            os.valueOf("domain-correspondence") == null ? null
+                                    : variantFile((File) os.valueOf("domain-correspondence"), i));
+                }
+            } else {
+                writeResult(mapper, te.extractTerms(searcher), (File) os.valueOf("t"), (File) os.valueOf("o"),
+                        (File) os.valueOf("domain-correspondence"));
             }
 
         } catch (Exception x) {
@@ -2,16 +2,17 @@ package org.insightcentre.nlp.saffron.term;
 
 import static java.lang.Integer.min;
 
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.insightcentre.nlp.saffron.data.Document;
 import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
-import org.insightcentre.nlp.saffron.term.enrich.EnrichTerms.WordTrie;
 
 import opennlp.tools.lemmatizer.Lemmatizer;
 import opennlp.tools.postag.POSTagger;
@@ -30,13 +31,35 @@ public class TermExtractionTask implements Runnable {
     private final Set<String> stopWords;
     private final int ngramMin;
     private final int ngramMax;
-    private final FrequencyStats stats = new FrequencyStats();
+    private final IntFrequencyStats stats = new IntFrequencyStats();
     private final Set<String> preceedingTokens;
     private final Set<String> middleTokens;
     private final Set<String> endTokens;
     private final boolean headTokenFinal;
     private final Set<String> blacklist;
-    private final WordTrie domainModel;
+    private final List<String> domainModelTerms;
+    private TokenAutomaton domainModel;
+    private final List<String> activatedDMTerms = new ArrayList<>();
+    private AnnotationCache annotationCache;
+    private TermDictionary dictionary = new TermDictionary();
+    private AnnotatedCorpus annotatedCorpus;
+    private ThreadAccumulator<IntFrequencyStats> summaries;
+    private ThreadAccumulator<CasingStats> casings;
+    private ThreadAccumulator<RelationshipStats> relStatsAccumulator;
+    private DocumentTermSpill spill;
+    private ThreadAccumulator<HeavyHitters> heavyHitters;
+    private HeavyHitters sketch;
+    private LongSet candidates;
+
+    // Per-sentence token data and the spans seen in this document, reused so
+    // that the candidate loop does not allocate
+    private static final long HASH_BASE = 0x100000001B3L;
+    private final Long2IntOpenHashMap seen = new Long2IntOpenHashMap();
+    private boolean[] valid = new boolean[0];
+    private boolean[] stop = new boolean[0];
+    private long[] hashes = new long[0];
+    private long[] prefixHash = new long[1];
+    private long[] powers = new long[] { 1L, HASH_BASE };
 
     //Outputs to be calculated
     private final FrequencyStats summary;
@@ -74,45 +97,142 @@ public class TermExtractionTask implements Runnable {
         this.casing = casing;
         this.blacklist = blacklist;
         this.temporalFrequency = temporalFrequency;
-        if (domainModel == null || domainModel.size() == 0) {
-        	this.domainModel =  null;
-        } else {
-        	Tokenizer tok = tokenizer.get();
-            WordTrie trie = new WordTrie("");
-            for (String domainModelTerm : domainModel) {
-                trie.addTokenized(tok.tokenize(domainModelTerm.toLowerCase()));
-            }
-            this.domainModel = trie;
-        }
+        this.domainModelTerms = domainModel == null || domainModel.isEmpty() ? null : domainModel;
         this.relStats = relStats;
+        this.seen.defaultReturnValue(-1);
+    }
+
+    /**
+     * Read the annotations of the document from a cache instead of annotating
+     * it directly
+     *
+     * @param annotationCache The cache (or null to disable)
+     * @return This task
+     */
+    public TermExtractionTask withAnnotationCache(AnnotationCache annotationCache) {
+        this.annotationCache = annotationCache;
+        return this;
+    }
+
+    /**
+     * Keep a copy of the annotations of the document so that later stages do
+     * not need to read the corpus again
+     *
+     * @param annotatedCorpus The corpus to add the annotations to (or null to disable)
+     * @return This task
+     */
+    public TermExtractionTask withAnnotatedCorpus(AnnotatedCorpus annotatedCorpus) {
+        this.annotatedCorpus = annotatedCorpus;
+        return this;
+    }
+
+    /**
+     * Count terms by their id in a dictionary shared with other tasks, so that
+     * each distinct term string is held only once. If this is not called the
+     * task uses its own dictionary
+     *
+     * @param dictionary The shared dictionary
+     * @return This task
+     */
+    public TermExtractionTask withTermDictionary(TermDictionary dictionary) {
+        this.dictionary = dictionary;
+        return this;
+    }
+
+    /**
+     * Add the results of this task to per-thread statistics instead of
+     * locking the shared summary, casing and relationship statistics. The
+     * caller is responsible for merging the accumulators once all tasks have
+     * finished. The frequency statistics are keyed by the ids of the term
+     * dictionary (see {@link #withTermDictionary(TermDictionary)})
+     *
+     * @param summaries The accumulator of the frequency statistics
+     * @param casings The accumulator of the casing statistics (may be null)
+     * @param relStats The accumulator of the relationship statistics (may be null)
+     * @return This task
+     */
+    public TermExtractionTask withAccumulators(ThreadAccumulator<IntFrequencyStats> summaries,
+            ThreadAccumulator<CasingStats> casings,
+            ThreadAccumulator<RelationshipStats> relStats) {
+        this.summaries = summaries;
+        this.casings = casings;
+        this.relStatsAccumulator = relStats;
+        return this;
+    }
+
+    /**
+     * Match the domain model with an automaton shared with other tasks. If
+     * this is not called the task builds its own automaton from the domain
+     * model terms
+     *
+     * @param domainModel The automaton of the domain model terms (or null)
+     * @return This task
+     */
+    public TermExtractionTask withDomainModel(TokenAutomaton domainModel) {
+        this.domainModel = domainModel;
+        return this;
+    }
+
+    /**
+     * Write the document terms to a spill file instead of the queue of
+     * document terms. The spill must use the same term dictionary as this
+     * task (see {@link #withTermDictionary(TermDictionary)})
+     *
+     * @param spill The spill (or null to use the queue)
+     * @return This task
+     */
+    public TermExtractionTask withDocumentTermSpill(DocumentTermSpill spill) {
+        this.spill = spill;
+        return this;
+    }
+
+    /**
+     * Only count the occurrences of the candidate terms in an approximate
+     * per-thread sketch. No frequency statistics or document terms are
+     * produced for the terms
+     *
+     * @param heavyHitters The accumulator of the sketches (or null to disable)
+     * @return This task
+     */
+    public TermExtractionTask withHeavyHitters(ThreadAccumulator<HeavyHitters> heavyHitters) {
+        this.heavyHitters = heavyHitters;
+        return this;
+    }
+
+    /**
+     * Only count the candidate terms that survived a previous approximate
+     * pass (see {@link #withHeavyHitters(ThreadAccumulator)})
+     *
+     * @param candidates The hashes of the terms to count (or null to count all terms)
+     * @return This task
+     */
+    public TermExtractionTask withCandidates(LongSet candidates) {
+        this.candidates = candidates;
+        return this;
     }
 
     @Override
     public void run() {
         try {
-            final HashMap<String, DocumentTerm> docTermMap = docTerms != null
-                    ? new HashMap<String, DocumentTerm>()
-                    : null;
-            String contents = doc.contents();
+            sketch = heavyHitters == null ? null : heavyHitters.get();
+            if (domainModel == null && domainModelTerms != null) {
+                domainModel = TokenAutomaton.build(domainModelTerms, tokenizer.get());
+            }
             CasingStats localCasing = new CasingStats();
             RelationshipStats localRelStats = new RelationshipStats();
-            for (String sentence : contents.split("\n")) {
-                String[] tokens;
-                try {
-                    tokens = tokenizer.get().tokenize(sentence);
-                } catch (Exception x) {
-                    System.err.println(sentence);
-                    throw x;
-                }
+            final List<AnnotatedSentence> sentences = annotationCache != null
+                    ? annotationCache.annotate(doc)
+                    : AnnotatedSentence.annotate(doc, tokenizer, tagger, lemmatizer);
+            if (annotatedCorpus != null) {
+                annotatedCorpus.add(sentences);
+            }
+            for (AnnotatedSentence sentence : sentences) {
+                final String[] tokens = sentence.tokens;
                 if (tokens.length > 0) {
-                    String[] tags = new String[0];
-                    tags = tagger.get().tag(tokens);
+                    final String[] tags = sentence.tags;
+                    prepare(sentence);
 
-                    if (tags.length != tokens.length) {
-                        throw new RuntimeException("Tagger did not return same number of tokens as tokenizer");
-                    }
-
-                    List<WordTrie> dmPartials = new ArrayList<WordTrie>();
+                    int dmState = TokenAutomaton.START;
                     for (int i = 0; i < tokens.length; i++) {
                         boolean nonStop = false;
 
@@ -120,43 +240,13 @@ public class TermExtractionTask implements Runnable {
                         //Loop here until matching a domain model word, when it does, then let it into the next loop with j = i+1
                         List<String> activatedDMTerms = null;
                         if (domainModel != null) {
-                        	/*
-                        	 * 1 - For each dmPartial:
-                        	 *  1.1 - if the current token makes it a domain model term, then change the flag
-                        	 *  1.2 - if the current token makes it not a prefix to any domain model term, then discard the partial
-                        	 * 2 - If the current token alone is a prefix, then add it to the partials
-                        	 * 3 - If the current token alone is a domain model term, then change the flag
-                        	 *
-                        	 * 4 - if flag is false, then do not perform term extraction
-                        	 */
-
-                        	activatedDMTerms = new ArrayList<String>();
-
-                        	List<WordTrie> updatedPartials = new ArrayList<WordTrie>();
-                        	for(WordTrie dmPartial: dmPartials) {
-                        		WordTrie partial = dmPartial.get(tokens[i]);
-                        		if(partial != null) {
-                        			if (partial.isPresent()) {
-                        				activatedDMTerms.add(partial.getWord());
-                        			}
-
-                        			if(partial.isPrefix()) {
-                        				updatedPartials.add(partial);
-                        			}
-                        		}
+                        	// The domain model terms that end at this token
+                        	activatedDMTerms = this.activatedDMTerms;
+                        	activatedDMTerms.clear();
+                        	dmState = domainModel.next(dmState, tokens[i]);
+                        	for (int m = domainModel.firstMatch(dmState); m >= 0; m = domainModel.nextMatch(m)) {
+                        		activatedDMTerms.add(domainModel.term(m));
                         	}
-                        	WordTrie partial = this.domainModel.get(tokens[i]);
-                        	if(partial != null) {
-                        		if (partial.isPresent()) {
-                        			activatedDMTerms.add(tokens[i]);
-                    			}
-
-                    			if(partial.isPrefix()) {
-                    				updatedPartials.add(partial);
-                    			}
-                        	}
-
-                        	dmPartials = updatedPartials;
 
                         	if(activatedDMTerms.size() == 0) {
                         		continue;
@@ -170,13 +260,13 @@ public class TermExtractionTask implements Runnable {
                         	startIndex = i+1;
 
                         for (int j = startIndex; j < min(startIndex + ngramMax, tokens.length); j++) {
-                            if (!stopWords.contains(tokens[j].toLowerCase()) && !stopWords.contains(tokens[j])) {
+                            if (!stop[j]) {
                                 nonStop = true;
                             }
 
 	                            if (headTokenFinal) {
 	                                if (endTokens.contains(tags[j]) && nonStop) {
-	                                    String term = emitTerm(j, startIndex, tokens, tags, docTermMap, localCasing, headTokenFinal);
+	                                    String term = emitTerm(j, startIndex, sentence, localCasing, headTokenFinal);
 	                                    connectDomainModelAndTerm(localRelStats, activatedDMTerms, term);
 	                                }
 	                                if (!preceedingTokens.contains(tags[j]) && (startIndex == j || !middleTokens.contains(tags[j]))) {
@@ -184,11 +274,11 @@ public class TermExtractionTask implements Runnable {
 	                                }
 	                            } else {
 	                                if (j == startIndex && endTokens.contains(tags[j]) && nonStop) {
-	                                	String term = emitTerm(j, startIndex, tokens, tags, docTermMap, localCasing, headTokenFinal);
+	                                	String term = emitTerm(j, startIndex, sentence, localCasing, headTokenFinal);
 	                                    connectDomainModelAndTerm(localRelStats, activatedDMTerms, term);
 	                                }
 	                                if (preceedingTokens.contains(tags[j]) && j != startIndex) {
-	                                	String term = emitTerm(j, startIndex, tokens, tags, docTermMap, localCasing, headTokenFinal);
+	                                	String term = emitTerm(j, startIndex, sentence, localCasing, headTokenFinal);
 	                                    connectDomainModelAndTerm(localRelStats, activatedDMTerms, term);
 	                                }
 	                                if (j == startIndex && !endTokens.contains(tags[j])
@@ -204,20 +294,40 @@ public class TermExtractionTask implements Runnable {
 
             stats.documents = 1;
 
-            synchronized (summary) {
-                summary.add(stats);
-                if(doc.date != null && temporalFrequency != null)
-                    temporalFrequency.add(stats, doc.date);
+            if (summaries != null) {
+                summaries.get().add(stats);
+                if(doc.date != null && temporalFrequency != null) {
+                    final FrequencyStats docStats = stats.toFrequencyStats(dictionary);
+                    synchronized (temporalFrequency) {
+                        temporalFrequency.add(docStats, doc.date);
+                    }
+                }
+            } else {
+                final FrequencyStats docStats = stats.toFrequencyStats(dictionary);
+                synchronized (summary) {
+                    summary.add(docStats);
+                    if(doc.date != null && temporalFrequency != null)
+                        temporalFrequency.add(docStats, doc.date);
+                }
             }
-            if (casing != null) {
+            if (casings != null) {
+                casings.get().add(localCasing);
+            } else if (casing != null) {
                 synchronized (casing) {
                     casing.add(localCasing);
                 }
             }
-            if (docTermMap != null) {
-                docTerms.addAll(docTermMap.values());
+            if (spill != null) {
+                spill.add(doc.id, stats.termFrequency);
+            } else if (docTerms != null) {
+                for (Int2IntMap.Entry e : stats.termFrequency.int2IntEntrySet()) {
+                    docTerms.add(new DocumentTerm(doc.id, dictionary.term(e.getIntKey()),
+                            e.getIntValue(), null, null, null));
+                }
             }
-            if (relStats!= null && !localRelStats.isEmpty()) {
+            if (relStatsAccumulator != null && !localRelStats.isEmpty()) {
+                relStatsAccumulator.get().add(localRelStats);
+            } else if (relStats!= null && !localRelStats.isEmpty()) {
             	synchronized (relStats) {
 					relStats.add(localRelStats);
 				}
@@ -236,31 +346,29 @@ public class TermExtractionTask implements Runnable {
 		}
 	}
 
-    private String emitTerm(int j, int i, String[] tokens, String[] tags,
-            final HashMap<String, DocumentTerm> docTermMap, CasingStats localCasing,
-            boolean headTokenFinal) {
-        if (lemmatizer != null && lemmatizer.get() != null && j - i + 1 >= ngramMin) {
-            String[] ltoks = Arrays.copyOf(tokens, tokens.length);
-            for (int n = 0; n < ltoks.length; n++) {
-                ltoks[n] = ltoks[n].toLowerCase();
-            }
-            String[] lemmas = lemmatizer.get().lemmatize(ltoks, tags);
-            String[] tokens2 = Arrays.copyOfRange(tokens, i, j + 1);
+    private String emitTerm(int j, int i, AnnotatedSentence sentence,
+            CasingStats localCasing, boolean headTokenFinal) {
+        if (j - i < this.ngramMin - 1) {
+            return null;
+        }
+        int sub = -1;
+        String subToken = null;
+        if (lemmatizer != null && lemmatizer.get() != null) {
+            // Lemmatized once per sentence, not once per candidate
+            String[] lemmas = sentence.lemmas();
             if (headTokenFinal) {
                 if (!lemmas[j].equals("O") && !lemmas[j].equalsIgnoreCase("datum")) {
-                    tokens2[tokens2.length - 1] = lemmas[j];
+                    sub = j;
+                    subToken = lemmas[j];
                 }
             } else {
                 if (!lemmas[i].equals("O")) {
-                    tokens2[0] = lemmas[i];
+                    sub = i;
+                    subToken = lemmas[i];
                 }
             }
-            return processTerm(tokens2, 0, j - i, docTermMap,
-                    localCasing);
-        } else {
-            return processTerm(tokens, i, j, docTermMap,
-                    localCasing);
         }
+        return processTerm(sentence, i, j, sub, subToken, localCasing);
     }
 
     public static String join(String[] tokens, int i, int j) {
@@ -275,37 +383,161 @@ public class TermExtractionTask implements Runnable {
 
     }
 
-    private boolean isValidTerm(String term) {
-        return !blacklist.contains(term.toLowerCase()) && term.matches(".*\\p{Alpha}.*")
-                && (term.matches("\\p{Alpha}.*") || term.matches(".*\\p{Alpha}"))
-                && term.length() > 1
-                && !term.startsWith("http://") && !term.startsWith("https://");
+    /**
+     * Check if a single token may be part of a term. This is equivalent to
+     * matching the token against the patterns {@code .*\p{Alpha}.*} and
+     * ({@code \p{Alpha}.*} or {@code .*\p{Alpha}}) without using regular
+     * expressions
+     */
+    private boolean isValidTerm(String term, String termLc) {
+        return isValidTerm(term, termLc, blacklist);
     }
 
-    private String  processTerm(String[] tokens, int i, int j,
-            HashMap<String, DocumentTerm> dts,
-            CasingStats localCasing) {
-        if (j - i >= this.ngramMin - 1) {
-            boolean allValid = true;
-            for (int k = i; k <= j; k++) {
-                allValid = allValid && isValidTerm(tokens[k]);
+    static boolean isValidTerm(String term, String termLc, Set<String> blacklist) {
+        final int n = term.length();
+        if (n <= 1 || blacklist.contains(termLc)
+                || term.startsWith("http://") || term.startsWith("https://")) {
+            return false;
+        }
+        if (!isAlpha(term.charAt(0)) && !isAlpha(term.charAt(n - 1))) {
+            return false;
+        }
+        for (int k = 0; k < n; k++) {
+            final char c = term.charAt(k);
+            // '.' does not match line terminators
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
             }
-            String termStrOrig = join(tokens, i, j);
-            String termStr = termStrOrig.toLowerCase();
-            if (allValid && termStr.length() > 2) {
-                stats.docFrequency.put(termStr, 1);
-                stats.termFrequency.put(termStr, 1 + stats.termFrequency.getInt(termStr));
-                if (dts != null) {
-                    dts.put(termStr, new DocumentTerm(doc.id, termStr,
-                            stats.termFrequency.getInt(termStr), null, null, null));
+        }
+        return true;
+    }
+
+    private static boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static long tokenHash(String token) {
+        return token.hashCode() * 0x9E3779B97F4A7C15L + token.length();
+    }
+
+    /**
+     * Calculate the validity, stop word status and hashes of the tokens of a
+     * sentence, so that each candidate span can be checked and hashed in
+     * constant time
+     */
+    private void prepare(AnnotatedSentence sentence) {
+        final int n = sentence.tokens.length;
+        if (valid.length < n) {
+            final int m = Math.max(n, valid.length * 2);
+            valid = new boolean[m];
+            stop = new boolean[m];
+            hashes = new long[m];
+            prefixHash = new long[m + 1];
+        }
+        while (powers.length <= n) {
+            final long[] p2 = Arrays.copyOf(powers, powers.length * 2);
+            for (int k = powers.length; k < p2.length; k++) {
+                p2[k] = p2[k - 1] * HASH_BASE;
+            }
+            powers = p2;
+        }
+        for (int k = 0; k < n; k++) {
+            final String token = sentence.tokens[k];
+            final String lower = sentence.lowerTokens[k];
+            valid[k] = isValidTerm(token, lower);
+            stop[k] = stopWords.contains(lower) || stopWords.contains(token);
+            hashes[k] = tokenHash(lower);
+            prefixHash[k + 1] = prefixHash[k] * HASH_BASE + hashes[k];
+        }
+    }
+
+    /**
+     * Count a candidate term. The span is identified by a rolling hash of its
+     * (lower-cased) tokens, and a string is only created the first time a span
+     * is seen in this document.
+     *
+     * @param sentence The sentence
+     * @param i The first token of the term
+     * @param j The last token of the term
+     * @param sub The index of a token to replace (or -1)
+     * @param subToken The replacement (e.g., lemma) for the token at sub
+     * @param localCasing The casing statistics
+     * @return The term or null if the span is not a valid term
+     */
+    private String processTerm(AnnotatedSentence sentence, int i, int j,
+            int sub, String subToken, CasingStats localCasing) {
+        final String[] lower = sentence.lowerTokens;
+        final String subLower = subToken == null ? null : subToken.toLowerCase();
+        int length = j - i;
+        for (int k = i; k <= j; k++) {
+            if (k == sub) {
+                if (!isValidTerm(subToken, subLower)) {
+                    return null;
                 }
-                if (j - i == 0) {
-                    localCasing.addCasing(termStrOrig);
+                length += subLower.length();
+            } else {
+                if (!valid[k]) {
+                    return null;
                 }
-                return termStr;
+                length += lower[k].length();
+            }
+        }
+        if (length <= 2) {
+            return null;
+        }
+        long hash = prefixHash[j + 1] - prefixHash[i] * powers[j - i + 1];
+        if (sub >= 0) {
+            hash += (tokenHash(subLower) - hashes[sub]) * powers[j - sub];
+        }
+        if (sketch != null) {
+            sketch.offer(hash);
+            return null;
+        }
+        if (candidates != null && !candidates.contains(hash)) {
+            return null;
+        }
+        int id = seen.get(hash);
+        if (id < 0 || !spanEquals(dictionary.term(id), lower, i, j, sub, subLower, length)) {
+            final StringBuilder sb = new StringBuilder(length);
+            for (int k = i; k <= j; k++) {
+                if (k != i) {
+                    sb.append(' ');
+                }
+                sb.append(k == sub ? subLower : lower[k]);
+            }
+            id = dictionary.id(sb.toString());
+            if (seen.get(hash) < 0) {
+                seen.put(hash, id);
+            }
+        }
+        final String termStr = dictionary.term(id);
+        stats.docFrequency.put(id, 1);
+        stats.termFrequency.addTo(id, 1);
+        if (j == i) {
+            localCasing.addCasing(termStr, i == sub ? subToken : sentence.tokens[i]);
+        }
+        return termStr;
+    }
+
+    private static boolean spanEquals(String term, String[] lower, int i, int j,
+            int sub, String subLower, int length) {
+        if (term.length() != length) {
+            return false;
+        }
+        int offset = 0;
+        for (int k = i; k <= j; k++) {
+            if (k != i) {
+                if (term.charAt(offset++) != ' ') {
+                    return false;
+                }
+            }
+            final String token = k == sub ? subLower : lower[k];
+            if (!term.regionMatches(offset, token, 0, token.length())) {
+                return false;
             }
+            offset += token.length();
         }
-        return null;
+        return true;
     }
 
 }
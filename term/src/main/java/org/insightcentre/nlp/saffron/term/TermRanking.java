@@ -0,0 +1,137 @@
+package org.insightcentre.nlp.saffron.term;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.ints.IntHeapPriorityQueue;
+import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ranks a list of terms by a score. White-listed terms are ranked first (by
+ * score), followed by proper terms and then all other terms. Ties are broken
+ * by the position of the term in the original list, so the ranking is the
+ * same as a stable sort of that list.
+ *
+ * The key of each term is calculated once, and the best terms can be selected
+ * with a bounded heap without sorting the whole list.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class TermRanking {
+
+    private final String[] terms;
+    private final int[] rankClass;
+    private final double[] scores;
+    private final IntComparator order = new AbstractIntComparator() {
+        @Override
+        public int compare(int i, int j) {
+            if (rankClass[i] != rankClass[j]) {
+                return rankClass[i] < rankClass[j] ? -1 : +1;
+            }
+            final int c = -Double.compare(scores[i], scores[j]);
+            if (c != 0) {
+                return c;
+            }
+            return i < j ? -1 : (i == j ? 0 : +1);
+        }
+    };
+
+    /**
+     * Create a ranking
+     *
+     * @param terms The terms (in the order used to break ties)
+     * @param scores The score of each term
+     * @param whiteList The terms to rank first
+     * @param blackList The terms to exclude from the ranking
+     * @param properTerms Whether each term is a proper term
+     */
+    public TermRanking(List<String> terms, Object2DoubleMap<String> scores,
+            Set<String> whiteList, Set<String> blackList,
+            Object2BooleanMap<String> properTerms) {
+        final List<String> ts = new ArrayList<>(terms.size());
+        for (String t : terms) {
+            if (!blackList.contains(t)) {
+                ts.add(t);
+            }
+        }
+        this.terms = ts.toArray(new String[ts.size()]);
+        this.rankClass = new int[this.terms.length];
+        this.scores = new double[this.terms.length];
+        for (int i = 0; i < this.terms.length; i++) {
+            final String t = this.terms[i];
+            rankClass[i] = whiteList.contains(t) ? 0 : (properTerms.getBoolean(t) ? 1 : 2);
+            this.scores[i] = scores.getDouble(t);
+        }
+    }
+
+    /**
+     * The number of (not black-listed) terms
+     *
+     * @return The number of terms
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * Rank all the terms
+     *
+     * @return The terms from best to worst
+     */
+    public List<String> sorted() {
+        final int[] idx = new int[terms.length];
+        for (int i = 0; i < idx.length; i++) {
+            idx[i] = i;
+        }
+        IntArrays.quickSort(idx, order);
+        return toTerms(idx, idx.length);
+    }
+
+    /**
+     * Select the best terms, in O(n log k) time
+     *
+     * @param k The number of terms to select
+     * @return The (at most) k best terms from best to worst
+     */
+    public List<String> top(int k) {
+        if (k >= terms.length) {
+            return sorted();
+        }
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        // The head of the heap is the worst of the best k terms
+        final IntHeapPriorityQueue heap = new IntHeapPriorityQueue(k, new AbstractIntComparator() {
+            @Override
+            public int compare(int i, int j) {
+                return order.compare(j, i);
+            }
+        });
+        for (int i = 0; i < terms.length; i++) {
+            if (heap.size() < k) {
+                heap.enqueue(i);
+            } else if (order.compare(i, heap.firstInt()) < 0) {
+                heap.dequeueInt();
+                heap.enqueue(i);
+            }
+        }
+        final int[] idx = new int[heap.size()];
+        for (int i = idx.length - 1; i >= 0; i--) {
+            idx[i] = heap.dequeueInt();
+        }
+        return toTerms(idx, idx.length);
+    }
+
+    private List<String> toTerms(int[] idx, int n) {
+        final String[] result = new String[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = terms[idx[i]];
+        }
+        return new ArrayList<>(Arrays.asList(result));
+    }
+}
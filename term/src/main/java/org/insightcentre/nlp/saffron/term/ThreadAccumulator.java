@@ -0,0 +1,93 @@
+package org.insightcentre.nlp.saffron.term;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Holds one partial result per worker thread, so that tasks can accumulate
+ * statistics without taking a lock. Once all the tasks have finished the
+ * partial results are combined with a parallel tree merge.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ * @param <X> The type of statistic being accumulated
+ */
+public class ThreadAccumulator<X> {
+
+    private final Supplier<X> factory;
+    private final BiConsumer<X, X> combiner;
+    private final ConcurrentLinkedQueue<X> partials = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<X> local;
+
+    /**
+     * Create an accumulator
+     *
+     * @param factory Creates a new empty statistic
+     * @param combiner Adds the second statistic into the first
+     */
+    public ThreadAccumulator(Supplier<X> factory, BiConsumer<X, X> combiner) {
+        this.factory = factory;
+        this.combiner = combiner;
+        this.local = new ThreadLocal<X>() {
+            @Override
+            protected X initialValue() {
+                X x = factory.get();
+                partials.add(x);
+                return x;
+            }
+        };
+    }
+
+    /**
+     * Get the partial statistic owned by the current thread
+     *
+     * @return The statistic, which must only be modified by this thread
+     */
+    public X get() {
+        return local.get();
+    }
+
+    /**
+     * Combine all the partial statistics. This should only be called after all
+     * the threads that contributed have finished
+     *
+     * @return The combined statistic
+     */
+    public X merge() {
+        final List<X> xs = new ArrayList<>(partials);
+        if (xs.isEmpty()) {
+            return factory.get();
+        }
+        return ForkJoinPool.commonPool().invoke(new MergeTask(xs, 0, xs.size()));
+    }
+
+    private class MergeTask extends RecursiveTask<X> {
+
+        private final List<X> xs;
+        private final int lo, hi;
+
+        public MergeTask(List<X> xs, int lo, int hi) {
+            this.xs = xs;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected X compute() {
+            if (hi - lo == 1) {
+                return xs.get(lo);
+            }
+            final int mid = (lo + hi) >>> 1;
+            final ForkJoinTask<X> left = new MergeTask(xs, lo, mid).fork();
+            final X right = new MergeTask(xs, mid, hi).compute();
+            final X result = left.join();
+            combiner.accept(result, right);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.insightcentre.nlp.saffron.term;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import opennlp.tools.tokenize.Tokenizer;
+
+/**
+ * An Aho-Corasick automaton that finds all occurrences of a set of
+ * multi-word terms in a sequence of tokens. The tokens of the terms are
+ * interned as integers and the automaton is immutable once built, so a single
+ * instance can be shared by all the threads of a run.
+ *
+ * A sequence is matched by calling {@link #next(int, String)} for each token,
+ * starting from {@link #START}, and the terms that end at the token are then
+ * listed by {@link #firstMatch(int)} and {@link #nextMatch(int)}:
+ * <pre>
+ * for (int m = automaton.firstMatch(state); m &gt;= 0; m = automaton.nextMatch(m)) {
+ *     String term = automaton.term(m);
+ * }
+ * </pre>
+ *
+ * The automaton can also be used as a trie with {@link #child(int, String)}.
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class TokenAutomaton {
+
+    /**
+     * The initial state (matching no token)
+     */
+    public static final int START = 0;
+
+    private final Object2IntOpenHashMap<String> tokenIds = new Object2IntOpenHashMap<>();
+    private final Long2IntOpenHashMap transitions = new Long2IntOpenHashMap();
+    private final int[] fail;
+    private final int[] matchLink;
+    private final String[] terms;
+
+    /**
+     * Build an automaton
+     *
+     * @param patterns The tokens of each term. The term is the tokens joined
+     * by spaces
+     */
+    public TokenAutomaton(Collection<String[]> patterns) {
+        tokenIds.defaultReturnValue(-1);
+        transitions.defaultReturnValue(-1);
+        final List<IntArrayList> children = new ArrayList<>();
+        final List<String> nodeTerms = new ArrayList<>();
+        children.add(new IntArrayList());
+        nodeTerms.add(null);
+        for (String[] pattern : patterns) {
+            if (pattern.length == 0) {
+                continue;
+            }
+            int node = START;
+            for (String token : pattern) {
+                int id = tokenIds.getInt(token);
+                if (id < 0) {
+                    id = tokenIds.size();
+                    tokenIds.put(token, id);
+                }
+                int c = transitions.get(edge(node, id));
+                if (c < 0) {
+                    c = nodeTerms.size();
+                    transitions.put(edge(node, id), c);
+                    children.get(node).add(id);
+                    children.add(new IntArrayList());
+                    nodeTerms.add(null);
+                }
+                node = c;
+            }
+            nodeTerms.set(node, String.join(" ", pattern));
+        }
+        final int n = nodeTerms.size();
+        this.terms = nodeTerms.toArray(new String[n]);
+        this.fail = new int[n];
+        this.matchLink = new int[n];
+        matchLink[START] = -1;
+        // Breadth-first, so the failure state of each node is already known
+        final IntArrayList queue = new IntArrayList();
+        queue.add(START);
+        for (int q = 0; q < queue.size(); q++) {
+            final int node = queue.getInt(q);
+            for (int i = 0; i < children.get(node).size(); i++) {
+                final int token = children.get(node).getInt(i);
+                final int c = transitions.get(edge(node, token));
+                fail[c] = node == START ? START : next(fail[node], token);
+                matchLink[c] = terms[fail[c]] != null ? fail[c] : matchLink[fail[c]];
+                queue.add(c);
+            }
+        }
+    }
+
+    /**
+     * Build an automaton from a set of terms
+     *
+     * @param terms The terms (which are lower-cased)
+     * @param tokenizer The tokenizer to split the terms with
+     * @return The automaton
+     */
+    public static TokenAutomaton build(Collection<String> terms, Tokenizer tokenizer) {
+        final List<String[]> patterns = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            patterns.add(tokenizer.tokenize(term.toLowerCase()));
+        }
+        return new TokenAutomaton(patterns);
+    }
+
+    private static long edge(int node, int token) {
+        return ((long) node << 32) | (token & 0xffffffffL);
+    }
+
+    private int next(int state, int token) {
+        while (true) {
+            final int c = transitions.get(edge(state, token));
+            if (c >= 0) {
+                return c;
+            }
+            if (state == START) {
+                return START;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * Move to the next state of the automaton
+     *
+     * @param state The current state
+     * @param token The next token
+     * @return The state after reading the token
+     */
+    public int next(int state, String token) {
+        final int id = tokenIds.getInt(token);
+        return id < 0 ? START : next(state, id);
+    }
+
+    /**
+     * Follow a single edge of the trie of terms
+     *
+     * @param node The node (e.g., {@link #START})
+     * @param token The next token
+     * @return The node or -1 if no term continues with this token
+     */
+    public int child(int node, String token) {
+        final int id = tokenIds.getInt(token);
+        return id < 0 ? -1 : transitions.get(edge(node, id));
+    }
+
+    /**
+     * The term that ends at a node
+     *
+     * @param node The node
+     * @return The term or null if no term ends at this node
+     */
+    public String term(int node) {
+        return terms[node];
+    }
+
+    /**
+     * The longest term that ends in a state
+     *
+     * @param state The state
+     * @return The node of the term or -1 if no term ends in this state
+     */
+    public int firstMatch(int state) {
+        return terms[state] != null ? state : matchLink[state];
+    }
+
+    /**
+     * The next (shorter) term that ends in the same state as a match
+     *
+     * @param match The node of the previous match
+     * @return The node of the term or -1 if there are no more terms
+     */
+    public int nextMatch(int match) {
+        return matchLink[match];
+    }
+
+    /**
+     * The number of nodes of the trie
+     *
+     * @return The number of nodes
+     */
+    public int size() {
+        return terms.length;
+    }
+}
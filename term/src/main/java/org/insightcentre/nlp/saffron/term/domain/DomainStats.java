@@ -14,17 +14,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import opennlp.tools.postag.POSTagger;
 import opennlp.tools.tokenize.Tokenizer;
 import org.insightcentre.nlp.saffron.data.Corpus;
 import org.insightcentre.nlp.saffron.data.Document;
+import org.insightcentre.nlp.saffron.term.AnnotatedCorpus;
+import org.insightcentre.nlp.saffron.term.AnnotatedSentence;
+import org.insightcentre.nlp.saffron.term.AnnotationCache;
 import org.insightcentre.nlp.saffron.term.Features;
 import org.insightcentre.nlp.saffron.term.FrequencyStats;
 import org.insightcentre.nlp.saffron.term.InclusionStats;
+import org.insightcentre.nlp.saffron.term.ThreadAccumulator;
+import org.insightcentre.nlp.saffron.util.SaffronExecutor;
 
 /**
  * Extract the domain statistics and calculate the domain coherence statistic
@@ -53,7 +54,58 @@ public class DomainStats {
             ThreadLocal<Tokenizer> tokenizer, int maxLength, int maxDocs,
             FrequencyStats stats, InclusionStats incl, Set<String> stopWords,
             ThreadLocal<POSTagger> tagger, Set<String> preceedingTokens, Set<String> middleTokens, Set<String> endTokens, boolean headTokenFinal) {
-        Map<String, Object2IntMap<String>> totalFreqs = totalFreqs(searcher, nThreads, tokenizer, maxLength, maxDocs, stats, incl, tagger, preceedingTokens, middleTokens, endTokens, headTokenFinal);
+        return initialize(searcher, nThreads, tokenizer, maxLength, maxDocs, stats, incl, stopWords, tagger, preceedingTokens, middleTokens, endTokens, headTokenFinal, null);
+    }
+
+    public static DomainStats initialize(Corpus searcher, int nThreads,
+            ThreadLocal<Tokenizer> tokenizer, int maxLength, int maxDocs,
+            FrequencyStats stats, InclusionStats incl, Set<String> stopWords,
+            ThreadLocal<POSTagger> tagger, Set<String> preceedingTokens, Set<String> middleTokens, Set<String> endTokens, boolean headTokenFinal,
+            AnnotationCache annotationCache) {
+        Map<String, Object2IntMap<String>> totalFreqs = totalFreqs(searcher, nThreads, tokenizer, maxLength, maxDocs, stats, incl, tagger, preceedingTokens, middleTokens, endTokens, headTokenFinal, annotationCache);
+        return fromTotalFreqs(totalFreqs, stats, stopWords);
+    }
+
+    /**
+     * Initialize the domain statistics from the annotations collected during
+     * term extraction, without reading the corpus again
+     *
+     * @param corpus The annotations of the documents (must be tagged)
+     * @param nThreads The number of threads to use
+     * @param maxLength The maximum length of a term
+     * @param stats The frequency statistics of the term extraction
+     * @param incl The inclusion statistics of the term extraction
+     * @param stopWords The stop words
+     * @param preceedingTokens The tags that may precede the head of a term
+     * @param middleTokens The tags that may occur in the middle of a term
+     * @param endTokens The tags that may be the head of a term
+     * @param headTokenFinal If the head is the final token of the term
+     * @return The domain statistics
+     */
+    public static DomainStats initialize(AnnotatedCorpus corpus, int nThreads,
+            int maxLength, FrequencyStats stats, InclusionStats incl, Set<String> stopWords,
+            Set<String> preceedingTokens, Set<String> middleTokens, Set<String> endTokens, boolean headTokenFinal) {
+        final SaffronExecutor.Batch batch = SaffronExecutor.getInstance().newBatch(nThreads);
+
+        Set<String> topTerms = new HashSet<>(topTerms(stats, incl));
+        ThreadAccumulator<Map<String, Object2IntMap<String>>> totalFreqs = new ThreadAccumulator<>(
+                HashMap::new, DomainStats::addFreqs);
+
+        try {
+            for (List<AnnotatedSentence> sentences : corpus) {
+                batch.submit(new TopWordsTask(sentences, maxLength, topTerms, totalFreqs, preceedingTokens, middleTokens, endTokens, headTokenFinal));
+            }
+
+            batch.await();
+        } catch (InterruptedException x) {
+            x.printStackTrace();
+            throw new RuntimeException(x);
+        }
+        return fromTotalFreqs(totalFreqs.merge(), stats, stopWords);
+    }
+
+    private static DomainStats fromTotalFreqs(Map<String, Object2IntMap<String>> totalFreqs,
+            FrequencyStats stats, Set<String> stopWords) {
         Set<String> words = topWords(stats, totalFreqs, stopWords);
         filterByWords(words, totalFreqs);
         Object2IntMap<String> wordFreq = new Object2IntLinkedOpenHashMap<>();
@@ -87,26 +139,31 @@ public class DomainStats {
     private static Map<String, Object2IntMap<String>> totalFreqs(Corpus searcher, int nThreads,
             ThreadLocal<Tokenizer> tokenizer, int maxLength, int maxDocs,
             FrequencyStats stats, InclusionStats incl, 
-            ThreadLocal<POSTagger> tagger, Set<String> preceedingTokens, Set<String> middleTokens, Set<String> endTokens, boolean headTokenFinal) {
-        ExecutorService service = new ThreadPoolExecutor(nThreads, nThreads, 0,
-                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1000),
-                new ThreadPoolExecutor.CallerRunsPolicy());
+            ThreadLocal<POSTagger> tagger, Set<String> preceedingTokens, Set<String> middleTokens, Set<String> endTokens, boolean headTokenFinal,
+            AnnotationCache annotationCache) {
+        final SaffronExecutor.Batch batch = SaffronExecutor.getInstance().newBatch(nThreads);
 
         Set<String> topTerms = new HashSet<>(topTerms(stats, incl));
-        Map<String, Object2IntMap<String>> totalFreqs = new HashMap<>();
+        ThreadAccumulator<Map<String, Object2IntMap<String>>> totalFreqs = new ThreadAccumulator<>(
+                HashMap::new, DomainStats::addFreqs);
 
-        int docCount = 0;
-        for (Document doc : searcher.getDocuments()) {
-            service.submit(new TopWordsTask(doc, tokenizer, maxLength, topTerms, totalFreqs, tagger, preceedingTokens, middleTokens, endTokens, headTokenFinal));
-            if (docCount++ > maxDocs) {
-                break;
+        try {
+            int docCount = 0;
+            final Iterator<Document> docs = searcher.getDocuments().iterator();
+            try {
+                while (docs.hasNext()) {
+                    final Document doc = docs.next();
+                    batch.submit(new TopWordsTask(doc, tokenizer, maxLength, topTerms, totalFreqs, tagger, preceedingTokens, middleTokens, endTokens, headTokenFinal, annotationCache));
+                    if (docCount++ > maxDocs) {
+                        break;
+                    }
+                }
+            } finally {
+                Corpus.close(docs);
             }
-        }
 
-        service.shutdown();
-        try {
-            service.awaitTermination(2, TimeUnit.DAYS);
-            return totalFreqs;
+            batch.await();
+            return totalFreqs.merge();
 
         } catch (InterruptedException x) {
             x.printStackTrace();
@@ -202,21 +259,37 @@ public class DomainStats {
         }
     }
 
+    private static void addFreqs(Map<String, Object2IntMap<String>> totalFreqs, Map<String, Object2IntMap<String>> freq) {
+        for (Map.Entry<String, Object2IntMap<String>> e2 : freq.entrySet()) {
+            Object2IntMap<String> freq2 = totalFreqs.get(e2.getKey());
+            if (freq2 == null) {
+                totalFreqs.put(e2.getKey(), e2.getValue());
+            } else {
+                for (Object2IntMap.Entry<String> e : e2.getValue().object2IntEntrySet()) {
+                    freq2.put(e.getKey(), freq2.getInt(e.getKey()) + e.getIntValue());
+                }
+            }
+        }
+    }
+
     private static class TopWordsTask implements Runnable {
 
         private final Document doc;
+        private final List<AnnotatedSentence> sentences;
         private final ThreadLocal<Tokenizer> tokenizer;
         private final int maxLength;
         private final Set<String> topTerms;
-        private final Map<String, Object2IntMap<String>> totalFreqs;
+        private final ThreadAccumulator<Map<String, Object2IntMap<String>>> totalFreqs;
         private final ThreadLocal<POSTagger> tagger;
         private final Set<String> preceedingTokens;
         private final Set<String> middleTokens;
         private final Set<String> endTokens;
         private final boolean headTokenFinal;
+        private final AnnotationCache annotationCache;
 
-        public TopWordsTask(Document doc, ThreadLocal<Tokenizer> tokenizer, int maxLength, Set<String> topTerms, Map<String, Object2IntMap<String>> totalFreqs, ThreadLocal<POSTagger> tagger, Set<String> preceedingTokens, Set<String> middleTokens, Set<String> endTokens, boolean headTokenFinal) {
+        public TopWordsTask(Document doc, ThreadLocal<Tokenizer> tokenizer, int maxLength, Set<String> topTerms, ThreadAccumulator<Map<String, Object2IntMap<String>>> totalFreqs, ThreadLocal<POSTagger> tagger, Set<String> preceedingTokens, Set<String> middleTokens, Set<String> endTokens, boolean headTokenFinal, AnnotationCache annotationCache) {
             this.doc = doc;
+            this.sentences = null;
             this.tokenizer = tokenizer;
             this.maxLength = maxLength;
             this.topTerms = topTerms;
@@ -226,15 +299,34 @@ public class DomainStats {
             this.middleTokens = middleTokens;
             this.endTokens = endTokens;
             this.headTokenFinal = headTokenFinal;
+            this.annotationCache = annotationCache;
+        }
+
+        public TopWordsTask(List<AnnotatedSentence> sentences, int maxLength, Set<String> topTerms, ThreadAccumulator<Map<String, Object2IntMap<String>>> totalFreqs, Set<String> preceedingTokens, Set<String> middleTokens, Set<String> endTokens, boolean headTokenFinal) {
+            this.doc = null;
+            this.sentences = sentences;
+            this.tokenizer = null;
+            this.maxLength = maxLength;
+            this.topTerms = topTerms;
+            this.totalFreqs = totalFreqs;
+            this.tagger = null;
+            this.preceedingTokens = preceedingTokens;
+            this.middleTokens = middleTokens;
+            this.endTokens = endTokens;
+            this.headTokenFinal = headTokenFinal;
+            this.annotationCache = null;
         }
 
         @Override
         public void run() {
             final Map<String, Object2IntMap<String>> freq = new HashMap<>();
-            String contents = doc.contents();
-            for (String sentence : contents.split("\n")) {
-                String[] tokens = tokenizer.get().tokenize(sentence.toLowerCase());
-                String[] tags = tagger.get().tag(tokens);
+            final List<AnnotatedSentence> sentences = this.sentences != null ? this.sentences
+                    : annotationCache != null
+                    ? annotationCache.annotate(doc)
+                    : AnnotatedSentence.annotate(doc, tokenizer, tagger, null);
+            for (AnnotatedSentence sentence : sentences) {
+                final String[] tokens = sentence.lowerTokens;
+                final String[] tags = sentence.tags;
                 if (tokens.length > 0) {
                     for (int i = 0; i <= tokens.length - maxLength; i++) {
                         for (int j = i + 1; j <= i + maxLength; j++) {
@@ -254,18 +346,7 @@ public class DomainStats {
                     }
                 }
             }
-            synchronized (totalFreqs) {
-                for (Map.Entry<String, Object2IntMap<String>> e2 : freq.entrySet()) {
-                    if (!totalFreqs.containsKey(e2.getKey())) {
-                        totalFreqs.put(e2.getKey(), e2.getValue());
-                    } else {
-                        Object2IntMap<String> freq2 = totalFreqs.get(e2.getKey());
-                        for (Object2IntMap.Entry<String> e : e2.getValue().object2IntEntrySet()) {
-                            freq2.put(e.getKey(), freq2.getInt(e.getKey()) + e.getIntValue());
-                        }
-                    }
-                }
-            }
+            addFreqs(totalFreqs.get(), freq);
         }
 
         private boolean isTerm(String[] tags, int i, int j) {
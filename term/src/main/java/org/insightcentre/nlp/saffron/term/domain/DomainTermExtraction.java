@@ -10,13 +10,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
 import org.insightcentre.nlp.saffron.config.Configuration;
@@ -29,8 +26,10 @@ import org.insightcentre.nlp.saffron.data.Corpus;
 import org.insightcentre.nlp.saffron.data.Document;
 import org.insightcentre.nlp.saffron.data.Status;
 import org.insightcentre.nlp.saffron.data.Term;
+import org.insightcentre.nlp.saffron.term.AnnotatedSentence;
 import org.insightcentre.nlp.saffron.term.TermExtraction;
 import org.insightcentre.nlp.saffron.term.TermExtraction.Result;
+import org.insightcentre.nlp.saffron.util.SaffronExecutor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -374,24 +373,27 @@ public class DomainTermExtraction {
             Set<String> seedTerms, Set<String> dmCandidateTerms,
             Map<String, Object2IntMap<String>> domainFreqs) {
 		
-        ExecutorService service = new ThreadPoolExecutor(nThreads, nThreads, 0,
-                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1000),
-                new ThreadPoolExecutor.CallerRunsPolicy());
-
-        int docCount = 0;
-        for (Document doc : corpus.getDocuments()) {
-            service.submit(new TopWordsTask(doc, tokenizer, minLength, maxLength, seedTerms, dmCandidateTerms,
-            		new HashSet<>(Arrays.asList(TermExtractionConfiguration.ENGLISH_STOPWORDS)), tagger, lemmatizer, 
-            		preceedingTokens, middleTokens, endTokens, headTokenFinal,
-            		domainFreqs));
-            if (docCount++ > maxDocs) {
-                break;
-            }
-        }
+        final SaffronExecutor.Batch batch = SaffronExecutor.getInstance().newBatch(nThreads);
 
-        service.shutdown();
         try {
-            service.awaitTermination(2, TimeUnit.DAYS);
+            int docCount = 0;
+            final Iterator<Document> docs = corpus.getDocuments().iterator();
+            try {
+                while (docs.hasNext()) {
+                    final Document doc = docs.next();
+                    batch.submit(new TopWordsTask(doc, tokenizer, minLength, maxLength, seedTerms, dmCandidateTerms,
+                    		new HashSet<>(Arrays.asList(TermExtractionConfiguration.ENGLISH_STOPWORDS)), tagger, lemmatizer, 
+                    		preceedingTokens, middleTokens, endTokens, headTokenFinal,
+                    		domainFreqs));
+                    if (docCount++ > maxDocs) {
+                        break;
+                    }
+                }
+            } finally {
+                Corpus.close(docs);
+            }
+
+            batch.await();
         } catch (InterruptedException x) {
             x.printStackTrace();
             throw new RuntimeException(x);
@@ -454,42 +456,31 @@ public class DomainTermExtraction {
         @Override
         public void run() {
         	try {
-	            String contents = doc.contents();
 	            final Map<String, Object2IntMap<String>> jointFreq = new HashMap<>();
-	            for (String sentence : contents.split("\n")) {
-	                String[] tokens;
-	                try {
-	                    tokens = tokenizer.get().tokenize(sentence);
-	                } catch (Exception x) {
-	                    System.err.println(sentence);
-	                    throw x;
-	                }
+	            for (AnnotatedSentence sentence : AnnotatedSentence.annotate(doc, tokenizer, tagger, lemmatizer)) {
+	                final String[] tokens = sentence.tokens;
 	                if (tokens.length > 0) {
-	                    final String[] tags = tagger.get().tag(tokens);
-
-	                    if (tags.length != tokens.length) {
-	                        throw new RuntimeException("Tagger did not return same number of tokens as tokenizer");
-	                    }
+	                    final String[] tags = sentence.tags;
 
 	                    for (int i = 0; i < tokens.length; i++) {
 	                        boolean nonStop = false;
 	                        for (int j = i; j < min(i + this.maxLengthSeedTerm, tokens.length); j++) {
-	                            if (!stopWords.contains(tokens[j].toLowerCase()) && !stopWords.contains(tokens[j])) {
+	                            if (!stopWords.contains(sentence.lowerTokens[j]) && !stopWords.contains(tokens[j])) {
 	                                nonStop = true;
 	                            }
 	                            if (headTokenFinal) {
 	                                if (endTokens.contains(tags[j]) && nonStop) {
-	                                	generateTerm(jointFreq, tokens, tags, i, j);
+	                                	generateTerm(jointFreq, sentence, i, j);
 	                                }
 	                                if (!preceedingTokens.contains(tags[j]) && (i == j || !middleTokens.contains(tags[j]))) {
 	                                    break;
 	                                }
 	                            } else {
 	                                if (j == i && endTokens.contains(tags[j]) && nonStop) {
-	                                	generateTerm(jointFreq, tokens, tags, i, j);
+	                                	generateTerm(jointFreq, sentence, i, j);
 	                                }
 	                                if (preceedingTokens.contains(tags[j]) && j != i) {
-	                                	generateTerm(jointFreq, tokens, tags, i, j);
+	                                	generateTerm(jointFreq, sentence, i, j);
 	                                }
 	                                if (j == i && !endTokens.contains(tags[j])
 	                                        || j > i && !middleTokens.contains(tags[j]) && !preceedingTokens.contains(tags[j])) {
@@ -518,9 +509,11 @@ public class DomainTermExtraction {
 	        }
         }
 
-		private void generateTerm(final Map<String, Object2IntMap<String>> jointFreq, String[] tokens,
-				final String[] tags, int i, int j) {
-			String seedTerm = emitTerm(j, i, tokens, tags, headTokenFinal);
+		private void generateTerm(final Map<String, Object2IntMap<String>> jointFreq,
+				final AnnotatedSentence sentence, int i, int j) {
+			final String[] tokens = sentence.tokens;
+			final String[] tags = sentence.tags;
+			String seedTerm = emitTerm(j, i, sentence, headTokenFinal);
 			
 			if (seedTerms.contains(seedTerm)) {
 				
@@ -545,14 +538,11 @@ public class DomainTermExtraction {
 		 * 
 		 * @return a term string
 		 */
-        private String emitTerm(int j, int i, String[] tokens, String[] tags,
+        private String emitTerm(int j, int i, AnnotatedSentence sentence,
 	            boolean headTokenFinal) {
+	        final String[] tokens = sentence.tokens;
 	        if (lemmatizer != null && lemmatizer.get() != null ) {//&& j - i + 1 >= ngramMin) { //TODO: Check if it this is required
-	            String[] ltoks = Arrays.copyOf(tokens, tokens.length);
-	            for (int n = 0; n < ltoks.length; n++) {
-	                ltoks[n] = ltoks[n].toLowerCase();
-	            }
-	            String[] lemmas = lemmatizer.get().lemmatize(ltoks, tags);
+	            String[] lemmas = sentence.lemmas();
 	            String[] tokens2 = Arrays.copyOfRange(tokens, i, j + 1);
 	            if (headTokenFinal) {
 	                if (!lemmas[j].equals("O") && !lemmas[j].equalsIgnoreCase("datum")) {
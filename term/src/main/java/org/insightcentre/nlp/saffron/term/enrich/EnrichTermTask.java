@@ -1,15 +1,20 @@
 package org.insightcentre.nlp.saffron.term.enrich;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import opennlp.tools.lemmatizer.Lemmatizer;
 import opennlp.tools.postag.POSTagger;
 import opennlp.tools.tokenize.Tokenizer;
 import org.insightcentre.nlp.saffron.data.Document;
 import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
+import org.insightcentre.nlp.saffron.term.AnnotatedSentence;
 import org.insightcentre.nlp.saffron.term.FrequencyStats;
+import org.insightcentre.nlp.saffron.term.ThreadAccumulator;
+import org.insightcentre.nlp.saffron.term.TokenAutomaton;
 import org.insightcentre.nlp.saffron.term.enrich.EnrichTerms.WordTrie;
 
 /**
@@ -25,11 +30,27 @@ public class EnrichTermTask implements Runnable {
     private final ThreadLocal<Tokenizer> tokenizer;
     private final FrequencyStats stats = new FrequencyStats();
     private final FrequencyStats summary;
-    private final WordTrie termStrings;
+    private ThreadAccumulator<FrequencyStats> summaries;
+    private final TokenAutomaton termStrings;
     private final ConcurrentLinkedQueue<DocumentTerm> finalDocTerms;
-    private final HashMap<String, DocumentTerm> docTerms = new HashMap<>();
 
     public EnrichTermTask(Document doc, ThreadLocal<POSTagger> tagger, ThreadLocal<Lemmatizer> lemmatizer, ThreadLocal<Tokenizer> tokenizer, FrequencyStats summary, WordTrie termStrings, ConcurrentLinkedQueue<DocumentTerm> docTerms) {
+        this(doc, tagger, lemmatizer, tokenizer, summary, toAutomaton(termStrings), docTerms);
+    }
+
+    /**
+     * Create a task
+     *
+     * @param doc The document
+     * @param tagger The tagger
+     * @param lemmatizer The lemmatizer (or null)
+     * @param tokenizer The tokenizer
+     * @param summary The statistics to add to (if no accumulator is used)
+     * @param termStrings The automaton of the terms, which should be built
+     * once and shared by all tasks
+     * @param docTerms The queue to add the document terms to
+     */
+    public EnrichTermTask(Document doc, ThreadLocal<POSTagger> tagger, ThreadLocal<Lemmatizer> lemmatizer, ThreadLocal<Tokenizer> tokenizer, FrequencyStats summary, TokenAutomaton termStrings, ConcurrentLinkedQueue<DocumentTerm> docTerms) {
         this.doc = doc;
         this.tagger = tagger;
         this.lemmatizer = lemmatizer;
@@ -39,38 +60,74 @@ public class EnrichTermTask implements Runnable {
         this.finalDocTerms = docTerms;
     }
 
+    private static TokenAutomaton toAutomaton(WordTrie trie) {
+        final List<String[]> patterns = new ArrayList<>();
+        addPatterns(trie, new ArrayList<String>(), patterns);
+        return new TokenAutomaton(patterns);
+    }
+
+    private static void addPatterns(WordTrie trie, List<String> prefix, List<String[]> patterns) {
+        for (Map.Entry<String, WordTrie> e : trie.entrySet()) {
+            prefix.add(e.getKey());
+            if (e.getValue().isPresent()) {
+                patterns.add(prefix.toArray(new String[prefix.size()]));
+            }
+            addPatterns(e.getValue(), prefix, patterns);
+            prefix.remove(prefix.size() - 1);
+        }
+    }
+
+    /**
+     * Add the frequencies to a per-thread statistic instead of locking the
+     * shared summary
+     *
+     * @param summaries The accumulator, which the caller merges once all tasks
+     * have finished
+     * @return This task
+     */
+    public EnrichTermTask withAccumulator(ThreadAccumulator<FrequencyStats> summaries) {
+        this.summaries = summaries;
+        return this;
+    }
+
     @Override
     public void run() {
-        List<WordTrie> tries = new ArrayList<>();
+        // The state is not reset between sentences
+        int state = TokenAutomaton.START;
+        IntArrayList nodes = new IntArrayList();
+        IntArrayList nodes2 = new IntArrayList();
         try {
-            String contents = doc.contents().toLowerCase();
-            for (String sentence : contents.split("\n")) {
-                String[] tokens;
-                try {
-                    tokens = tokenizer.get().tokenize(sentence);
-                } catch (Exception x) {
-                    System.err.println(sentence);
-                    throw x;
-                }
+            for (AnnotatedSentence sentence : AnnotatedSentence.annotate(doc, tokenizer, tagger, lemmatizer)) {
+                final String[] tokens = sentence.lowerTokens;
                 if (tokens.length > 0) {
-                    String[] tags = tagger == null ? null : tagger.get().tag(tokens);
-
-                    if (tags != null && tags.length != tokens.length) {
-                        throw new RuntimeException("Tagger did not return same number of tokens as tokenizer");
-                    }
-                    String[] lemmas = lemmatizer == null ? tokens : lemmatizer.get().lemmatize(tokens, tags);
+                    final String[] lemmas = sentence.lemmas() == null ? tokens : sentence.lemmas();
 
                     for (int i = 0; i < tokens.length; i++) {
-                        List<WordTrie> tries2 = updateTries(tries, tokens, i);
-                        if(lemmatizer != null) {
-                            tries2.addAll(updateTries(tries, lemmas, i));
-                        }
-                        for(WordTrie t : tries2) {
-                            if(t.present) {
-                                processTerm(t.word);
+                        if (lemmatizer == null) {
+                            state = termStrings.next(state, tokens[i]);
+                            for (int m = termStrings.firstMatch(state); m >= 0; m = termStrings.nextMatch(m)) {
+                                processTerm(termStrings.term(m));
+                            }
+                        } else {
+                            // Either the token or the lemma may match, so
+                            // follow each partial match in the trie
+                            nodes2.clear();
+                            for (int j = 0; j < nodes.size(); j++) {
+                                addNode(nodes2, termStrings.child(nodes.getInt(j), tokens[i]));
+                                addNode(nodes2, termStrings.child(nodes.getInt(j), lemmas[i]));
                             }
+                            addNode(nodes2, termStrings.child(TokenAutomaton.START, tokens[i]));
+                            addNode(nodes2, termStrings.child(TokenAutomaton.START, lemmas[i]));
+                            for (int j = 0; j < nodes2.size(); j++) {
+                                final String term = termStrings.term(nodes2.getInt(j));
+                                if (term != null) {
+                                    processTerm(term);
+                                }
+                            }
+                            final IntArrayList t = nodes;
+                            nodes = nodes2;
+                            nodes2 = t;
                         }
-                        tries = tries2;
                     }
                 }
                 stats.tokens += tokens.length;
@@ -78,36 +135,30 @@ public class EnrichTermTask implements Runnable {
 
             stats.documents = 1;
 
-            synchronized (summary) {
-                summary.add(stats);
+            if (summaries != null) {
+                summaries.get().add(stats);
+            } else {
+                synchronized (summary) {
+                    summary.add(stats);
+                }
             }
-            for(DocumentTerm dt : docTerms.values()) {
-                finalDocTerms.add(dt);
+            for (Object2IntMap.Entry<String> e : stats.termFrequency.object2IntEntrySet()) {
+                finalDocTerms.add(new DocumentTerm(doc.id, e.getKey(), e.getIntValue(), null, null, null));
             }
         } catch (Exception x) {
             x.printStackTrace();
         } 
     }
 
-    private List<WordTrie> updateTries(final List<WordTrie> tries, final String[] tokens, final int i) {
-        List<WordTrie> tries2 = new ArrayList<>();
-        for(WordTrie trie : tries) {
-            WordTrie t = trie.get(tokens[i]);
-            if(t != null) {
-                tries2.add(t);
-            }
+    private static void addNode(IntArrayList nodes, int node) {
+        if (node >= 0 && !nodes.contains(node)) {
+            nodes.add(node);
         }
-        if(termStrings.containsKey(tokens[i])) {
-            tries2.add(termStrings.get(tokens[i]));
-        }
-        return tries2;
     }
 
     private void processTerm(String termCandidate) {
-        stats.termFrequency.put(termCandidate, stats.termFrequency.getInt(termCandidate) + 1);
+        stats.termFrequency.addTo(termCandidate, 1);
         stats.docFrequency.put(termCandidate, 1);
-        docTerms.put(termCandidate, new DocumentTerm(doc.id, termCandidate, stats.termFrequency.getInt(termCandidate), null, null, null));
-
     }
 
     public static String join(String[] tokens, int i, int j) {
@@ -15,11 +15,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import opennlp.tools.lemmatizer.DictionaryLemmatizer;
@@ -41,6 +37,9 @@ import org.insightcentre.nlp.saffron.data.Term;
 import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
 import org.insightcentre.nlp.saffron.documentindex.CorpusTools;
 import org.insightcentre.nlp.saffron.term.FrequencyStats;
+import org.insightcentre.nlp.saffron.term.ThreadAccumulator;
+import org.insightcentre.nlp.saffron.term.TokenAutomaton;
+import org.insightcentre.nlp.saffron.util.SaffronExecutor;
 
 /**
  * This is used to create a Doc-Terms file from a taxonomy, such as those used
@@ -154,19 +153,21 @@ public class EnrichTerms {
     public static Result enrich(Set<String> termStrings, Corpus corpus, int nThreads,
             ThreadLocal<POSTagger> tagger, ThreadLocal<Lemmatizer> lemmatizer, ThreadLocal<Tokenizer> tokenizer) {
         try {
-            ExecutorService service = new ThreadPoolExecutor(nThreads, nThreads, 0,
-                    TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1000),
-                    new ThreadPoolExecutor.CallerRunsPolicy());
+            final SaffronExecutor.Batch batch = SaffronExecutor.getInstance().newBatch(nThreads);
 
-            final FrequencyStats summary = new FrequencyStats();
+            final ThreadAccumulator<FrequencyStats> summaries = new ThreadAccumulator<>(
+                    FrequencyStats::new, FrequencyStats::add);
             final ConcurrentLinkedQueue<DocumentTerm> dts = new ConcurrentLinkedQueue<>();
+            // Built once and shared by all the tasks
+            final TokenAutomaton automaton = TokenAutomaton.build(termStrings, tokenizer.get());
 
             for (Document d : corpus.getDocuments()) {
-                service.submit(new EnrichTermTask(d, tagger, lemmatizer, tokenizer, summary, makeTrie(termStrings, tokenizer), dts));
+                batch.submit(new EnrichTermTask(d, tagger, lemmatizer, tokenizer, null, automaton, dts)
+                        .withAccumulator(summaries));
             }
 
-            service.shutdown();
-            service.awaitTermination(2, TimeUnit.DAYS);
+            batch.await();
+            final FrequencyStats summary = summaries.merge();
             List<DocumentTerm> docTerms = new ArrayList<>(dts);
             List<Term> terms = new ArrayList<>();
             for (String term : termStrings) {
@@ -310,15 +311,6 @@ public class EnrichTerms {
         }
     }
 
-    private static WordTrie makeTrie(Set<String> termStrings, ThreadLocal<Tokenizer> _tokenizer) {
-        Tokenizer tokenizer = _tokenizer.get();
-        WordTrie trie = new WordTrie("");
-        for (String termString : termStrings) {
-            trie.addTokenized(tokenizer.tokenize(termString.toLowerCase()));
-        }
-        return trie;
-    }
-
     public static class WordTrie extends AbstractMap<String, WordTrie> {
 
         final Map<String, WordTrie> trie;
@@ -50,15 +50,64 @@ public class AssignmentBuffer {
     private final long fileSize;
     private final FileChannel channel;
     private final int bufSize;
+    private final long start;
     private long pos = 0;
     private MappedByteBuffer buf;
 
     public AssignmentBuffer(FileChannel buffer, int bufSize, long fileSize) {
+        this(buffer, bufSize, 0, fileSize);
+    }
+
+    private AssignmentBuffer(FileChannel buffer, int bufSize, long start, long fileSize) {
         this.channel = buffer;
         this.bufSize = bufSize;
+        this.start = start;
         this.fileSize = fileSize;
     }
 
+    /**
+     * Create a buffer over part of this buffer. The buffers share the same
+     * file, so parts that do not overlap can be updated by different threads
+     *
+     * @param from The position (in bytes) of the start of the part
+     * @param to The position (in bytes) of the end of the part
+     * @return A buffer over the part
+     */
+    public AssignmentBuffer slice(long from, long to) {
+        if (from < 0 || to > fileSize || from > to || from % 8 != 0 || to % 8 != 0) {
+            throw new IllegalArgumentException("Bad slice " + from + "-" + to + " of " + fileSize);
+        }
+        return new AssignmentBuffer(channel, bufSize, start + from, to - from);
+    }
+
+    /**
+     * The size of this buffer in bytes
+     *
+     * @return The size
+     */
+    public long size() {
+        return fileSize;
+    }
+
+    /**
+     * The current position in this buffer in bytes
+     *
+     * @return The position
+     */
+    public long getPosition() {
+        return pos;
+    }
+
+    /**
+     * Move to a position in this buffer
+     *
+     * @param position The position (in bytes, as returned by {@link #getPosition()})
+     */
+    public void seek(long position) {
+        buf = null;
+        pos = position;
+    }
+
     public int getNext() throws IOException {
         if (buf == null || (pos != 0 && pos % bufSize == 0)) {
             loadBuf();
@@ -107,7 +156,7 @@ public class AssignmentBuffer {
     private void loadBuf() throws IOException {
         // The current buffer is not large enough
         final long toRead = Math.min(fileSize - pos, bufSize);
-        buf = channel.map(FileChannel.MapMode.READ_WRITE, pos, toRead);
+        buf = channel.map(FileChannel.MapMode.READ_WRITE, start + pos, toRead);
     }
     
         /**
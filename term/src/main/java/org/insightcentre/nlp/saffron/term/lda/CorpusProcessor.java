@@ -2,14 +2,18 @@ package org.insightcentre.nlp.saffron.term.lda;
 
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.List;
 import opennlp.tools.tokenize.Tokenizer;
 import org.insightcentre.nlp.saffron.data.Corpus;
 import org.insightcentre.nlp.saffron.data.Document;
+import org.insightcentre.nlp.saffron.term.AnnotatedCorpus;
+import org.insightcentre.nlp.saffron.term.AnnotatedSentence;
 
 /**
  * Converts a Saffron Corpus into an assignment buffer for the LDA algorithm
@@ -53,6 +57,45 @@ public class CorpusProcessor {
 
     }
 
+    /**
+     * Convert the annotations collected during term extraction, without
+     * reading the corpus again. The lower-cased tokens of the annotations are
+     * used as the words
+     *
+     * @param corpus The annotated corpus
+     * @return The assignment buffer
+     * @throws IOException If the buffer could not be written
+     */
+    public static Result convert(AnnotatedCorpus corpus) throws IOException {
+        final Object2IntMap<String> dictionary = new Object2IntOpenHashMap<>();
+        final File tmpFile = File.createTempFile("assign", ".buf");
+        tmpFile.deleteOnExit();
+        int J = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            for (List<AnnotatedSentence> doc : corpus) {
+                for (AnnotatedSentence sentence : doc) {
+                    for (String token : sentence.lowerTokens) {
+                        final int i;
+                        if (dictionary.containsKey(token)) {
+                            i = dictionary.getInt(token);
+                        } else {
+                            i = dictionary.size();
+                            dictionary.put(token, i);
+                        }
+                        out.writeInt(i);
+                        out.writeInt(0);
+                    }
+                }
+                out.writeInt(-1);
+                out.writeInt(0);
+                J++;
+            }
+        }
+        return new Result(
+                new AssignmentBuffer(new RandomAccessFile(tmpFile, "rw").getChannel(), 4194304, tmpFile.length()),
+                J, dictionary);
+    }
+
     public static class Result {
 
         final public AssignmentBuffer buffer;
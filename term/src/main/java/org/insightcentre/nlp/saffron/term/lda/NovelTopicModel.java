@@ -6,6 +6,7 @@ import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import java.io.IOException;
 import opennlp.tools.tokenize.Tokenizer;
 import org.insightcentre.nlp.saffron.data.Corpus;
+import org.insightcentre.nlp.saffron.term.AnnotatedCorpus;
 import org.insightcentre.nlp.saffron.term.FrequencyStats;
 
 /**
@@ -33,21 +34,74 @@ public class NovelTopicModel {
     }
     
    public static NovelTopicModel initialize(Corpus searcher, ThreadLocal<Tokenizer> tokenizer) throws IOException {
-       CorpusProcessor.Result r = CorpusProcessor.convert(searcher, tokenizer);
-       LDA lda = new LDA(r.buffer, K, r.docCount, r.dictionary.size(), alpha, beta);
-       lda.train(iterations, verbose);
-       if(verbose) {
-            lda.printAssignment(reverseDictionary(r.dictionary));
-       }
+       return initialize(searcher, tokenizer, 1);
+   }
+
+   /**
+    * Train the topic model on a corpus
+    * @param searcher The corpus
+    * @param tokenizer The tokenizer
+    * @param nThreads The number of threads, if this is greater than one the
+    * parallel sparse sampler ({@link SparseLDA}) is used
+    * @return The topic model
+    * @throws IOException If the assignment buffer could not be created
+    */
+   public static NovelTopicModel initialize(Corpus searcher, ThreadLocal<Tokenizer> tokenizer, int nThreads) throws IOException {
+       return initialize(CorpusProcessor.convert(searcher, tokenizer), nThreads);
+   }
+
+   /**
+    * Train the topic model on the annotations collected during term extraction
+    * @param corpus The annotated corpus
+    * @return The topic model
+    * @throws IOException If the assignment buffer could not be created
+    */
+   public static NovelTopicModel initialize(AnnotatedCorpus corpus) throws IOException {
+       return initialize(corpus, 1);
+   }
+
+   /**
+    * Train the topic model on the annotations collected during term extraction
+    * @param corpus The annotated corpus
+    * @param nThreads The number of threads, if this is greater than one the
+    * parallel sparse sampler ({@link SparseLDA}) is used
+    * @return The topic model
+    * @throws IOException If the assignment buffer could not be created
+    */
+   public static NovelTopicModel initialize(AnnotatedCorpus corpus, int nThreads) throws IOException {
+       return initialize(CorpusProcessor.convert(corpus), nThreads);
+   }
+
+   private static NovelTopicModel initialize(CorpusProcessor.Result r, int nThreads) throws IOException {
        final double[][] P_wk = new double[r.dictionary.size()][K];
-       for(int w = 0; w < r.dictionary.size(); w++) {
-           for(int k = 0; k < K; k++) {
-               P_wk[w][k] = ((double)lda.N_kw[k][w] + alpha) / ((double)lda.N_k[k] + K * alpha);
+       final int[] N_k;
+       if(nThreads > 1) {
+           SparseLDA lda = new SparseLDA(r.buffer, K, r.docCount, r.dictionary.size(), alpha, beta, nThreads);
+           lda.train(iterations, verbose);
+           N_k = lda.N_k;
+           final int[] N_w = new int[K];
+           for(int w = 0; w < r.dictionary.size(); w++) {
+               lda.wordTopicCounts(w, N_w);
+               for(int k = 0; k < K; k++) {
+                   P_wk[w][k] = ((double)N_w[k] + alpha) / ((double)N_k[k] + K * alpha);
+               }
+           }
+       } else {
+           LDA lda = new LDA(r.buffer, K, r.docCount, r.dictionary.size(), alpha, beta);
+           lda.train(iterations, verbose);
+           if(verbose) {
+                lda.printAssignment(reverseDictionary(r.dictionary));
+           }
+           N_k = lda.N_k;
+           for(int w = 0; w < r.dictionary.size(); w++) {
+               for(int k = 0; k < K; k++) {
+                   P_wk[w][k] = ((double)lda.N_kw[k][w] + alpha) / ((double)N_k[k] + K * alpha);
+               }
            }
        }
        int minTopicFreq = Integer.MAX_VALUE;
        for(int k = 0; k < K; k++) {
-           minTopicFreq = Math.min(minTopicFreq, lda.N_k[k]);
+           minTopicFreq = Math.min(minTopicFreq, N_k[k]);
        }
        return new NovelTopicModel(P_wk, r.dictionary, (double)minTopicFreq + K * alpha);
    } 
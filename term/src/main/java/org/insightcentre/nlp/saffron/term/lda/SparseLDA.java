@@ -0,0 +1,445 @@
+package org.insightcentre.nlp.saffron.term.lda;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * A parallel collapsed Gibbs sampler for LDA, as an alternative to
+ * {@link LDA} for large corpora.
+ *
+ * The corpus is divided into shards of whole documents that are sampled by
+ * separate threads, each against its own copy of the word-topic counts, and
+ * the counts are combined after each iteration (approximate distributed LDA,
+ * Newman et al., 2009). The topic of each token is sampled by dividing the
+ * distribution into a smoothing bucket, a document bucket and a word bucket
+ * (SparseLDA, Yao et al., 2009), so that the cost per token depends on the
+ * number of topics of the document and word rather than on K. The word-topic
+ * counts are stored for each word as an array of the non-zero counts, packed
+ * with the topic and sorted by count, and the document-topic counts are
+ * calculated from the assignment buffer as each document is read.
+ *
+ * @author John McCrae
+ */
+public class SparseLDA {
+
+    /**
+     * Number of topics
+     */
+    private final int K;
+    /**
+     * Number of documents
+     */
+    private final int J;
+    /**
+     * Number of words in vocabulary
+     */
+    private final int W;
+    private final double alpha, beta;
+    private final int topicBits;
+    private final int topicMask;
+    /**
+     * The largest count of a topic of a word that can be packed with the topic
+     */
+    private final int maxCount;
+    private final AssignmentBuffer corpus;
+    private final int nShards;
+    private AssignmentBuffer[] shards;
+    /**
+     * The non-zero topic counts of each word, as (count &lt;&lt; topicBits | topic)
+     * in descending order, followed by zeros
+     */
+    private int[][] N_wk;
+    final int[] N_k;
+    private final Random random = new Random();
+
+    public SparseLDA(AssignmentBuffer corpus, int K, int J, int W, double alpha, double beta, int nShards) {
+        this.K = K;
+        this.J = J;
+        this.W = W;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.topicBits = 32 - Integer.numberOfLeadingZeros(Math.max(K - 1, 1));
+        this.topicMask = (1 << topicBits) - 1;
+        this.maxCount = Integer.MAX_VALUE >>> topicBits;
+        this.corpus = corpus;
+        this.nShards = Math.max(nShards, 1);
+        this.N_wk = new int[W][];
+        for (int w = 0; w < W; w++) {
+            N_wk[w] = new int[0];
+        }
+        this.N_k = new int[K];
+    }
+
+    public void train(int iterations, boolean verbose) {
+        try {
+            System.err.println("Initializing");
+            initialize();
+            for (int i = 0; i < iterations; i++) {
+                final long begin = System.currentTimeMillis();
+                iterate();
+                final long time = System.currentTimeMillis() - begin;
+                final long eta = time * (iterations - i - 1) / 1000;
+                if (verbose) {
+                    System.err.println("Iteration " + (i + 1) + " ETA " + String.format("%dh%02dm%02ds", eta / 3600, (eta % 3600) / 60, (eta % 60)));
+                }
+            }
+        } catch (IOException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * Get the number of times each topic is assigned to a word
+     *
+     * @param w The word
+     * @param counts The array (of length K) to write the counts to
+     */
+    public void wordTopicCounts(int w, int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int v : N_wk[w]) {
+            if (v == 0) {
+                break;
+            }
+            counts[v & topicMask] = v >>> topicBits;
+        }
+    }
+
+    /**
+     * Assign random topics and divide the corpus into shards of about the
+     * same number of tokens
+     */
+    private void initialize() throws IOException {
+        corpus.reset();
+        final long shardSize = Math.max(corpus.size() / nShards, 8);
+        final List<AssignmentBuffer> s = new ArrayList<>();
+        long shardStart = 0;
+        while (corpus.hasNext()) {
+            int w = corpus.getNext();
+            corpus.getNext();
+            if (w == -1) {
+                final long pos = corpus.getPosition();
+                if (pos - shardStart >= shardSize && s.size() < nShards - 1) {
+                    s.add(corpus.slice(shardStart, pos));
+                    shardStart = pos;
+                }
+            } else {
+                final int k = random.nextInt(K);
+                N_wk[w] = increment(N_wk[w], k);
+                N_k[k]++;
+                corpus.update(k);
+            }
+        }
+        if (shardStart < corpus.size()) {
+            s.add(corpus.slice(shardStart, corpus.size()));
+        }
+        shards = s.toArray(new AssignmentBuffer[s.size()]);
+    }
+
+    private void iterate() {
+        final int[][][] local = new int[shards.length][][];
+        final int[][] localK = new int[shards.length][];
+        final long seed = random.nextLong();
+        IntStream.range(0, shards.length).parallel().forEach(s -> {
+            local[s] = new int[W][];
+            for (int w = 0; w < W; w++) {
+                local[s][w] = N_wk[w].clone();
+            }
+            localK[s] = N_k.clone();
+            try {
+                new Sampler(local[s], localK[s], new Random(seed + s)).sample(shards[s]);
+            } catch (IOException x) {
+                throw new RuntimeException(x);
+            }
+        });
+        synchronize(local);
+    }
+
+    /**
+     * Combine the counts of each shard, i.e., N = N + sum_s (N_s - N)
+     */
+    private void synchronize(final int[][][] local) {
+        final int[][] merged = new int[W][];
+        IntStream.range(0, W).parallel().forEach(w -> {
+            final int[] counts = new int[K];
+            for (int v : N_wk[w]) {
+                if (v == 0) {
+                    break;
+                }
+                counts[v & topicMask] -= (local.length - 1) * (v >>> topicBits);
+            }
+            for (int[][] l : local) {
+                for (int v : l[w]) {
+                    if (v == 0) {
+                        break;
+                    }
+                    counts[v & topicMask] += v >>> topicBits;
+                }
+            }
+            int n = 0;
+            for (int k = 0; k < K; k++) {
+                if (counts[k] > 0) {
+                    n++;
+                }
+            }
+            final int[] packed = new int[n];
+            n = 0;
+            for (int k = 0; k < K; k++) {
+                if (counts[k] > 0) {
+                    checkCount(counts[k]);
+                    packed[n++] = counts[k] << topicBits | k;
+                }
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < n / 2; i++) {
+                final int t = packed[i];
+                packed[i] = packed[n - 1 - i];
+                packed[n - 1 - i] = t;
+            }
+            merged[w] = packed;
+        });
+        N_wk = merged;
+        Arrays.fill(N_k, 0);
+        for (int[] packed : N_wk) {
+            for (int v : packed) {
+                if (v == 0) {
+                    break;
+                }
+                N_k[v & topicMask] += v >>> topicBits;
+            }
+        }
+    }
+
+    /**
+     * Add one to the count of a topic of a word
+     *
+     * @return The array (which is reallocated if it is full)
+     */
+    int[] increment(int[] a, int k) {
+        int i = 0;
+        while (i < a.length && a[i] != 0 && (a[i] & topicMask) != k) {
+            i++;
+        }
+        if (i == a.length) {
+            a = Arrays.copyOf(a, Math.max(a.length * 2, 2));
+        }
+        if (a[i] == 0) {
+            a[i] = 1 << topicBits | k;
+        } else {
+            checkCount((a[i] >>> topicBits) + 1);
+            a[i] += 1 << topicBits;
+        }
+        while (i > 0 && a[i - 1] < a[i]) {
+            final int t = a[i - 1];
+            a[i - 1] = a[i];
+            a[i] = t;
+            i--;
+        }
+        return a;
+    }
+
+    /**
+     * Check that a count can be packed with a topic, so that the counts are
+     * never silently corrupted
+     *
+     * @throws IllegalStateException If the count is too large
+     */
+    private void checkCount(int count) {
+        if (count > maxCount) {
+            throw new IllegalStateException("A word is assigned to a topic more than "
+                    + maxCount + " times, which is the maximum for " + K + " topics");
+        }
+    }
+
+    /**
+     * Subtract one from the count of a topic of a word
+     */
+    private void decrement(int[] a, int k) {
+        int i = 0;
+        while ((a[i] & topicMask) != k) {
+            i++;
+        }
+        a[i] -= 1 << topicBits;
+        if ((a[i] >>> topicBits) == 0) {
+            a[i] = 0;
+        }
+        while (i + 1 < a.length && a[i + 1] > a[i]) {
+            final int t = a[i + 1];
+            a[i + 1] = a[i];
+            a[i] = t;
+            i++;
+        }
+    }
+
+    /**
+     * Samples the documents of a single shard
+     */
+    private class Sampler {
+
+        private final int[][] wordTopics;
+        private final int[] topicCounts;
+        private final Random random;
+        private final int[] docTopics = new int[K];
+        private final int[] docTopicList = new int[K];
+        private int nDocTopics = 0;
+        private final double[] coef = new double[K];
+        private final double[] q = new double[K];
+        private double smoothing = 0.0;
+        private double docMass = 0.0;
+        private int[] words = new int[64];
+        private int[] topics = new int[64];
+
+        public Sampler(int[][] wordTopics, int[] topicCounts, Random random) {
+            this.wordTopics = wordTopics;
+            this.topicCounts = topicCounts;
+            this.random = random;
+            for (int k = 0; k < K; k++) {
+                smoothing += alpha * beta / (topicCounts[k] + W * beta);
+                coef[k] = alpha / (topicCounts[k] + W * beta);
+            }
+        }
+
+        public void sample(AssignmentBuffer buffer) throws IOException {
+            buffer.reset();
+            while (buffer.hasNext()) {
+                final long docStart = buffer.getPosition();
+                int n = 0;
+                boolean ended = false;
+                while (buffer.hasNext()) {
+                    final int w = buffer.getNext();
+                    final int k = buffer.getNext();
+                    if (w == -1) {
+                        ended = true;
+                        break;
+                    }
+                    if (n == words.length) {
+                        words = Arrays.copyOf(words, n * 2);
+                        topics = Arrays.copyOf(topics, n * 2);
+                    }
+                    words[n] = w;
+                    topics[n] = k;
+                    n++;
+                }
+                sampleDocument(n);
+                buffer.seek(docStart);
+                for (int i = 0; i < n; i++) {
+                    buffer.getNext();
+                    buffer.getNext();
+                    buffer.update(topics[i]);
+                }
+                if (ended) {
+                    buffer.getNext();
+                    buffer.getNext();
+                }
+            }
+        }
+
+        private void sampleDocument(int n) {
+            for (int i = 0; i < n; i++) {
+                addDocTopic(topics[i], 1);
+            }
+            for (int i = 0; i < n; i++) {
+                final int w = words[i];
+                remove(w, topics[i]);
+                final int k = draw(w);
+                add(w, k);
+                topics[i] = k;
+            }
+            for (int i = 0; i < nDocTopics; i++) {
+                final int k = docTopicList[i];
+                docTopics[k] = 0;
+                coef[k] = alpha / (topicCounts[k] + W * beta);
+            }
+            nDocTopics = 0;
+            docMass = 0.0;
+        }
+
+        private void addDocTopic(int k, int delta) {
+            final double denom = topicCounts[k] + W * beta;
+            docMass -= docTopics[k] * beta / denom;
+            if (docTopics[k] == 0) {
+                docTopicList[nDocTopics++] = k;
+            }
+            docTopics[k] += delta;
+            if (docTopics[k] == 0) {
+                for (int i = 0; i < nDocTopics; i++) {
+                    if (docTopicList[i] == k) {
+                        docTopicList[i] = docTopicList[--nDocTopics];
+                        break;
+                    }
+                }
+            }
+            docMass += docTopics[k] * beta / denom;
+            coef[k] = (docTopics[k] + alpha) / denom;
+        }
+
+        /**
+         * Change the count of topic k while keeping the buckets up to date
+         */
+        private void change(int w, int k, int delta) {
+            final double oldDenom = topicCounts[k] + W * beta;
+            smoothing -= alpha * beta / oldDenom;
+            docMass -= docTopics[k] * beta / oldDenom;
+            topicCounts[k] += delta;
+            final double denom = topicCounts[k] + W * beta;
+            smoothing += alpha * beta / denom;
+            docMass += docTopics[k] * beta / denom;
+            addDocTopic(k, delta);
+            if (delta > 0) {
+                wordTopics[w] = increment(wordTopics[w], k);
+            } else {
+                decrement(wordTopics[w], k);
+            }
+        }
+
+        private void remove(int w, int k) {
+            change(w, k, -1);
+        }
+
+        private void add(int w, int k) {
+            change(w, k, +1);
+        }
+
+        private int draw(int w) {
+            final int[] wt = wordTopics[w];
+            double wordMass = 0.0;
+            int m = 0;
+            for (; m < wt.length && wt[m] != 0; m++) {
+                q[m] = coef[wt[m] & topicMask] * (wt[m] >>> topicBits);
+                wordMass += q[m];
+            }
+            double u = random.nextDouble() * (smoothing + docMass + wordMass);
+            if (u < wordMass) {
+                for (int i = 0; i < m; i++) {
+                    u -= q[i];
+                    if (u <= 0) {
+                        return wt[i] & topicMask;
+                    }
+                }
+                return wt[m - 1] & topicMask;
+            }
+            u -= wordMass;
+            if (u < docMass) {
+                for (int i = 0; i < nDocTopics; i++) {
+                    final int k = docTopicList[i];
+                    u -= docTopics[k] * beta / (topicCounts[k] + W * beta);
+                    if (u <= 0) {
+                        return k;
+                    }
+                }
+                return docTopicList[nDocTopics - 1];
+            }
+            u -= docMass;
+            for (int k = 0; k < K; k++) {
+                u -= alpha * beta / (topicCounts[k] + W * beta);
+                if (u <= 0) {
+                    return k;
+                }
+            }
+            return K - 1;
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package org.insightcentre.nlp.saffron.term.tools;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.zip.GZIPInputStream;
 
 import org.insightcentre.nlp.saffron.config.Configuration;
 import org.insightcentre.nlp.saffron.config.TermExtractionConfiguration;
 import org.insightcentre.nlp.saffron.data.CollectionCorpus;
 import org.insightcentre.nlp.saffron.data.Corpus;
 import org.insightcentre.nlp.saffron.term.FrequencyStats;
+import org.insightcentre.nlp.saffron.term.MappedReferenceCorpus;
 import org.insightcentre.nlp.saffron.term.TermExtraction;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,7 +42,8 @@ public class GenerateReferenceCorpus {
 	            {
 	                accepts("c", "The configuration to use").withRequiredArg().ofType(File.class);
 	                accepts("x", "The corpus to read (in Saffron format)").withRequiredArg().ofType(File.class);
-	                accepts("o", "The output file with the reference corpus").withRequiredArg().ofType(File.class);
+	                accepts("r", "An existing reference corpus (in JSON) to convert instead of reading a corpus").withRequiredArg().ofType(File.class);
+	                accepts("o", "The output file with the reference corpus (a memory-mapped binary table if it ends in .bin, JSON otherwise)").withRequiredArg().ofType(File.class);
 	            }
 	        };
 	        final OptionSet os;
@@ -53,6 +57,19 @@ public class GenerateReferenceCorpus {
 	
 	        ObjectMapper mapper = new ObjectMapper();
 	           
+	        if (os.valueOf("o") == null) {
+	            badOptions(p, "Output file is required");
+	            return;
+	        }
+	        final File outFile = (File) os.valueOf("o");
+	        if (os.valueOf("r") != null) {
+	            final File refFile = (File) os.valueOf("r");
+	            final FrequencyStats stats = refFile.getName().endsWith(".gz")
+	                    ? mapper.readValue(new GZIPInputStream(new FileInputStream(refFile)), FrequencyStats.class)
+	                    : mapper.readValue(refFile, FrequencyStats.class);
+	            write(stats, outFile, mapper);
+	            return;
+	        }
 	        if (os.valueOf("c") == null) {
 	            badOptions(p, "Configuration is required");
 	            return;
@@ -61,16 +78,12 @@ public class GenerateReferenceCorpus {
 	            badOptions(p, "Corpus is required");
 	            return;
 	        }
-	        if (os.valueOf("o") == null) {
-	            badOptions(p, "Output file is required");
-	            return;
-	        }
 	        
 	    	/*
 	    	 * 1 - Read Saffron corpus
 	    	 * 2 - Perform Term Extraction
 	    	 * 3 - Get only the FrequencyStats
-	    	 * 4 - Print it to a JSON file
+	    	 * 4 - Print it to a JSON file (or binary table)
 	    	 */
 	        
 	        TermExtractionConfiguration config = mapper.readValue((File) os.valueOf("c"), Configuration.class).termExtraction;
@@ -81,7 +94,7 @@ public class GenerateReferenceCorpus {
 	        TermExtraction extractor = new TermExtraction(config);
 	        FrequencyStats stats = extractor.extractStats(corpus, null, null, Collections.EMPTY_SET).frequencyStats;
 	        
-	        mapper.writerWithDefaultPrettyPrinter().writeValue((File) os.valueOf("o"), stats);
+	        write(stats, outFile, mapper);
 	        
 	        
 		} catch (Exception x) {
@@ -89,4 +102,12 @@ public class GenerateReferenceCorpus {
             System.exit(-1);
         }
 	}
+
+	private static void write(FrequencyStats stats, File outFile, ObjectMapper mapper) throws IOException {
+	    if (outFile.getName().endsWith(".bin")) {
+	        MappedReferenceCorpus.write(stats, outFile);
+	    } else {
+	        mapper.writerWithDefaultPrettyPrinter().writeValue(outFile, stats);
+	    }
+	}
 }
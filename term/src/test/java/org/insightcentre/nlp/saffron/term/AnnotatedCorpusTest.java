@@ -0,0 +1,50 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class AnnotatedCorpusTest {
+
+    public AnnotatedCorpusTest() {
+    }
+
+    /**
+     * Test of add method, of class AnnotatedCorpus.
+     */
+    @Test
+    public void testAdd() {
+        System.out.println("add");
+        AnnotatedCorpus instance = new AnnotatedCorpus();
+        instance.add(Arrays.asList(
+                new AnnotatedSentence(new String[]{"This", "is", "a", "Test"}, new String[]{"DT", "VBZ", "DT", "NN"}, null),
+                new AnnotatedSentence(new String[0], new String[0], null)));
+        instance.add(Arrays.asList(
+                new AnnotatedSentence(new String[]{"Untagged", "test"}, null, null)));
+        assertEquals(2, instance.size());
+        int n = 0;
+        for (List<AnnotatedSentence> doc : instance) {
+            if (doc.size() == 2) {
+                assertArrayEquals(new String[]{"this", "is", "a", "test"}, doc.get(0).tokens);
+                assertArrayEquals(new String[]{"this", "is", "a", "test"}, doc.get(0).lowerTokens);
+                assertArrayEquals(new String[]{"DT", "VBZ", "DT", "NN"}, doc.get(0).tags);
+                assertEquals(0, doc.get(1).size());
+            } else {
+                assertArrayEquals(new String[]{"untagged", "test"}, doc.get(0).tokens);
+                assertNull(doc.get(0).tags);
+            }
+            assertNull(doc.get(0).lemmas());
+            n++;
+        }
+        assertEquals(2, n);
+    }
+}
@@ -0,0 +1,72 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.insightcentre.nlp.saffron.data.Document;
+import org.junit.Test;
+
+import opennlp.tools.lemmatizer.Lemmatizer;
+import opennlp.tools.postag.POSTagger;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.WhitespaceTokenizer;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class AnnotatedSentenceTest {
+
+    public AnnotatedSentenceTest() {
+    }
+
+    /**
+     * Test of annotate method, of class AnnotatedSentence.
+     */
+    @Test
+    public void testAnnotate() {
+        System.out.println("annotate");
+        String[] tokens = new String[]{"These", "are", "Tests"};
+        String[] lower = new String[]{"these", "are", "tests"};
+        String[] tags = new String[]{"DT", "VBP", "NNS"};
+        String[] lemmas = new String[]{"this", "be", "test"};
+        POSTagger tagger = mock(POSTagger.class);
+        when(tagger.tag(tokens)).thenReturn(tags);
+        Lemmatizer lemmatizer = mock(Lemmatizer.class);
+        when(lemmatizer.lemmatize(lower, tags)).thenReturn(lemmas);
+        AnnotatedSentence result = AnnotatedSentence.annotate("These are Tests",
+                WhitespaceTokenizer.INSTANCE, tagger, lemmatizer);
+        assertArrayEquals(tokens, result.tokens);
+        assertArrayEquals(lower, result.lowerTokens);
+        assertArrayEquals(tags, result.tags);
+        assertArrayEquals(lemmas, result.lemmas());
+        assertArrayEquals(lemmas, result.lemmas());
+        verify(lemmatizer, times(1)).lemmatize(lower, tags);
+    }
+
+    @Test
+    public void testAnnotateDocument() {
+        System.out.println("annotateDocument");
+        Document doc = new Document(null, "doc", null, null, "text/plain", Collections.EMPTY_LIST, Collections.EMPTY_MAP, "a test\n\nanother test", null);
+        ThreadLocal<Tokenizer> tokenizer = new ThreadLocal<Tokenizer>() {
+            @Override
+            protected Tokenizer initialValue() {
+                return WhitespaceTokenizer.INSTANCE;
+            }
+        };
+        List<AnnotatedSentence> result = AnnotatedSentence.annotate(doc, tokenizer, null, null);
+        assertEquals(3, result.size());
+        assertEquals(2, result.get(0).size());
+        assertEquals(0, result.get(1).size());
+        assertNull(result.get(2).tags);
+        assertNull(result.get(2).lemmas());
+    }
+}
@@ -0,0 +1,82 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.insightcentre.nlp.saffron.data.Document;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import opennlp.tools.lemmatizer.Lemmatizer;
+import opennlp.tools.postag.POSTagger;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.WhitespaceTokenizer;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class AnnotationCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public AnnotationCacheTest() {
+    }
+
+    /**
+     * Test of annotate method, of class AnnotationCache.
+     */
+    @Test
+    public void testAnnotate() throws Exception {
+        System.out.println("annotate");
+        String[] tokens = new String[]{"Cached", "tests"};
+        String[] lower = new String[]{"cached", "tests"};
+        String[] tags = new String[]{"JJ", "NNS"};
+        String[] lemmas = new String[]{"cached", "test"};
+        final POSTagger tagger = mock(POSTagger.class);
+        when(tagger.tag(tokens)).thenReturn(tags);
+        final Lemmatizer lemmatizer = mock(Lemmatizer.class);
+        when(lemmatizer.lemmatize(lower, tags)).thenReturn(lemmas);
+        ThreadLocal<Tokenizer> tokenizer = new ThreadLocal<Tokenizer>() {
+            @Override
+            protected Tokenizer initialValue() {
+                return WhitespaceTokenizer.INSTANCE;
+            }
+        };
+        ThreadLocal<POSTagger> taggers = new ThreadLocal<POSTagger>() {
+            @Override
+            protected POSTagger initialValue() {
+                return tagger;
+            }
+        };
+        ThreadLocal<Lemmatizer> lemmatizers = new ThreadLocal<Lemmatizer>() {
+            @Override
+            protected Lemmatizer initialValue() {
+                return lemmatizer;
+            }
+        };
+        Document doc = new Document(null, "doc", null, null, "text/plain", Collections.EMPTY_LIST, Collections.EMPTY_MAP, "Cached tests", null);
+        AnnotationCache instance = new AnnotationCache(folder.getRoot(), "test", tokenizer, taggers, lemmatizers);
+        List<AnnotatedSentence> first = instance.annotate(doc);
+        List<AnnotatedSentence> second = new AnnotationCache(folder.getRoot(), "test", tokenizer, taggers, lemmatizers).annotate(doc);
+        verify(tagger, times(1)).tag(tokens);
+        verify(lemmatizer, times(1)).lemmatize(lower, tags);
+        assertEquals(first.size(), second.size());
+        assertArrayEquals(tokens, second.get(0).tokens);
+        assertArrayEquals(lower, second.get(0).lowerTokens);
+        assertArrayEquals(tags, second.get(0).tags);
+        assertArrayEquals(lemmas, second.get(0).lemmas());
+
+        new AnnotationCache(folder.getRoot(), "other model", tokenizer, taggers, lemmatizers).annotate(doc);
+        verify(tagger, times(2)).tag(tokens);
+    }
+}
@@ -0,0 +1,57 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertEquals;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import java.util.Arrays;
+import java.util.List;
+import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class DocumentTermSpillTest {
+
+    public DocumentTermSpillTest() {
+    }
+
+    /**
+     * Test of add, iterator and select methods, of class DocumentTermSpill.
+     */
+    @Test
+    public void testSpill() throws Exception {
+        System.out.println("spill");
+        TermDictionary dictionary = new TermDictionary();
+        try (DocumentTermSpill instance = new DocumentTermSpill(dictionary)) {
+            Int2IntOpenHashMap doc1 = new Int2IntOpenHashMap();
+            doc1.put(dictionary.id("cell"), 2);
+            doc1.put(dictionary.id("cell test"), 1);
+            instance.add("doc1", doc1);
+            Int2IntOpenHashMap doc2 = new Int2IntOpenHashMap();
+            doc2.put(dictionary.id("test"), 3);
+            instance.add("doc2", doc2);
+            assertEquals(2, instance.documentCount());
+
+            int n = 0;
+            for (DocumentTerm dt : instance) {
+                n++;
+            }
+            assertEquals(3, n);
+
+            List<DocumentTerm> result = instance.select(Arrays.asList("cell", "test", "unknown"));
+            assertEquals(2, result.size());
+            for (DocumentTerm dt : result) {
+                if (dt.getTermString().equals("cell")) {
+                    assertEquals("doc1", dt.getDocumentId());
+                    assertEquals(2, dt.getOccurrences());
+                } else {
+                    assertEquals("test", dt.getTermString());
+                    assertEquals("doc2", dt.getDocumentId());
+                    assertEquals(3, dt.getOccurrences());
+                }
+            }
+        }
+    }
+}
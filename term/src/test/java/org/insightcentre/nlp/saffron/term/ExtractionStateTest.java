@@ -0,0 +1,62 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class ExtractionStateTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public ExtractionStateTest() {
+    }
+
+    /**
+     * Test of write and read methods, of class ExtractionState.
+     */
+    @Test
+    public void testWriteRead() throws Exception {
+        System.out.println("writeRead");
+        ExtractionState instance = new ExtractionState(Duration.ofDays(7));
+        FrequencyStats stats = new FrequencyStats();
+        stats.termFrequency.put("test", 3);
+        stats.docFrequency.put("test", 2);
+        stats.tokens = 10;
+        stats.documents = 2;
+        CasingStats casing = new CasingStats();
+        casing.addCasing("Test");
+        RelationshipStats relStats = new RelationshipStats();
+        relStats.addRelation("domain", "test", 2);
+        instance.add(stats, casing, relStats,
+                Arrays.asList(new DocumentTerm("doc1", "test", 3, null, null, null)),
+                Arrays.asList("doc1", "doc2"));
+        instance.temporalFrequencyStats.add(stats, LocalDateTime.of(2020, 1, 1, 0, 0));
+        instance.temporalFrequencyStats.add(stats, LocalDateTime.of(2020, 1, 10, 0, 0));
+
+        File file = new File(folder.getRoot(), "state.json");
+        instance.write(file);
+        ExtractionState result = ExtractionState.read(file);
+        assertEquals(instance.frequencyStats, result.frequencyStats);
+        assertEquals(instance.casing, result.casing);
+        assertEquals(instance.relationshipStats, result.relationshipStats);
+        assertEquals(instance.documents, result.documents);
+        assertEquals(1, result.documentTerms.size());
+        assertEquals("test", result.documentTerms.get(0).getTermString());
+        assertEquals(Duration.ofDays(7), result.temporalFrequencyStats.getInterval());
+        assertEquals(instance.temporalFrequencyStats.getStart(), result.temporalFrequencyStats.getStart());
+        assertEquals(instance.temporalFrequencyStats.freqs, result.temporalFrequencyStats.freqs);
+    }
+}
@@ -195,4 +195,14 @@ public class FeaturesTest {
         assertEquals(expResult, result, 0.0001);
     }
 
+    /**
+     * Test of tokenCount method, of class Features.
+     */
+    @Test
+    public void testTokenCount() {
+        System.out.println("tokenCount");
+        assertEquals(1, Features.tokenCount("test"));
+        assertEquals(3, Features.tokenCount("this good test"));
+    }
+
 }
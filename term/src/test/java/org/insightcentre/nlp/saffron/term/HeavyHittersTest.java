@@ -0,0 +1,72 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class HeavyHittersTest {
+
+    public HeavyHittersTest() {
+    }
+
+    /**
+     * Test of offer, estimate and candidates methods, of class HeavyHitters.
+     */
+    @Test
+    public void testCandidates() {
+        System.out.println("candidates");
+        HeavyHitters instance = new HeavyHitters(20, 1000);
+        Random random = new Random(1);
+        final int[] counts = new int[10];
+        // Ten frequent keys among many rare ones
+        for (int i = 0; i < 20000; i++) {
+            if (random.nextInt(4) == 0) {
+                final int k = random.nextInt(10);
+                counts[k]++;
+                instance.offer(k);
+            } else {
+                instance.offer(1000 + random.nextInt(100000));
+            }
+        }
+        assertEquals(20000, instance.getTotal());
+        assertEquals(20, instance.size());
+        LongSet result = instance.candidates(100);
+        for (int k = 0; k < 10; k++) {
+            assertTrue(instance.estimate(k) >= counts[k]);
+            assertTrue(result.contains(k));
+        }
+        assertTrue(result.size() <= 20);
+    }
+
+    /**
+     * Test of add method, of class HeavyHitters.
+     */
+    @Test
+    public void testAdd() {
+        System.out.println("add");
+        HeavyHitters instance = new HeavyHitters(2, 64);
+        HeavyHitters other = new HeavyHitters(2, 64);
+        for (int i = 0; i < 5; i++) {
+            instance.offer(1L);
+            other.offer(2L);
+            other.offer(3L);
+        }
+        instance.offer(4L);
+        other.offer(3L);
+        instance.add(other);
+        assertEquals(17, instance.getTotal());
+        assertEquals(2, instance.size());
+        LongSet result = instance.candidates(5);
+        assertTrue(result.contains(3L));
+        assertTrue(instance.estimate(3L) >= 6);
+        assertFalse(result.contains(4L));
+    }
+}
@@ -0,0 +1,60 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class InclusionStatsTest {
+
+    public InclusionStatsTest() {
+    }
+
+    private Object2IntMap<String> freqs(String... terms) {
+        Object2IntMap<String> freqs = new Object2IntOpenHashMap<>();
+        for (String t : terms) {
+            freqs.put(t, 1);
+        }
+        return freqs;
+    }
+
+    /**
+     * Test of getSuperTerms method, of class InclusionStats.
+     */
+    @Test
+    public void testGetSuperTerms() {
+        System.out.println("getSuperTerms");
+        InclusionStats instance = new InclusionStats(freqs("test", "this test",
+                "this test case", "case", "test case test"));
+        assertEquals(new HashSet<>(Arrays.asList("this test", "this test case", "test case test")),
+                instance.getSuperTerms("test"));
+        assertEquals(new HashSet<>(Arrays.asList("this test case")),
+                instance.getSuperTerms("this test"));
+        assertTrue(instance.getSuperTerms("this test case").isEmpty());
+        assertTrue(instance.getSuperTerms("not a term").isEmpty());
+        assertEquals(3, instance.getSuperTermCount("test"));
+    }
+
+    /**
+     * Test of getSubTermCount method, of class InclusionStats.
+     */
+    @Test
+    public void testGetSubTermCount() {
+        System.out.println("getSubTermCount");
+        InclusionStats instance = new InclusionStats(freqs("test", "this test",
+                "this test case", "case", "test case test"));
+        assertEquals(0, instance.getSubTermCount("test"));
+        assertEquals(1, instance.getSubTermCount("this test"));
+        assertEquals(3, instance.getSubTermCount("this test case"));
+        // Each occurrence of a sub-term is counted
+        assertEquals(3, instance.getSubTermCount("test case test"));
+    }
+}
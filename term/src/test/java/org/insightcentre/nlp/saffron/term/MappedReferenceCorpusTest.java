@@ -0,0 +1,62 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class MappedReferenceCorpusTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public MappedReferenceCorpusTest() {
+    }
+
+    /**
+     * Test of write and getTermFrequency methods, of class MappedReferenceCorpus.
+     */
+    @Test
+    public void testWriteRead() throws Exception {
+        System.out.println("writeRead");
+        FrequencyStats stats = new FrequencyStats();
+        String[] terms = new String[]{"test", "good test", "a", "zebra", "café", "caf", "été", "😀 emoji"};
+        for (int i = 0; i < terms.length; i++) {
+            stats.termFrequency.put(terms[i], i + 1);
+            stats.docFrequency.put(terms[i], i);
+        }
+        stats.tokens = 1000;
+        stats.documents = 10;
+        File file = new File(folder.getRoot(), "ref.bin");
+        MappedReferenceCorpus.write(stats, file);
+        MappedReferenceCorpus result = MappedReferenceCorpus.open(file);
+        assertEquals(terms.length, result.size());
+        assertEquals(1000, result.getTokens());
+        assertEquals(10, result.getDocuments());
+        for (int i = 0; i < terms.length; i++) {
+            assertEquals(i + 1, result.getTermFrequency(terms[i]));
+            assertEquals(i, result.getDocFrequency(terms[i]));
+        }
+        assertEquals(0, result.getTermFrequency("missing"));
+        assertEquals(0, result.getTermFrequency(""));
+        assertSame(result, MappedReferenceCorpus.open(file));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        System.out.println("empty");
+        File file = new File(folder.getRoot(), "empty.bin");
+        MappedReferenceCorpus.write(new FrequencyStats(), file);
+        MappedReferenceCorpus result = MappedReferenceCorpus.open(file);
+        assertEquals(0, result.size());
+        assertEquals(0, result.getTermFrequency("test"));
+    }
+}
@@ -0,0 +1,136 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import opennlp.tools.postag.POSTagger;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.WhitespaceTokenizer;
+import org.insightcentre.nlp.saffron.data.Document;
+import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class SuffixArrayCounterTest {
+
+    private static final String[] WORDS = {"data", "Data", "model", "neural", "network",
+        "of", "the", "big", "x", "deep", "learning"};
+    private static final String[] TAGS = {"NN", "NNP", "NN", "JJ", "NN",
+        "IN", "DT", "JJ", "NN", "JJ", "NN"};
+
+    public SuffixArrayCounterTest() {
+    }
+
+    /**
+     * Test of suffixArray and lcp methods, of class SuffixArrayCounter.
+     */
+    @Test
+    public void testSuffixArray() {
+        System.out.println("suffixArray");
+        // b a n a n a with a separator
+        int[] text = new int[]{1, 0, 2, 0, 2, 0, -1};
+        int[] sa = SuffixArrayCounter.suffixArray(text);
+        assertArrayEquals(new int[]{6, 5, 3, 1, 0, 4, 2}, sa);
+        assertArrayEquals(new int[]{0, 0, 1, 3, 0, 0, 2}, SuffixArrayCounter.lcp(text, sa));
+    }
+
+    /**
+     * Test that the counts are the same as those of TermExtractionTask
+     */
+    @Test
+    public void testCount() {
+        System.out.println("count");
+        final Map<String, String> tagMap = new HashMap<>();
+        for (int i = 0; i < WORDS.length; i++) {
+            tagMap.put(WORDS[i], TAGS[i]);
+        }
+        final POSTagger tagger = mock(POSTagger.class);
+        when(tagger.tag(any(String[].class))).thenAnswer(invocation -> {
+            String[] tokens = invocation.getArgument(0);
+            String[] tags = new String[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                tags[i] = tagMap.get(tokens[i]);
+            }
+            return tags;
+        });
+        final ThreadLocal<POSTagger> taggers = new ThreadLocal<POSTagger>() {
+            @Override
+            protected POSTagger initialValue() {
+                return tagger;
+            }
+        };
+        final ThreadLocal<Tokenizer> tokenizer = new ThreadLocal<Tokenizer>() {
+            @Override
+            protected Tokenizer initialValue() {
+                return WhitespaceTokenizer.INSTANCE;
+            }
+        };
+        final Set<String> stopWords = new HashSet<>(Arrays.asList("of", "the"));
+        final Set<String> preceeding = new HashSet<>(Arrays.asList("NN", "NNP", "JJ"));
+        final Set<String> middle = new HashSet<>(Arrays.asList("IN"));
+        final Set<String> end = new HashSet<>(Arrays.asList("NN", "NNP"));
+        final Random random = new Random(2);
+        final List<Document> docs = new ArrayList<>();
+        for (int d = 0; d < 30; d++) {
+            StringBuilder sb = new StringBuilder();
+            for (int s = 0; s < 1 + random.nextInt(3); s++) {
+                if (s > 0) {
+                    sb.append("\n");
+                }
+                for (int t = 0; t < 1 + random.nextInt(12); t++) {
+                    if (t > 0) {
+                        sb.append(" ");
+                    }
+                    sb.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+            }
+            Document doc = mock(Document.class);
+            when(doc.contents()).thenReturn(sb.toString());
+            when(doc.getId()).thenReturn("doc" + d);
+            docs.add(doc);
+        }
+        for (boolean headTokenFinal : new boolean[]{true, false}) {
+            FrequencyStats expResult = new FrequencyStats();
+            ConcurrentLinkedQueue<DocumentTerm> expDts = new ConcurrentLinkedQueue<>();
+            CasingStats expCasing = new CasingStats();
+            SuffixArrayCounter instance = new SuffixArrayCounter(stopWords, 1, 6,
+                    preceeding, middle, end, headTokenFinal, Collections.EMPTY_SET);
+            for (Document doc : docs) {
+                new TermExtractionTask(doc, taggers, null, tokenizer, stopWords, 1, 6,
+                        preceeding, middle, end, headTokenFinal, expResult, expDts, expCasing,
+                        Collections.EMPTY_SET, null, null, null).run();
+                instance.add(doc.getId(), AnnotatedSentence.annotate(doc, tokenizer, taggers, null));
+            }
+            ConcurrentLinkedQueue<DocumentTerm> dts = new ConcurrentLinkedQueue<>();
+            CasingStats casing = new CasingStats();
+            FrequencyStats result = instance.count(dts, casing);
+            assertEquals(expResult, result);
+            assertEquals(expCasing, casing);
+            assertEquals(docTermSet(expDts), docTermSet(dts));
+        }
+    }
+
+    private static Set<String> docTermSet(ConcurrentLinkedQueue<DocumentTerm> dts) {
+        Set<String> result = new HashSet<>();
+        for (DocumentTerm dt : dts) {
+            result.add(dt.getTermString() + "|" + dt.getOccurrences());
+        }
+        return result;
+    }
+}
@@ -6,6 +6,11 @@ import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Random;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -125,6 +130,48 @@ public class TemporalFrequencyStatsTest {
         assertEquals(0.6, prediction, 0.01);
     }
     
+    @Test
+    public void testPredictor() throws IntervalTooLong {
+        System.out.println("predictor");
+        TemporalFrequencyStats instance = new TemporalFrequencyStats(Duration.ofDays(7));
+        for(int i = 0; i < 6; i++) {
+            FrequencyStats s1 = new FrequencyStats();
+            s1.termFrequency.put("cat", i + 1);
+            if(i % 2 == 0) {
+                s1.termFrequency.put("dog", 6 - i);
+            }
+            s1.tokens = 20;
+            instance.add(s1, mkDate(2020, 1, 1).plusDays(7 * i));
+        }
+        TemporalFrequencyStats.Predictor predictor = instance.predictor(2, 2);
+        assertEquals(predict(instance, "cat", 2, 2), predictor.predict("cat"), 1e-9);
+        assertEquals(predict(instance, "dog", 2, 2), predictor.predict("dog"), 1e-9);
+        assertEquals(0.0, predictor.predict("bird"), 0.0);
+        assertEquals(predictor.predict("dog"), predictor.predictAll().getDouble("dog"), 1e-9);
+        assertSame(predictor, instance.predictor(2, 2));
+    }
+
+    /**
+     * Fit the frequencies of a single word directly
+     */
+    private static double predict(TemporalFrequencyStats tfs, String word, int intervalsAfterEnd, int degree) {
+        int n = tfs.freqs.size();
+        RealMatrix x = new Array2DRowRealMatrix(n, degree + 1);
+        RealVector y = new ArrayRealVector(n);
+        for(int i = 0; i < n; i++) {
+            for(int j = 0; j <= degree; j++) {
+                x.setEntry(i, j, Math.pow(i - n + 1, j));
+            }
+            y.setEntry(i, (double)tfs.freqs.get(i).termFrequency.getInt(word) / tfs.freqs.get(i).tokens);
+        }
+        RealVector a = MatrixUtils.inverse(x.transpose().multiply(x)).operate(x.preMultiply(y));
+        double prediction = 0.0;
+        for(int i = 0; i < degree; i++) {
+            prediction += a.getEntry(i) * Math.pow(intervalsAfterEnd, i);
+        }
+        return Math.max(Math.min(prediction, 1), 0);
+    }
+
     @Test(expected = IntervalTooLong.class)
     public void testTimePeriodTooLong() throws IntervalTooLong {
         TemporalFrequencyStats tfs = new TemporalFrequencyStats(Duration.ofDays(1000000));
@@ -0,0 +1,76 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class TermDictionaryTest {
+
+    public TermDictionaryTest() {
+    }
+
+    /**
+     * Test of id method, of class TermDictionary.
+     */
+    @Test
+    public void testId() {
+        System.out.println("id");
+        TermDictionary instance = new TermDictionary();
+        int a = instance.id("term a");
+        int b = instance.id("term b");
+        assertEquals(a, instance.id(new String("term a")));
+        assertEquals("term b", instance.term(b));
+        assertEquals(-1, instance.lookup("term c"));
+        assertEquals(2, instance.size());
+    }
+
+    /**
+     * Test of intern method, of class TermDictionary.
+     */
+    @Test
+    public void testIntern() {
+        System.out.println("intern");
+        TermDictionary instance = new TermDictionary();
+        String s = instance.intern(new String("term"));
+        assertSame(s, instance.intern(new String("term")));
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        System.out.println("concurrent");
+        final TermDictionary instance = new TermDictionary();
+        ExecutorService service = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            final String term = "term" + (i % 10000);
+            futures.add(service.submit(new Runnable() {
+                @Override
+                public void run() {
+                    assertEquals(term, instance.term(instance.id(term)));
+                }
+            }));
+        }
+        service.shutdown();
+        service.awaitTermination(1, TimeUnit.MINUTES);
+        // Rethrows any assertion that failed on the pool
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        assertEquals(10000, instance.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, instance.id(instance.term(i)));
+        }
+    }
+}
@@ -58,6 +58,64 @@ public class TermExtractionTaskTest {
     public void tearDown() {
     }
 
+    /**
+     * Test that repeated spans are counted as the same term and invalid tokens
+     * are not part of any term
+     */
+    @Test
+    public void testRepeatedSpans() throws Exception {
+        System.out.println("repeatedSpans");
+        Document doc = mock(Document.class);
+        when(doc.contents()).thenReturn("Cell test\ncell test http://x.org");
+        final Tokenizer _tokenizer = mock(Tokenizer.class);
+        String[] tokens1 = new String[]{"Cell", "test"};
+        String[] tokens2 = new String[]{"cell", "test", "http://x.org"};
+        when(_tokenizer.tokenize("Cell test")).thenReturn(tokens1);
+        when(_tokenizer.tokenize("cell test http://x.org")).thenReturn(tokens2);
+        final POSTagger tagger = mock(POSTagger.class);
+        when(tagger.tag(tokens1)).thenReturn(new String[]{"NN", "NN"});
+        when(tagger.tag(tokens2)).thenReturn(new String[]{"NN", "NN", "NN"});
+        FrequencyStats result = new FrequencyStats();
+        ConcurrentLinkedQueue<DocumentTerm> dts = new ConcurrentLinkedQueue<>();
+        CasingStats casing = new CasingStats();
+        TermExtractionTask instance = new TermExtractionTask(doc, new ThreadLocal<POSTagger>() {
+            @Override
+            public POSTagger get() {
+                return tagger;
+            }
+
+        }, null, new ThreadLocal<Tokenizer>() {
+            @Override
+            protected Tokenizer initialValue() {
+                return _tokenizer;
+            }
+
+        }, new HashSet<String>(), 1, 4,
+                new HashSet<String>(Arrays.asList("NN")),
+                new HashSet<String>(),
+                new HashSet<String>(Arrays.asList("NN")),
+                true, result, dts, casing, Collections.EMPTY_SET, null, null, null);
+        instance.run();
+        FrequencyStats expResult = new FrequencyStats();
+        for (String t : Arrays.asList("cell", "test", "cell test")) {
+            expResult.termFrequency.put(t, 2);
+            expResult.docFrequency.put(t, 1);
+        }
+        expResult.tokens = 5;
+        expResult.documents = 1;
+        assertEquals(expResult, result);
+        assertEquals(3, dts.size());
+        for (DocumentTerm dt : dts) {
+            assertEquals(2, dt.getOccurrences());
+        }
+        CasingStats expCasing = new CasingStats();
+        expCasing.addCasing("Cell");
+        expCasing.addCasing("cell");
+        expCasing.addCasing("test");
+        expCasing.addCasing("test");
+        assertEquals(expCasing, casing);
+    }
+
     /**
      * Test of call method, of class TermExtractionTask.
      */
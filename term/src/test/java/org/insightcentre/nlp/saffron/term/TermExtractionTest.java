@@ -1,19 +1,25 @@
 package org.insightcentre.nlp.saffron.term;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import opennlp.tools.postag.POSTagger;
 import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.WhitespaceTokenizer;
 import opennlp.tools.util.Sequence;
 import opennlp.tools.util.Span;
 import org.insightcentre.nlp.saffron.DefaultSaffronListener;
 import org.insightcentre.nlp.saffron.config.TermExtractionConfiguration;
 import org.insightcentre.nlp.saffron.data.Corpus;
 import org.insightcentre.nlp.saffron.data.Document;
+import org.insightcentre.nlp.saffron.data.SaffronPath;
 import org.insightcentre.nlp.saffron.data.Status;
 import org.insightcentre.nlp.saffron.data.Term;
 import org.insightcentre.nlp.saffron.data.connections.DocumentTerm;
@@ -22,7 +28,9 @@ import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.junit.Assert.*;
 
 /**
@@ -50,6 +58,9 @@ public class TermExtractionTest {
     public void tearDown() {
     }
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     static int docs = 0;
 
     private Document mkDoc(String contents) {
@@ -147,6 +158,186 @@ public class TermExtractionTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of extractStatsIncremental method, of class TermExtraction.
+     */
+    @Test
+    public void testExtractStatsIncremental() throws Exception {
+        System.out.println("extractStatsIncremental");
+        final POSTagger tagger = new POSTagger() {
+            @Override
+            public String[] tag(String[] strings) {
+                String[] x = new String[strings.length];
+                for (int i = 0; i < strings.length; i++) {
+                    if ("test".equals(strings[i])) {
+                        x[i] = "NN";
+                    } else if ("good".equals(strings[i])) {
+                        x[i] = "JJ";
+                    } else {
+                        x[i] = "DT";
+                    }
+                }
+                return x;
+            }
+
+            @Override
+            public String[] tag(String[] strings, Object[] os) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+
+            @Override
+            public Sequence[] topKSequences(String[] strings) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+
+            @Override
+            public Sequence[] topKSequences(String[] strings, Object[] os) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+        };
+        final List<Document> documents = new ArrayList<>(Arrays.asList(
+                mkDoc("this is a test"),
+                mkDoc("this is also a test")));
+        Corpus searcher = new Corpus() {
+            @Override
+            public Iterable<Document> getDocuments() {
+                return documents;
+            }
+
+            @Override
+            public int size() {
+                return documents.size();
+            }
+        };
+        TermExtraction instance = new TermExtraction(10, new ThreadLocal<POSTagger>() {
+            @Override
+            protected POSTagger initialValue() {
+                return tagger;
+            }
+
+        }, new ThreadLocal<Tokenizer>() {
+            @Override
+            protected Tokenizer initialValue() {
+                return WhitespaceTokenizer.INSTANCE;
+            }
+        });
+        File stateFile = new File(folder.getRoot(), "state.json.gz");
+        ConcurrentLinkedQueue<DocumentTerm> dts = new ConcurrentLinkedQueue<>();
+        FrequencyStats result = instance.extractStatsIncremental(searcher, dts, new CasingStats(),
+                Collections.EMPTY_SET, null, stateFile, new DefaultSaffronListener()).frequencyStats;
+        assertTrue(stateFile.exists());
+        assertEquals(2, result.documents);
+        assertEquals(2, result.termFrequency.getInt("test"));
+        assertEquals(2, dts.size());
+
+        documents.add(mkDoc("this is a good test"));
+        documents.add(mkDoc("a good test is also a test"));
+        dts = new ConcurrentLinkedQueue<>();
+        result = instance.extractStatsIncremental(searcher, dts, new CasingStats(),
+                Collections.EMPTY_SET, null, stateFile, new DefaultSaffronListener()).frequencyStats;
+        FrequencyStats expResult = new FrequencyStats();
+        expResult.docFrequency.put("test", 4);
+        expResult.docFrequency.put("good test", 2);
+        expResult.termFrequency.put("test", 5);
+        expResult.termFrequency.put("good test", 2);
+        expResult.tokens = 21;
+        expResult.documents = 4;
+        assertEquals(expResult, result);
+        assertEquals(6, dts.size());
+    }
+
+    private static Map<String, Double> termScores(Result result) {
+        Map<String, Double> scores = new HashMap<>();
+        for (Term t : result.terms) {
+            scores.put(t.getString(), t.getScore());
+        }
+        return scores;
+    }
+
+    /**
+     * Test of extractTerms method, of class TermExtraction, with a fused scan
+     * and an incremental state.
+     */
+    @Test
+    public void testExtractTermsIncrementalFused() throws Exception {
+        System.out.println("extractTermsIncrementalFused");
+        final POSTagger tagger = new POSTagger() {
+            @Override
+            public String[] tag(String[] strings) {
+                String[] x = new String[strings.length];
+                for (int i = 0; i < strings.length; i++) {
+                    if ("test".equals(strings[i]) || "case".equals(strings[i])) {
+                        x[i] = "NN";
+                    } else if ("good".equals(strings[i])) {
+                        x[i] = "JJ";
+                    } else {
+                        x[i] = "DT";
+                    }
+                }
+                return x;
+            }
+
+            @Override
+            public String[] tag(String[] strings, Object[] os) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+
+            @Override
+            public Sequence[] topKSequences(String[] strings) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+
+            @Override
+            public Sequence[] topKSequences(String[] strings, Object[] os) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+        };
+        final ThreadLocal<POSTagger> taggers = new ThreadLocal<POSTagger>() {
+            @Override
+            protected POSTagger initialValue() {
+                return tagger;
+            }
+        };
+        final ThreadLocal<Tokenizer> tokenizers = new ThreadLocal<Tokenizer>() {
+            @Override
+            protected Tokenizer initialValue() {
+                return WhitespaceTokenizer.INSTANCE;
+            }
+        };
+        final List<Document> documents = new ArrayList<>(Arrays.asList(
+                mkDoc("this is a test case about cats"),
+                mkDoc("this is also a test about dogs")));
+        Corpus searcher = new Corpus() {
+            @Override
+            public Iterable<Document> getDocuments() {
+                return documents;
+            }
+
+            @Override
+            public int size() {
+                return documents.size();
+            }
+        };
+        TermExtractionConfiguration config = new TermExtractionConfiguration();
+        config.method = TermExtractionConfiguration.WeightingMethod.one;
+        config.baseFeature = TermExtractionConfiguration.Feature.postRankDC;
+        config.features = Arrays.asList(TermExtractionConfiguration.Feature.postRankDC);
+        config.minTermFreq = 1;
+        config.numThreads = 2;
+        TermExtraction full = new TermExtraction(config, null, taggers, tokenizers);
+
+        config.fusedScan = true;
+        config.incrementalState = SaffronPath.fromFile(new File(folder.getRoot(), "state.json"));
+        TermExtraction incremental = new TermExtraction(config, null, taggers, tokenizers);
+
+        assertEquals(termScores(full.extractTerms(searcher)), termScores(incremental.extractTerms(searcher)));
+        documents.add(mkDoc("this is a good test case about birds"));
+        documents.add(mkDoc("a good test about birds is also a test case"));
+        Map<String, Double> expected = termScores(full.extractTerms(searcher));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, termScores(incremental.extractTerms(searcher)));
+    }
+
     /**
      * Test of extractTerms method, of class TermExtraction.
      */
@@ -230,6 +421,176 @@ public class TermExtractionTest {
         Result res = instance.extractTerms(searcher);
     }
 
+    private static Set<String> termStrings(Result result) {
+        Set<String> strings = new HashSet<>();
+        for (Term t : result.terms) {
+            strings.add(t.getString());
+        }
+        return strings;
+    }
+
+    private static TermExtractionConfiguration variant(int minTermFreq, int maxTerms) {
+        TermExtractionConfiguration config = new TermExtractionConfiguration();
+        config.method = TermExtractionConfiguration.WeightingMethod.one;
+        config.baseFeature = TermExtractionConfiguration.Feature.comboBasic;
+        config.minTermFreq = minTermFreq;
+        config.maxTerms = maxTerms;
+        return config;
+    }
+
+    /**
+     * Test of sweep method, of class TermExtraction.
+     */
+    @Test
+    public void testSweep() throws Exception {
+        System.out.println("sweep");
+        final POSTagger tagger = new POSTagger() {
+            @Override
+            public String[] tag(String[] strings) {
+                String[] x = new String[strings.length];
+                for (int i = 0; i < strings.length; i++) {
+                    if ("test".equals(strings[i])) {
+                        x[i] = "NN";
+                    } else if ("good".equals(strings[i])) {
+                        x[i] = "JJ";
+                    } else {
+                        x[i] = "DT";
+                    }
+                }
+                return x;
+            }
+
+            @Override
+            public String[] tag(String[] strings, Object[] os) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+
+            @Override
+            public Sequence[] topKSequences(String[] strings) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+
+            @Override
+            public Sequence[] topKSequences(String[] strings, Object[] os) {
+                throw new UnsupportedOperationException("Not supported yet.");
+            }
+        };
+        final List<Document> documents = Arrays.asList(
+                mkDoc("this is a test"),
+                mkDoc("this is also a test"),
+                mkDoc("this is a good test"),
+                mkDoc("a good test is also a test"));
+        Corpus searcher = new Corpus() {
+            @Override
+            public Iterable<Document> getDocuments() {
+                return documents;
+            }
+
+            @Override
+            public int size() {
+                return documents.size();
+            }
+        };
+        TermExtraction instance = new TermExtraction(10, new ThreadLocal<POSTagger>() {
+            @Override
+            protected POSTagger initialValue() {
+                return tagger;
+            }
+
+        }, new ThreadLocal<Tokenizer>() {
+            @Override
+            protected Tokenizer initialValue() {
+                return WhitespaceTokenizer.INSTANCE;
+            }
+        });
+        List<Result> result = instance.sweep(searcher, Arrays.asList(
+                variant(2, 100), variant(2, 1), variant(3, 100)),
+                new HashSet<String>(), new HashSet<String>(), new DefaultSaffronListener());
+        assertEquals(3, result.size());
+        assertEquals(termStrings(instance.extractTerms(searcher)), termStrings(result.get(0)));
+        assertEquals(new HashSet<>(Arrays.asList("test", "good test")), termStrings(result.get(0)));
+        assertEquals(1, result.get(1).terms.size());
+        assertEquals(new HashSet<>(Arrays.asList("test")), termStrings(result.get(2)));
+    }
+
+    /**
+     * Test that the sweep warns of variants that change how the corpus is
+     * read
+     */
+    @Test
+    public void testSweepScanSettings() throws Exception {
+        System.out.println("sweepScanSettings");
+        final List<Document> documents = Arrays.asList(mkDoc("this is a test"));
+        Corpus searcher = new Corpus() {
+            @Override
+            public Iterable<Document> getDocuments() {
+                return documents;
+            }
+
+            @Override
+            public int size() {
+                return documents.size();
+            }
+        };
+        TermExtraction instance = new TermExtraction(1, new ThreadLocal<POSTagger>() {
+            @Override
+            protected POSTagger initialValue() {
+                return new POSTagger() {
+                    @Override
+                    public String[] tag(String[] strings) {
+                        String[] x = new String[strings.length];
+                        Arrays.fill(x, "NN");
+                        return x;
+                    }
+
+                    @Override
+                    public String[] tag(String[] strings, Object[] os) {
+                        throw new UnsupportedOperationException("Not supported yet.");
+                    }
+
+                    @Override
+                    public Sequence[] topKSequences(String[] strings) {
+                        throw new UnsupportedOperationException("Not supported yet.");
+                    }
+
+                    @Override
+                    public Sequence[] topKSequences(String[] strings, Object[] os) {
+                        throw new UnsupportedOperationException("Not supported yet.");
+                    }
+                };
+            }
+        }, new ThreadLocal<Tokenizer>() {
+            @Override
+            protected Tokenizer initialValue() {
+                return WhitespaceTokenizer.INSTANCE;
+            }
+        });
+        final List<String> messages = new ArrayList<>();
+        DefaultSaffronListener log = new DefaultSaffronListener() {
+            @Override
+            public void log(String message) {
+                messages.add(message);
+            }
+        };
+        TermExtractionConfiguration same = variant(1, 10);
+        same.intervalDays = 0;
+        TermExtractionConfiguration changed = variant(1, 10);
+        changed.intervalDays = 0;
+        changed.ngramMax = 2;
+        changed.headTokens = new HashSet<>(Arrays.asList("NN"));
+        instance.sweep(searcher, Arrays.asList(same, changed), new HashSet<String>(),
+                new HashSet<String>(), log);
+        List<String> warnings = new ArrayList<>();
+        for (String message : messages) {
+            if (message.startsWith("Warning")) {
+                warnings.add(message);
+            }
+        }
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).contains("variant 1 "));
+        assertTrue(warnings.get(0).contains("ngramMax, headTokens"));
+    }
+
         /**
      * Test of extractTerms method, of class TermExtraction.
      */
@@ -0,0 +1,73 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertEquals;
+
+import it.unimi.dsi.fastutil.objects.Object2BooleanMap;
+import it.unimi.dsi.fastutil.objects.Object2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class TermRankingTest {
+
+    public TermRankingTest() {
+    }
+
+    /**
+     * Test of sorted method, of class TermRanking.
+     */
+    @Test
+    public void testSorted() {
+        System.out.println("sorted");
+        List<String> terms = Arrays.asList("a", "b", "c", "d", "e");
+        Object2DoubleMap<String> scores = new Object2DoubleOpenHashMap<>();
+        scores.put("a", 1.0);
+        scores.put("b", 3.0);
+        scores.put("c", 2.0);
+        scores.put("d", 3.0);
+        scores.put("e", 0.0);
+        Object2BooleanMap<String> proper = new Object2BooleanOpenHashMap<>();
+        for (String t : terms) {
+            proper.put(t, !t.equals("b"));
+        }
+        TermRanking instance = new TermRanking(terms, scores,
+                new HashSet<>(Arrays.asList("e")), new HashSet<>(Arrays.asList("c")), proper);
+        assertEquals(Arrays.asList("e", "d", "a", "b"), instance.sorted());
+        assertEquals(Arrays.asList("e", "d"), instance.top(2));
+    }
+
+    /**
+     * Test of top method, of class TermRanking.
+     */
+    @Test
+    public void testTop() {
+        System.out.println("top");
+        Random r = new Random(0);
+        List<String> terms = new ArrayList<>();
+        Object2DoubleMap<String> scores = new Object2DoubleOpenHashMap<>();
+        Object2BooleanMap<String> proper = new Object2BooleanOpenHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            String t = "term" + i;
+            terms.add(t);
+            scores.put(t, r.nextInt(50));
+            proper.put(t, r.nextBoolean());
+        }
+        Set<String> whiteList = new HashSet<>(Arrays.asList("term5", "term500"));
+        TermRanking instance = new TermRanking(terms, scores, whiteList, Collections.EMPTY_SET, proper);
+        List<String> sorted = instance.sorted();
+        assertEquals(sorted.subList(0, 100), instance.top(100));
+        assertEquals(sorted, instance.top(2000));
+    }
+}
@@ -0,0 +1,55 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class ThreadAccumulatorTest {
+
+    public ThreadAccumulatorTest() {
+    }
+
+    /**
+     * Test of merge method, of class ThreadAccumulator.
+     */
+    @Test
+    public void testMerge() throws Exception {
+        System.out.println("merge");
+        final ThreadAccumulator<FrequencyStats> instance = new ThreadAccumulator<>(
+                FrequencyStats::new, FrequencyStats::add);
+        ExecutorService service = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 1000; i++) {
+            final String term = "term" + (i % 10);
+            service.submit(new Runnable() {
+                @Override
+                public void run() {
+                    FrequencyStats stats = instance.get();
+                    stats.termFrequency.put(term, stats.termFrequency.getInt(term) + 1);
+                    stats.documents++;
+                }
+            });
+        }
+        service.shutdown();
+        service.awaitTermination(1, TimeUnit.MINUTES);
+        FrequencyStats result = instance.merge();
+        assertEquals(1000, result.documents);
+        assertEquals(10, result.termFrequency.size());
+        assertEquals(100, result.termFrequency.getInt("term3"));
+    }
+
+    @Test
+    public void testMergeEmpty() {
+        System.out.println("mergeEmpty");
+        final ThreadAccumulator<FrequencyStats> instance = new ThreadAccumulator<>(
+                FrequencyStats::new, FrequencyStats::add);
+        assertEquals(0, instance.merge().documents);
+    }
+}
@@ -0,0 +1,67 @@
+package org.insightcentre.nlp.saffron.term;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import opennlp.tools.tokenize.WhitespaceTokenizer;
+import org.junit.Test;
+
+/**
+ *
+ * @author John McCrae &lt;john@mccr.ae&gt;
+ */
+public class TokenAutomatonTest {
+
+    public TokenAutomatonTest() {
+    }
+
+    private List<String> match(TokenAutomaton automaton, String... tokens) {
+        List<String> result = new ArrayList<>();
+        int state = TokenAutomaton.START;
+        for (String token : tokens) {
+            state = automaton.next(state, token);
+            for (int m = automaton.firstMatch(state); m >= 0; m = automaton.nextMatch(m)) {
+                result.add(automaton.term(m));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Test of next, firstMatch and nextMatch methods, of class TokenAutomaton.
+     */
+    @Test
+    public void testMatch() {
+        System.out.println("match");
+        TokenAutomaton instance = TokenAutomaton.build(Arrays.asList(
+                "Neural Network", "network", "neural network model", "model", "network model x"),
+                WhitespaceTokenizer.INSTANCE);
+        assertEquals(Arrays.asList("neural network", "network", "neural network model", "model", "model"),
+                match(instance, "a", "neural", "network", "model", "of", "model"));
+        // The failure links continue a match that started inside a failed one
+        assertEquals(Arrays.asList("neural network", "network", "neural network model", "model",
+                "network model x"),
+                match(instance, "neural", "network", "model", "x"));
+        assertEquals(Arrays.asList("network", "network"),
+                match(instance, "neural", "neural", "unknown", "network", "network"));
+    }
+
+    /**
+     * Test of child and term methods, of class TokenAutomaton.
+     */
+    @Test
+    public void testChild() {
+        System.out.println("child");
+        TokenAutomaton instance = TokenAutomaton.build(Arrays.asList("neural network model"),
+                WhitespaceTokenizer.INSTANCE);
+        int node = instance.child(TokenAutomaton.START, "neural");
+        assertNull(instance.term(node));
+        node = instance.child(node, "network");
+        assertEquals(-1, instance.child(node, "neural"));
+        node = instance.child(node, "model");
+        assertEquals("neural network model", instance.term(node));
+    }
+}
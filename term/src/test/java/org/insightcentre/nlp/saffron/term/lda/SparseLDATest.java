@@ -0,0 +1,97 @@
+package org.insightcentre.nlp.saffron.term.lda;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author John McCrae
+ */
+public class SparseLDATest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public SparseLDATest() {
+    }
+
+    /**
+     * Test of train method, of class SparseLDA.
+     */
+    @Test
+    public void testTrain() throws Exception {
+        System.out.println("train");
+        final int W = 30, J = 40, K = 5;
+        final int[] wordFreq = new int[W];
+        final Random random = new Random(1);
+        File file = folder.newFile("assign.buf");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            for (int j = 0; j < J; j++) {
+                final int n = 1 + random.nextInt(20);
+                for (int i = 0; i < n; i++) {
+                    // Each document mostly uses one third of the vocabulary
+                    final int w = random.nextInt(10) + (j % 3) * 10;
+                    wordFreq[w]++;
+                    out.writeInt(w);
+                    out.writeInt(0);
+                }
+                out.writeInt(-1);
+                out.writeInt(0);
+            }
+        }
+        // A small buffer size to test moving between mapped regions
+        AssignmentBuffer buffer = new AssignmentBuffer(new RandomAccessFile(file, "rw").getChannel(), 64, file.length());
+        SparseLDA instance = new SparseLDA(buffer, K, J, W, 0.1, 0.1, 3);
+        instance.train(20, false);
+
+        // The counts must agree with the assignments
+        final int[][] counts = new int[W][K];
+        final int[] topicCounts = new int[K];
+        buffer.reset();
+        while (buffer.hasNext()) {
+            int w = buffer.getNext();
+            int k = buffer.getNext();
+            if (w != -1) {
+                counts[w][k]++;
+                topicCounts[k]++;
+            }
+        }
+        final int[] result = new int[K];
+        for (int w = 0; w < W; w++) {
+            instance.wordTopicCounts(w, result);
+            int total = 0;
+            for (int k = 0; k < K; k++) {
+                assertEquals(counts[w][k], result[k]);
+                total += result[k];
+            }
+            assertEquals(wordFreq[w], total);
+        }
+        for (int k = 0; k < K; k++) {
+            assertEquals(topicCounts[k], instance.N_k[k]);
+        }
+    }
+
+    /**
+     * Test of increment method, of class SparseLDA, at the largest count.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testIncrementOverflow() {
+        System.out.println("incrementOverflow");
+        // With 2^20 topics, the counts have 11 bits
+        SparseLDA instance = new SparseLDA(null, 1 << 20, 1, 1, 0.1, 0.1, 1);
+        int[] a = new int[0];
+        for (int i = 0; i < 2047; i++) {
+            a = instance.increment(a, 3);
+        }
+        assertEquals(2047, a[0] >>> 20);
+        instance.increment(a, 3);
+    }
+}
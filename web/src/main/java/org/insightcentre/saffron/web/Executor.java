@@ -24,6 +24,7 @@ import org.insightcentre.nlp.saffron.data.*;
 import org.insightcentre.nlp.saffron.data.connections.AuthorAuthor;
 import org.insightcentre.nlp.saffron.data.connections.AuthorTerm;
 import org.insightcentre.nlp.saffron.data.connections.TermTerm;
+import org.insightcentre.nlp.saffron.data.index.BinaryCorpus;
 
 
 import com.fasterxml.jackson.core.JsonParseException;
@@ -572,10 +573,12 @@ public class Executor extends AbstractHandler {
 
         @Override
         public void setCorpus(String saffronDatasetName, Corpus searcher) {
-            data.setCorpus(saffronDatasetName, searcher);
             try {
                 File outputFolder2 = new File(outputFolder + "/" + name);
-                writer.writeValue(new File(outputFolder2, "corpus.json"), searcher);
+                // The other copies are made from the binary corpus, so the documents are read only once
+                final BinaryCorpus corpus = BinaryCorpus.write(new File(outputFolder2, "corpus.bin"), searcher);
+                data.setCorpus(saffronDatasetName, corpus);
+                writer.writeValue(new File(outputFolder2, "corpus.json"), corpus);
             } catch(IOException x) {
                 throw new RuntimeException(x);
             }
@@ -350,7 +350,7 @@ public class SaffronData {
         saffron.setTerms((List<Term>) mapper.readValue(termsFile,
                 tf.constructCollectionType(List.class, Term.class)));
 
-        File indexFile = new File(directory, "corpus.json");
+        File indexFile = CorpusTools.savedCorpusFile(directory);
         if(!indexFile.exists()) {
             throw new FileNotFoundException("Could not find index");
         }
@@ -32,8 +32,6 @@ import org.insightcentre.saffron.web.exception.TermNotFoundException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.ints.IntList;
 import org.insightcentre.nlp.saffron.documentindex.CorpusTools;
 import org.json.JSONObject;
 
@@ -69,7 +67,7 @@ public class SaffronInMemoryDataSource implements SaffronDataSource {
         private HashMap<String, Document> corpus;
         private HashMap<String, List<Document>> corpusByAuthor;
         private HashMap<String, Author> authors;
-        private HashMap<String, IntList> taxoMap;
+        private TaxonomyIndex taxoIndex;
         private Corpus searcher;
         private final String id;
 
@@ -91,7 +89,7 @@ public class SaffronInMemoryDataSource implements SaffronDataSource {
 
         public void setTaxonomy(Taxonomy taxonomy) {
             this.taxonomy = taxonomy;
-            this.taxoMap = getTaxoLocations(taxonomy);
+            this.taxoIndex = new TaxonomyIndex(taxonomy);
         }
 
         public void setKnowledgeGraph(KnowledgeGraph knowledgeGraph) {
@@ -395,54 +393,17 @@ public class SaffronInMemoryDataSource implements SaffronDataSource {
             return corpus.values();
         }
 
-        private HashMap<String, IntList> getTaxoLocations(Taxonomy t) {
-            IntList il = new IntArrayList();
-            HashMap<String, IntList> map = new HashMap<>();
-            _getTaxoLocations(t, il, map);
-            return map;
-        }
-
-        private void _getTaxoLocations(Taxonomy t, IntList il, HashMap<String, IntList> map) {
-            map.put(t.root, il);
-            for (int i = 0; i < t.children.size(); i++) {
-                IntList il2 = new IntArrayList(il);
-                il2.add(i);
-                _getTaxoLocations(t.children.get(i), il2, map);
-            }
-        }
-
-        private Taxonomy taxoNavigate(Taxonomy t, IntList il) {
-            for (int i : il) {
-                t = t.children.get(i);
-            }
-            return t;
-        }
-
         public List<String> getTaxoParents(String termString) {
-            IntList il = taxoMap.get(termString);
-            if (il != null) {
-                Taxonomy t = taxonomy;
-                List<String> route = new ArrayList<>();
-                for (int i : il) {
-                    route.add(t.root);
-                    t = t.children.get(i);
-                }
-                return route;
-            } else {
-                return Collections.EMPTY_LIST;
-            }
+            return taxoIndex.getAncestors(termString);
         }
 
         public Taxonomy getTaxoDescendent(String termString) {
-
-            Taxonomy t = taxonomy;
-            return taxonomy.descendent(termString);
+            return taxoIndex.get(termString);
         }
 
         public List<String> getTaxoChildren(String termString) {
-            IntList il = taxoMap.get(termString);
-            if (il != null) {
-                Taxonomy t = taxoNavigate(taxonomy, il);
+            Taxonomy t = taxoIndex.get(termString);
+            if (t != null) {
                 List<String> children = new ArrayList<>();
                 for (Taxonomy t2 : t.children) {
                     children.add(t2.root);
@@ -454,9 +415,8 @@ public class SaffronInMemoryDataSource implements SaffronDataSource {
         }
 
         public List<TermAndScore> getTaxoChildrenScored(String termString) {
-            IntList il = taxoMap.get(termString);
-            if (il != null) {
-                Taxonomy t = taxoNavigate(taxonomy, il);
+            Taxonomy t = taxoIndex.get(termString);
+            if (t != null) {
                 List<TermAndScore> children = new ArrayList<>();
                 for (Taxonomy t2 : t.children) {
                     children.add(new TermAndScore(t2.root, t2.linkScore));
@@ -489,6 +449,7 @@ public class SaffronInMemoryDataSource implements SaffronDataSource {
                     }
                 }
                 updateTermNameInTaxonomy(taxonomy, term, newTerm);
+                taxoIndex = new TaxonomyIndex(taxonomy);
                 t.setString(newTerm);
                 t.setStatus(status);
             }
@@ -584,7 +545,7 @@ public class SaffronInMemoryDataSource implements SaffronDataSource {
         saffron.setTerms((List<Term>) mapper.readValue(termsFile,
                 tf.constructCollectionType(List.class, Term.class)));
 
-        File indexFile = new File(saffonPath, "corpus.json");
+        File indexFile = CorpusTools.savedCorpusFile(new File(saffonPath));
         if (!indexFile.exists()) {
             throw new FileNotFoundException("Could not find index");
         }